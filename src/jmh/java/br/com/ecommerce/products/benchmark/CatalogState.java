@@ -0,0 +1,141 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.ecommerce.products.ProductsApplication;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+/**
+ * Boots the application once per trial against an in-memory H2 database and
+ * seeds a catalog of {@code catalogSize} products spread over a fixed set of
+ * manufacturers and every {@link Category}.
+ */
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    private static final int SEED_CHUNK = 1_000;
+    private static final List<String> MANUFACTURERS = List.of("AMD", "INTEL", "NVIDIA", "ASUS", "CORSAIR", "KINGSTON");
+
+    @Param({"1000", "10000"})
+    public int catalogSize;
+
+    public ConfigurableApplicationContext context;
+    public TransactionTemplate transaction;
+    public long[] productIds;
+
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(ProductsApplication.class)
+            .web(webApplicationType())
+            .profiles("test")
+            .run(arguments().toArray(String[]::new));
+        transaction = context.getBean(TransactionTemplate.class);
+        seed();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    protected WebApplicationType webApplicationType() {
+        return WebApplicationType.NONE;
+    }
+
+    protected List<String> arguments() {
+        return new ArrayList<>(List.of(
+            "--spring.datasource.driver-class-name=org.h2.Driver",
+            "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+            "--spring.datasource.username=sa",
+            "--spring.datasource.password=",
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.show-sql=false",
+            "--spring.jpa.properties.hibernate.format_sql=false",
+            "--logging.level.root=WARN"));
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public long randomProductId() {
+        return productIds[ThreadLocalRandom.current().nextInt(productIds.length)];
+    }
+
+    public Set<Long> randomDistinctProductIds(int count) {
+        Set<Long> ids = new LinkedHashSet<>();
+        while (ids.size() < Math.min(count, productIds.length)) {
+            ids.add(randomProductId());
+        }
+        return ids;
+    }
+
+    public String randomManufacturerName() {
+        return MANUFACTURERS.get(ThreadLocalRandom.current().nextInt(MANUFACTURERS.size()));
+    }
+
+    private void seed() {
+        ManufacturerRepository manufacturerRepository = bean(ManufacturerRepository.class);
+        ProductRepository productRepository = bean(ProductRepository.class);
+
+        List<Manufacturer> manufacturers = transaction.execute(status -> manufacturerRepository.saveAll(
+            MANUFACTURERS.stream().map(Manufacturer::new).toList()));
+
+        productIds = new long[catalogSize];
+        Category[] categories = Category.values();
+        for (int offset = 0; offset < catalogSize; offset += SEED_CHUNK) {
+            int from = offset;
+            int to = Math.min(offset + SEED_CHUNK, catalogSize);
+
+            transaction.executeWithoutResult(status -> {
+                List<Product> chunk = new ArrayList<>(to - from);
+                for (int i = from; i < to; i++) {
+                    chunk.add(product(i, manufacturers.get(i % manufacturers.size()), categories[i % categories.length]));
+                }
+                List<Product> saved = productRepository.saveAll(chunk);
+                for (int i = 0; i < saved.size(); i++) {
+                    productIds[from + i] = saved.get(i).getId();
+                }
+            });
+        }
+    }
+
+    static Product product(int sequence, Manufacturer manufacturer, Category category) {
+        List<ProductSpec> specs = List.of(
+            new ProductSpec("series", "series-" + (sequence % 50)),
+            new ProductSpec("generation", "gen-" + (sequence % 7)));
+        Product product = new Product(
+            "product-" + sequence,
+            "benchmark product " + sequence,
+            BigDecimal.valueOf(10 + (sequence % 5_000)),
+            category,
+            new Stock(1_000_000),
+            manufacturer,
+            specs);
+        specs.forEach(spec -> spec.setProduct(product));
+        return product;
+    }
+}
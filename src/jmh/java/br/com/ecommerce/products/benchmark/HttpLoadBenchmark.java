@@ -0,0 +1,88 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+
+/**
+ * Throughput and latency percentiles of {@code POST /products/prices} from more
+ * concurrent clients than Tomcat has platform threads, with requests served on
+ * platform threads or, with {@code virtualThreads}, on virtual threads. Both
+ * share a pool of 10 connections. Virtual threads need a Java 21 runtime; on an
+ * older one both runs use platform threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(1)
+public class HttpLoadBenchmark {
+
+    private static final int CART_SIZE = 20;
+
+    private URI uri;
+
+
+    @Setup
+    public void setup(ServerState server) {
+        uri = URI.create("http://localhost:" + server.context.getEnvironment().getProperty("local.server.port") + "/products/prices");
+    }
+
+    @Benchmark
+    public int prices(ServerState server) throws Exception {
+        String body = server.randomDistinctProductIds(CART_SIZE).stream()
+            .map(String::valueOf)
+            .collect(Collectors.joining(",", "[", "]"));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+        return server.client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+
+    @State(Scope.Benchmark)
+    public static class ServerState extends CatalogState {
+
+        @Param({"false", "true"})
+        public boolean virtualThreads;
+
+        public final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+
+        @Override
+        protected WebApplicationType webApplicationType() {
+            return WebApplicationType.SERVLET;
+        }
+
+        @Override
+        protected List<String> arguments() {
+            List<String> arguments = super.arguments();
+            arguments.add("--server.port=0");
+            arguments.add("--spring.threads.virtual.enabled=" + virtualThreads);
+            arguments.add("--spring.datasource.hikari.maximum-pool-size=10");
+            return arguments;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.MySQLContainer;
+
+import br.com.ecommerce.products.ProductsApplication;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.service.ProductService;
+
+/**
+ * Throughput of {@code createProduct} with {@code specs} specs per product, on
+ * H2 or on MySQL started with Testcontainers (needs Docker). Run it on two
+ * commits to compare id strategies or batching settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductInsertBenchmark {
+
+    @Param({"h2", "mysql"})
+    public String database;
+
+    @Param({"2", "30"})
+    public int specs;
+
+    private MySQLContainer<?> mysql;
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate transaction;
+    private ProductService service;
+    private ProductDTO product;
+
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("resource")
+    public void start() {
+        List<String> args = new ArrayList<>(List.of(
+            "--spring.jpa.hibernate.ddl-auto=create-drop",
+            "--spring.jpa.show-sql=false",
+            "--spring.jpa.properties.hibernate.format_sql=false",
+            "--logging.level.root=WARN"));
+        if (database.equals("mysql")) {
+            mysql = new MySQLContainer<>("mysql:8.0.36");
+            mysql.start();
+            args.add("--spring.datasource.url=" + mysql.getJdbcUrl() + "?rewriteBatchedStatements=true");
+            args.add("--spring.datasource.username=" + mysql.getUsername());
+            args.add("--spring.datasource.password=" + mysql.getPassword());
+        } else {
+            args.add("--spring.datasource.driver-class-name=org.h2.Driver");
+            args.add("--spring.datasource.url=jdbc:h2:mem:inserts;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+            args.add("--spring.datasource.username=sa");
+            args.add("--spring.datasource.password=");
+        }
+
+        context = new SpringApplicationBuilder(ProductsApplication.class)
+            .web(WebApplicationType.NONE)
+            .profiles("test")
+            .run(args.toArray(String[]::new));
+        transaction = context.getBean(TransactionTemplate.class);
+        service = context.getBean(ProductService.class);
+        ManufacturerRepository manufacturerRepository = context.getBean(ManufacturerRepository.class);
+        transaction.executeWithoutResult(status -> manufacturerRepository.save(new Manufacturer("AMD")));
+
+        List<ProductSpecDTO> productSpecs = new ArrayList<>(specs);
+        for (int i = 0; i < specs; i++) {
+            productSpecs.add(new ProductSpecDTO("attribute-" + i, "value-" + i));
+        }
+        product = new ProductDTO(
+            "inserted", "benchmark product", BigDecimal.TEN, Category.CPU, new StockDTO(10), new ManufacturerDTO("AMD"), productSpecs);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        if (mysql != null)
+            mysql.stop();
+    }
+
+    @Benchmark
+    public ProductResponseDTO createProduct() {
+        return transaction.execute(status -> service.createProduct(product));
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ecommerce.products.mapper.ProductMapper;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.StockDTO;
+
+/**
+ * Reflective {@link ModelMapper} against the generated {@link ProductMapper} on the
+ * DTO conversions used by the product read and write paths. No database involved;
+ * run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductMappingBenchmark {
+
+    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
+
+    private Product product;
+    private ProductDTO productDTO;
+
+
+    @Setup
+    public void setup() {
+        modelMapper = new ModelMapper();
+        productMapper = Mappers.getMapper(ProductMapper.class);
+
+        Manufacturer manufacturer = new Manufacturer("AMD");
+        manufacturer.setId(1L);
+        product = CatalogState.product(1, manufacturer, Category.CPU);
+        product.setId(1L);
+
+        productDTO = new ProductDTO(
+            "Ryzen 9 7950X",
+            "16 cores",
+            new BigDecimal("3500"),
+            Category.CPU,
+            new StockDTO(150),
+            new ManufacturerDTO("AMD"),
+            List.of(new ProductSpecDTO("socket", "AM5"), new ProductSpecDTO("cores", "16")));
+
+        // resolve ModelMapper type maps before measuring
+        modelMapper.map(product, ProductResponseDTO.class);
+        modelMapper.map(productDTO, Product.class);
+    }
+
+    @Benchmark
+    public ProductResponseDTO toResponseModelMapper() {
+        return modelMapper.map(product, ProductResponseDTO.class);
+    }
+
+    @Benchmark
+    public ProductResponseDTO toResponseGenerated() {
+        return productMapper.toProductResponseDTO(product);
+    }
+
+    @Benchmark
+    public Product toEntityModelMapper() {
+        return modelMapper.map(productDTO, Product.class);
+    }
+
+    @Benchmark
+    public Product toEntityGenerated() {
+        return productMapper.toProduct(productDTO);
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import br.com.ecommerce.products.index.ProductNameIndex;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductService;
+
+/**
+ * Name search through {@link ProductNameIndex} against the {@code LIKE '%...%'}
+ * query it replaces. The interesting size is the largest one:
+ * {@code -Djmh.args="ProductNameSearchBenchmark -p catalogSize=1000000 -prof gc"}.
+ * Seeded names are {@code product-<n>}; queries pick an {@code -<n>} from the
+ * last nine tenths of the catalog, which matches exactly one product.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductNameSearchBenchmark {
+
+    private ProductService service;
+    private ProductRepository repository;
+    private ProductNameIndex index;
+    private Pageable firstPage;
+
+
+    @Setup
+    public void setup(CatalogState catalog) {
+        service = catalog.bean(ProductService.class);
+        repository = catalog.bean(ProductRepository.class);
+        index = catalog.bean(ProductNameIndex.class);
+        firstPage = PageRequest.of(0, 10);
+    }
+
+    @Benchmark
+    public Page<Product> likeQuery(CatalogState catalog) {
+        String name = query(catalog);
+        return catalog.transaction.execute(status -> repository
+            .findAllByParams(firstPage, name, null, null, null, null));
+    }
+
+    @Benchmark
+    public Page<ProductResponseDTO> indexedSearch(CatalogState catalog) {
+        String name = query(catalog);
+        return catalog.transaction.execute(status -> service
+            .getAllProductWithParams(firstPage, name, null, null, null, null));
+    }
+
+    @Benchmark
+    public Optional<List<Long>> indexLookup(CatalogState catalog) {
+        return index.search(query(catalog));
+    }
+
+    private static String query(CatalogState catalog) {
+        int from = catalog.catalogSize / 10;
+        return "-" + (from + ThreadLocalRandom.current().nextInt(catalog.catalogSize - from));
+    }
+}
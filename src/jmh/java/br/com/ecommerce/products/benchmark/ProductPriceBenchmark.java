@@ -0,0 +1,63 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ecommerce.products.model.product.ProductPriceDTO;
+import br.com.ecommerce.products.service.ProductService;
+
+/**
+ * Latency of {@code POST /products/prices} for carts of {@code ids} products,
+ * read as a projection or, as it used to be, by loading the products. Run it
+ * with {@code -p catalogSize=10000} so 5000 distinct ids exist.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductPriceBenchmark {
+
+    @Param({"1", "100", "5000"})
+    public int ids;
+
+    private ProductService service;
+    private List<Long> request;
+
+
+    @Setup
+    public void setup(CatalogState catalog) {
+        service = catalog.bean(ProductService.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void newRequest(CatalogState catalog) {
+        request = List.copyOf(catalog.randomDistinctProductIds(ids));
+    }
+
+    @Benchmark
+    public List<ProductPriceDTO> projection(CatalogState catalog) {
+        return catalog.transaction.execute(status -> service.getPrices(request));
+    }
+
+    @Benchmark
+    public List<ProductPriceDTO> entities(CatalogState catalog) {
+        return catalog.transaction.execute(status -> service.getAllProductsByListOfIds(request).stream()
+            .map(p -> new ProductPriceDTO(p.getId(), p.getPrice()))
+            .toList());
+    }
+}
@@ -0,0 +1,97 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import br.com.ecommerce.products.index.ProductPriceIndex;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductService;
+
+/**
+ * Category and price range queries through {@link ProductPriceIndex} against the
+ * query they replace, and the price histogram of a category. Seeded prices run
+ * from 10 to 5009, so a range of {@value #RANGE} matches about
+ * {@code catalogSize / 5000} products of a category:
+ * {@code -Djmh.args="ProductPriceRangeBenchmark -p catalogSize=1000000 -prof gc"}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductPriceRangeBenchmark {
+
+    private static final int RANGE = 10;
+
+    private ProductService service;
+    private ProductRepository repository;
+    private ProductPriceIndex index;
+    private Pageable firstPage;
+
+
+    @Setup
+    public void setup(CatalogState catalog) {
+        service = catalog.bean(ProductService.class);
+        repository = catalog.bean(ProductRepository.class);
+        index = catalog.bean(ProductPriceIndex.class);
+        firstPage = PageRequest.of(0, 10);
+    }
+
+    @Benchmark
+    public Page<Product> sqlRange(CatalogState catalog) {
+        Category category = category();
+        BigDecimal min = minPrice();
+        return catalog.transaction.execute(status -> repository
+            .findAllByParams(firstPage, null, category, min, min.add(BigDecimal.valueOf(RANGE)), null));
+    }
+
+    @Benchmark
+    public Page<ProductResponseDTO> indexedRange(CatalogState catalog) {
+        Category category = category();
+        BigDecimal min = minPrice();
+        return catalog.transaction.execute(status -> service
+            .getAllProductWithParams(firstPage, null, category, min, min.add(BigDecimal.valueOf(RANGE)), null));
+    }
+
+    @Benchmark
+    public Optional<List<Long>> indexLookup() {
+        BigDecimal min = minPrice();
+        return index.search(category(), min, min.add(BigDecimal.valueOf(RANGE)));
+    }
+
+    @Benchmark
+    public List<PriceFacetDTO> histogram() {
+        return index.histogram(category(), null, null, 20);
+    }
+
+    private static Category category() {
+        Category[] categories = Category.values();
+        return categories[ThreadLocalRandom.current().nextInt(categories.length)];
+    }
+
+    private static BigDecimal minPrice() {
+        return BigDecimal.valueOf(10 + ThreadLocalRandom.current().nextInt(5_000 - RANGE));
+    }
+}
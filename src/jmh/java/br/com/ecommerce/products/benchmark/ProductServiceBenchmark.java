@@ -0,0 +1,103 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductIdAndUnitsDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.model.product.StockWriteOffDTO;
+import br.com.ecommerce.products.service.ProductService;
+
+/**
+ * Hot paths of {@link ProductService}. Run with
+ * {@code mvn -Pbenchmark test-compile exec:exec}; pass {@code -Djmh.args="..."}
+ * to select benchmarks, catalog sizes ({@code -p catalogSize=100000}) or profilers.
+ * Every call runs inside a transaction, as it would behind the controllers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    private static final int ORDER_LINES = 5;
+
+    private ProductService service;
+    private Pageable firstPage;
+
+
+    @Setup
+    public void setup(CatalogState catalog) {
+        service = catalog.bean(ProductService.class);
+        firstPage = PageRequest.of(0, 10);
+    }
+
+    @Benchmark
+    public ProductResponseDTO getProduct(CatalogState catalog) {
+        return catalog.transaction.execute(status -> service.getProduct(catalog.randomProductId()));
+    }
+
+    @Benchmark
+    public Page<ProductResponseDTO> getAllProductWithParams(CatalogState catalog) {
+        Category category = Category.values()[ThreadLocalRandom.current().nextInt(Category.values().length)];
+        String manufacturer = catalog.randomManufacturerName();
+        return catalog.transaction.execute(status -> service
+            .getAllProductWithParams(firstPage, null, category, BigDecimal.TEN, null, manufacturer));
+    }
+
+    @Benchmark
+    public List<StockResponseDTO> verifyProductsStocks(CatalogState catalog) {
+        List<ProductIdAndUnitsDTO> order = new ArrayList<>(ORDER_LINES);
+        for (long id : catalog.randomDistinctProductIds(ORDER_LINES)) {
+            order.add(new ProductIdAndUnitsDTO(id, 1));
+        }
+        return service.verifyProductsStocks(order);
+    }
+
+    @Benchmark
+    public void updateStocks(CatalogState catalog) {
+        List<StockWriteOffDTO> writeOffs = new ArrayList<>(ORDER_LINES);
+        for (long id : catalog.randomDistinctProductIds(ORDER_LINES)) {
+            writeOffs.add(new StockWriteOffDTO(id, 1));
+        }
+        catalog.transaction.executeWithoutResult(status -> service.updateStocks(writeOffs));
+    }
+
+    @Benchmark
+    public ProductResponseDTO createProduct(CatalogState catalog) {
+        ProductDTO dto = new ProductDTO(
+            "created-" + ThreadLocalRandom.current().nextInt(),
+            "benchmark product",
+            BigDecimal.valueOf(350),
+            Category.CPU,
+            new StockDTO(100),
+            new ManufacturerDTO(catalog.randomManufacturerName()),
+            List.of(new ProductSpecDTO("socket", "AM5"), new ProductSpecDTO("cores", "16")));
+        return catalog.transaction.execute(status -> service.createProduct(dto));
+    }
+}
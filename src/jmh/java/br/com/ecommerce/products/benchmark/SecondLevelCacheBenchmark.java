@@ -0,0 +1,90 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ecommerce.products.cache.ProductCacheInvalidator;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.service.ProductService;
+import br.com.ecommerce.products.sql.QueryCount;
+
+/**
+ * Latency and SQL statements of {@link ProductService#getProduct} once the
+ * product is out of the response cache, with the Hibernate second-level cache
+ * on or off. {@code statements} divided by {@code reads} is the number of
+ * round trips per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SecondLevelCacheBenchmark {
+
+    private ProductService service;
+    private ProductCacheInvalidator cacheInvalidator;
+
+
+    @Setup
+    public void setup(CacheState catalog) {
+        service = catalog.bean(ProductService.class);
+        cacheInvalidator = catalog.bean(ProductCacheInvalidator.class);
+    }
+
+    @Benchmark
+    public ProductResponseDTO getProduct(CacheState catalog, Statements statements) {
+        long id = catalog.randomProductId();
+        cacheInvalidator.evictProduct(id);
+        try (QueryCount queries = QueryCount.start()) {
+            ProductResponseDTO product = catalog.transaction.execute(status -> service.getProduct(id));
+            statements.statements += queries.getStatements();
+            statements.reads++;
+            return product;
+        }
+    }
+
+
+    @State(Scope.Benchmark)
+    public static class CacheState extends CatalogState {
+
+        @Param({"false", "true"})
+        public boolean secondLevelCache;
+
+        @Override
+        protected List<String> arguments() {
+            List<String> arguments = super.arguments();
+            arguments.add("--spring.jpa.properties.hibernate.cache.use_second_level_cache=" + secondLevelCache);
+            arguments.add("--spring.jpa.properties.hibernate.cache.use_query_cache=" + secondLevelCache);
+            return arguments;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Statements {
+
+        public long statements;
+        public long reads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            reads = 0;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.ecommerce.products.amqp.ProductsListener;
+import br.com.ecommerce.products.model.product.StockWriteOffDTO;
+import br.com.ecommerce.products.service.ProductService;
+
+/**
+ * One batch of {@code batchSize} order messages consumed by the batch listener,
+ * against the same messages handled one transaction each as the single-message
+ * listener did. Divide by {@code batchSize} for the cost per message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockOrdersConsumerBenchmark {
+
+    private static final int ORDER_LINES = 5;
+
+    @Param({"10", "100"})
+    public int batchSize;
+
+    private ProductsListener listener;
+    private ProductService service;
+    private List<Message> batch;
+    private List<List<StockWriteOffDTO>> orders;
+
+
+    @Setup
+    public void setup(CatalogState catalog) throws JsonProcessingException {
+        listener = catalog.bean(ProductsListener.class);
+        service = catalog.bean(ProductService.class);
+        ObjectMapper objectMapper = catalog.bean(ObjectMapper.class);
+
+        batch = new ArrayList<>(batchSize);
+        orders = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            List<StockWriteOffDTO> order = catalog.randomDistinctProductIds(ORDER_LINES).stream()
+                .map(id -> new StockWriteOffDTO(id, 1))
+                .toList();
+            orders.add(order);
+            batch.add(new Message(objectMapper.writeValueAsString(order).getBytes(StandardCharsets.UTF_8), new MessageProperties()));
+        }
+    }
+
+    @Benchmark
+    public void batched() {
+        listener.receiveStockOrders(batch);
+    }
+
+    @Benchmark
+    public void messagePerTransaction(CatalogState catalog) {
+        for (List<StockWriteOffDTO> order : orders) {
+            catalog.transaction.executeWithoutResult(status -> service.updateStocks(order));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.ecommerce.products.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import br.com.ecommerce.products.reservation.StockReservation;
+import br.com.ecommerce.products.reservation.StockReservationLedger;
+
+/**
+ * Reserve-then-release round trips on the in-memory ledger from 8 threads, all
+ * on one flash-sale product or spread over orders of random products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class StockReservationBenchmark {
+
+    private static final int ORDER_LINES = 5;
+
+    private StockReservationLedger ledger;
+    private Map<Long, Integer> hotProduct;
+
+
+    @Setup
+    public void setup(CatalogState catalog) {
+        ledger = catalog.bean(StockReservationLedger.class);
+        hotProduct = Map.of(catalog.productIds[0], 1);
+    }
+
+    @Benchmark
+    public StockReservation hotProduct() {
+        StockReservation reservation = ledger.reserve(hotProduct);
+        ledger.release(reservation.id());
+        return reservation;
+    }
+
+    @Benchmark
+    public StockReservation randomOrder(CatalogState catalog) {
+        Map<Long, Integer> order = new HashMap<>();
+        for (long id : catalog.randomDistinctProductIds(ORDER_LINES)) {
+            order.put(id, 1);
+        }
+        StockReservation reservation = ledger.reserve(order);
+        ledger.release(reservation.id());
+        return reservation;
+    }
+}
@@ -1,21 +1,32 @@
 package br.com.ecommerce.products.amqp;
 
+import java.time.Duration;
+
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.ExchangeBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitAdmin;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 
+import br.com.ecommerce.products.sql.QueryCountRecorder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
 @Configuration
 @Profile("!test")
 public class ProductsAMQPConfig {
@@ -39,6 +50,38 @@ public class ProductsAMQPConfig {
 		
 		return template;
 	}
+	@Bean
+	SimpleRabbitListenerContainerFactory stockOrdersContainerFactory(
+			SimpleRabbitListenerContainerFactoryConfigurer configurer,
+			ConnectionFactory conn,
+			QueryCountRecorder queryCounts,
+			@Value("${products.stock-orders.batch-size:100}") int batchSize,
+			@Value("${products.stock-orders.receive-timeout:200ms}") Duration receiveTimeout) {
+		SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+		// applies spring.rabbitmq.listener.simple.* and, with spring.threads.virtual.enabled, the virtual-thread executor
+		configurer.configure(factory, conn);
+		factory.setBatchListener(true);
+		factory.setConsumerBatchEnabled(true);
+		factory.setBatchSize(batchSize);
+		factory.setPrefetchCount(batchSize);
+		// a partial batch is delivered once no message arrived for this long
+		factory.setReceiveTimeout(receiveTimeout.toMillis());
+		factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+		factory.setAdviceChain(queryCounts.listener("products.stock-orders"));
+
+		return factory;
+	}
+	
+	@Bean
+	MeterBinder stockOrdersLag(RabbitAdmin admin) {
+		// read from the broker on every scrape, NaN while it cannot be reached
+		return registry -> Gauge.builder("products.stock.orders.lag", admin, a -> {
+				QueueInformation queue = a.getQueueInfo("products.stock-orders");
+				return queue == null ? Double.NaN : queue.getMessageCount();
+			})
+			.description("Stock write-off messages waiting in the queue to be consumed")
+			.register(registry);
+	}
 	
 	// Receiver configs
 	static class Receiver {
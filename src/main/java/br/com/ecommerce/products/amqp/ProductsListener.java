@@ -1,27 +1,99 @@
 package br.com.ecommerce.products.amqp;
 
+import java.io.IOException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
 
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import br.com.ecommerce.products.model.product.StockWriteOffDTO;
+import br.com.ecommerce.products.service.ConflictRetry;
 import br.com.ecommerce.products.service.ProductService;
-import jakarta.transaction.Transactional;
-import jakarta.validation.Valid;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Consumes the stock write-offs of the orders in batches: the deltas of every
+ * message of a batch are merged per product and written with one UPDATE, and
+ * the whole batch is acknowledged once that transaction has committed. A batch
+ * whose transaction conflicts with a concurrent update is written again.
+ * <p>
+ * The reservations named by the write-offs are freed when the batch commits,
+ * so their units are not counted both as reserved and as written off.
+ */
+@Slf4j
 @Component
 public class ProductsListener {
 
+	private static final TypeReference<List<StockWriteOffDTO>> ORDER_TYPE = new TypeReference<>() {};
+
 	@Autowired
 	private ProductService service;
-	
-	
-	@RabbitListener(queues = "products.stock-orders")
-	@Transactional
-	public void receibeQueueMessageOrder(@Payload @Valid List<StockWriteOffDTO> dto) {
-		service.updateStocks(dto);
+	@Autowired
+	private ConflictRetry retry;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final Counter messages;
+	private final Counter rejected;
+	private final DistributionSummary batchSize;
+	private final Timer commit;
+
+	public ProductsListener(MeterRegistry registry) {
+		this.messages = Counter.builder("products.stock.orders.messages")
+			.description("Stock write-off messages consumed")
+			.register(registry);
+		this.rejected = Counter.builder("products.stock.orders.rejected")
+			.description("Stock write-off messages dropped because they could not be read")
+			.register(registry);
+		this.batchSize = DistributionSummary.builder("products.stock.orders.batch.size")
+			.description("Messages per consumed batch")
+			.register(registry);
+		this.commit = Timer.builder("products.stock.orders.commit")
+			.description("Time to write and commit the stock of a batch")
+			.register(registry);
+	}
+
+
+	@RabbitListener(queues = "products.stock-orders", containerFactory = "stockOrdersContainerFactory")
+	public void receiveStockOrders(List<Message> batch) {
+		// sorted so concurrent batches lock the rows in the same order
+		Map<Long, Integer> deltas = new TreeMap<>();
+		Set<UUID> reservationIds = new LinkedHashSet<>();
+		batch.forEach(message -> this.read(message).forEach(line -> {
+			deltas.merge(line.getProductId(), line.getUnit(), Integer::sum);
+			if (line.getReservationId() != null)
+				reservationIds.add(line.getReservationId());
+		}));
+
+		commit.record(() -> retry.inTransaction("stock-orders", () -> service.writeOff(deltas, reservationIds)));
+		messages.increment(batch.size());
+		batchSize.record(batch.size());
+	}
+
+	private List<StockWriteOffDTO> read(Message message) {
+		try {
+			List<StockWriteOffDTO> lines = objectMapper.readValue(message.getBody(), ORDER_TYPE);
+			if (lines.stream().allMatch(line -> line != null && line.getProductId() != null && line.getUnit() != null))
+				return lines;
+		} catch (IOException e) {
+			// rejected below
+		}
+		rejected.increment();
+		log.warn("Dropping unreadable stock write-off message {}", message.getMessageProperties().getMessageId());
+		return List.of();
 	}
-}
\ No newline at end of file
+}
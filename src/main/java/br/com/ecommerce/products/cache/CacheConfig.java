@@ -0,0 +1,42 @@
+package br.com.ecommerce.products.cache;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+
+@EnableCaching
+@Configuration
+public class CacheConfig {
+
+	public static final String PRODUCTS = "products";
+	public static final String MANUFACTURERS = "manufacturers";
+
+
+	/**
+	 * Puts and evictions issued inside a transaction are only applied after it commits,
+	 * so a rolled back write never invalidates. A concurrent read that loaded the old
+	 * row before the commit can still put it after the eviction, which is why writes
+	 * evict again through {@link DelayedEviction}.
+	 */
+	@Bean
+	CacheManager cacheManager(
+			@Value("${products.cache.products.spec:maximumSize=10000,expireAfterWrite=10m}") String spec,
+			@Value("${products.cache.manufacturers.spec:maximumSize=1000,expireAfterWrite=1h}") String manufacturersSpec) {
+		CaffeineCacheManager manager = new CaffeineCacheManager();
+		manager.setCaffeine(Caffeine.from(CaffeineSpec.parse(spec)).recordStats());
+		manager.setAllowNullValues(false);
+		manager.setCacheNames(List.of(PRODUCTS));
+		manager.registerCustomCache(MANUFACTURERS, Caffeine.from(CaffeineSpec.parse(manufacturersSpec)).recordStats().build());
+
+		return new TransactionAwareCacheManagerProxy(manager);
+	}
+}
@@ -0,0 +1,54 @@
+package br.com.ecommerce.products.cache;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.ecommerce.products.datasource.ReplicaRouting;
+
+/**
+ * Runs an eviction again {@code products.cache.evict-again-after} after the
+ * transaction commits, or right away outside one. A read that loaded the row
+ * before the commit can put it back after the first eviction; the second one
+ * drops it, unless that read took longer than the delay. With read replicas the
+ * delay also covers the lag they are allowed, since a read right after the
+ * commit may still find the old row there.
+ */
+@Component
+public class DelayedEviction {
+
+	@Autowired
+	private TaskScheduler taskScheduler;
+	@Autowired(required = false)
+	private ReplicaRouting replicaRouting;
+
+	@Value("${products.cache.evict-again-after:2s}")
+	private Duration delay;
+
+
+	public void againLater(Runnable eviction) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			this.schedule(eviction);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				schedule(eviction);
+			}
+		});
+	}
+
+	private void schedule(Runnable eviction) {
+		Duration after = delay;
+		if (replicaRouting != null && replicaRouting.catchUpTime().compareTo(after) > 0)
+			after = replicaRouting.catchUpTime();
+		taskScheduler.schedule(eviction, Instant.now().plus(after));
+	}
+}
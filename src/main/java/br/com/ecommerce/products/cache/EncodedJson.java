@@ -0,0 +1,47 @@
+package br.com.ecommerce.products.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import br.com.ecommerce.products.model.product.ProductVersionDTO;
+
+/**
+ * A response body already encoded as JSON, gzip-compressed when {@code gzipped},
+ * with the sorted ids of the products it shows and, for a product, the versions
+ * it was built from. {@code evictions} counts the evictions run before it was read.
+ */
+public record EncodedJson(byte[] body, boolean gzipped, long[] productIds, ProductVersionDTO version, long evictions) {
+
+	/** The JSON itself, decompressed for the clients that do not accept gzip. */
+	public byte[] json() {
+		if (!gzipped)
+			return body;
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			return in.readAllBytes();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** Whether this body was read after {@code other}, as far as their versions tell. */
+	boolean isNewerThan(EncodedJson other) {
+		if (evictions != other.evictions)
+			return evictions > other.evictions;
+		return version != null && other.version != null && version.isNewerThan(other.version);
+	}
+
+	boolean showsAny(long[] sortedIds) {
+		for (long id : productIds) {
+			if (Arrays.binarySearch(sortedIds, id) >= 0)
+				return true;
+		}
+		return false;
+	}
+
+	int weight() {
+		return body.length + productIds.length * Long.BYTES;
+	}
+}
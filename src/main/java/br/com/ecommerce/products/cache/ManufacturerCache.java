@@ -0,0 +1,53 @@
+package br.com.ecommerce.products.cache;
+
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+
+/**
+ * Id and name of the manufacturers, keyed by their uppercased name, so products
+ * can be linked to a manufacturer by reference without reading it.
+ * <p>
+ * Entries are loaded on first use and evicted when a manufacturer is created or
+ * renamed, and again a moment later. Names that are not found are not cached, since the manufacturer may be
+ * created right after.
+ */
+@Component
+public class ManufacturerCache {
+
+	@Autowired
+	private CacheManager cacheManager;
+	@Autowired
+	private ManufacturerRepository repository;
+	@Autowired
+	private DelayedEviction delayedEviction;
+
+
+	public Optional<ManufacturerResponseDTO> findByName(String name) {
+		String key = name.toUpperCase();
+		Cache cache = this.manufacturersCache();
+		ManufacturerResponseDTO cached = cache.get(key, ManufacturerResponseDTO.class);
+		if (cached != null)
+			return Optional.of(cached);
+
+		Optional<ManufacturerResponseDTO> manufacturer = repository.findByName(key).map(ManufacturerResponseDTO::new);
+		manufacturer.ifPresent(mf -> cache.put(key, mf));
+		return manufacturer;
+	}
+
+	public void evict(String name) {
+		String key = name.toUpperCase();
+		this.manufacturersCache().evict(key);
+		delayedEviction.againLater(() -> this.manufacturersCache().evict(key));
+	}
+
+	private Cache manufacturersCache() {
+		return cacheManager.getCache(CacheConfig.MANUFACTURERS);
+	}
+}
@@ -0,0 +1,58 @@
+package br.com.ecommerce.products.cache;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+
+@Component
+public class ProductCacheInvalidator {
+
+	@Autowired
+	private CacheManager cacheManager;
+	@Autowired
+	private ProductJsonCache jsonCache;
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private DelayedEviction delayedEviction;
+
+
+	public void evictProduct(Long productId) {
+		this.evictProducts(List.of(productId));
+	}
+
+	public void evictProducts(Collection<Long> productIds) {
+		List<Long> ids = List.copyOf(productIds);
+		this.evict(ids);
+		delayedEviction.againLater(() -> {
+			jakarta.persistence.Cache secondLevel = entityManagerFactory.getCache();
+			ids.forEach(id -> secondLevel.evict(Product.class, id));
+			this.evict(ids);
+		});
+	}
+
+	/** For a category gaining a product, whose cached pages do not show it yet. */
+	public void evictCategory(Category category) {
+		jsonCache.evictPages(category);
+		delayedEviction.againLater(() -> jsonCache.evictPages(category));
+	}
+
+	private void evict(List<Long> productIds) {
+		Cache cache = this.productsCache();
+		productIds.forEach(cache::evict);
+		jsonCache.evictProducts(productIds);
+	}
+
+	private Cache productsCache() {
+		return cacheManager.getCache(CacheConfig.PRODUCTS);
+	}
+}
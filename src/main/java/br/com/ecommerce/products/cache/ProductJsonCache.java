@@ -0,0 +1,178 @@
+package br.com.ecommerce.products.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductVersionDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Product responses kept as encoded JSON, so a hit is written as it is, without
+ * building the DTO or running Jackson: the detail of a product and the pages of
+ * {@code GET /products?category=} with no other filter, sort or cursor.
+ * <p>
+ * Each kind is bounded by the bytes it holds ({@code products.cache.json.max-size}
+ * and {@code products.cache.json.pages.max-size}), Caffeine keeping the entries
+ * read most often. With {@code products.cache.json.gzip} bodies are held
+ * gzip-compressed. Once a transaction writing products commits, every entry
+ * showing one of them is evicted, and so are the pages of a category that gained
+ * a product. A body whose read began before an eviction is not cached, since it
+ * can show what the eviction removed.
+ */
+@Component
+public class ProductJsonCache implements MeterBinder {
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${products.cache.json.gzip:false}")
+	private boolean gzip;
+
+	private final Cache<Long, EncodedJson> products;
+	private final Cache<PageKey, EncodedJson> pages;
+	private final AtomicLong evictions = new AtomicLong();
+
+	public ProductJsonCache(
+			@Value("${products.cache.json.max-size:64MB}") DataSize maxSize,
+			@Value("${products.cache.json.pages.max-size:16MB}") DataSize pagesMaxSize,
+			@Value("${products.cache.json.expire-after-write:10m}") Duration expireAfterWrite) {
+		this.products = Caffeine.newBuilder()
+			.maximumWeight(maxSize.toBytes())
+			.weigher((Long id, EncodedJson json) -> json.weight())
+			.expireAfterWrite(expireAfterWrite)
+			.recordStats()
+			.build();
+		this.pages = Caffeine.newBuilder()
+			.maximumWeight(pagesMaxSize.toBytes())
+			.weigher((PageKey key, EncodedJson json) -> json.weight())
+			.expireAfterWrite(expireAfterWrite)
+			.recordStats()
+			.build();
+	}
+
+
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	/**
+	 * The product, read again when the body cached was built from other versions
+	 * than {@code eTag}, so the body is never older than the ETag it is sent with.
+	 * With no {@code eTag}, any body cached is served.
+	 */
+	public EncodedJson product(Long id, String eTag, Supplier<ProductResponseDTO> loader) {
+		return this.get(products, id, json -> eTag == null || json.version() != null && json.version().eTag().equals(eTag), evictions -> {
+			ProductResponseDTO product = loader.get();
+			return this.encode(product, new long[] {id}, product.getVersion(), evictions);
+		});
+	}
+
+	public static boolean isCachedPage(Pageable pageable, Category category, boolean otherFilters) {
+		return category != null && !otherFilters && pageable.getSort().isUnsorted();
+	}
+
+	public EncodedJson page(Category category, Pageable pageable, Supplier<Page<ProductResponseDTO>> loader) {
+		PageKey key = new PageKey(category, pageable.getPageNumber(), pageable.getPageSize());
+		return this.get(pages, key, json -> true, evictions -> {
+			Page<ProductResponseDTO> page = loader.get();
+			return this.encode(page, page.getContent().stream().mapToLong(ProductResponseDTO::getId).sorted().toArray(), null, evictions);
+		});
+	}
+
+	public void evictProducts(Collection<Long> productIds) {
+		long[] ids = productIds.stream().mapToLong(Long::longValue).sorted().toArray();
+		this.afterCommit(() -> {
+			evictions.incrementAndGet();
+			products.invalidateAll(productIds);
+			pages.asMap().values().removeIf(page -> page.showsAny(ids));
+		});
+	}
+
+	public void evictPages(Category category) {
+		this.afterCommit(() -> {
+			evictions.incrementAndGet();
+			pages.asMap().keySet().removeIf(key -> key.category() == category);
+		});
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, products, "products-json");
+		CaffeineCacheMetrics.monitor(registry, pages, "product-pages-json");
+	}
+
+	// not loaded inside the cache, where a slow query would block the other keys of its bin
+	private <K> EncodedJson get(Cache<K, EncodedJson> cache, K key, Predicate<EncodedJson> current, LongFunction<EncodedJson> loader) {
+		EncodedJson cached = cache.getIfPresent(key);
+		if (cached != null && current.test(cached))
+			return cached;
+		long before = evictions.get();
+		EncodedJson json = loader.apply(before);
+		// an eviction run meanwhile may have removed what this read saw, and a newer body put meanwhile stays
+		cache.asMap().compute(key, (k, present) -> {
+			if (evictions.get() != before || present != null && !json.isNewerThan(present))
+				return present;
+			return json;
+		});
+		return json;
+	}
+
+	private EncodedJson encode(Object response, long[] productIds, ProductVersionDTO version, long evictions) {
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(response);
+			if (!gzip)
+				return new EncodedJson(json, false, productIds, version, evictions);
+
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4);
+			try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+				out.write(json);
+			}
+			return new EncodedJson(compressed.toByteArray(), true, productIds, version, evictions);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** Runs the eviction once the transaction commits, so a read before it cannot cache the rows it is replacing. */
+	private void afterCommit(Runnable eviction) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			eviction.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				eviction.run();
+			}
+		});
+	}
+
+
+	private record PageKey(Category category, int page, int size) {}
+}
@@ -1,22 +1,32 @@
 package br.com.ecommerce.products.config;
 
-import org.modelmapper.ModelMapper;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.lang.NonNull;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class Configs implements WebMvcConfigurer{
 
-	@Bean
-	ModelMapper getMapper() {
-		return new ModelMapper();
-	}
-	
 	@Override
 	public void addFormatters(@NonNull FormatterRegistry registry) {
 		registry.addConverter(new StringToCategoryConverter());
 	}
+
+	/**
+	 * Weak ETags for the listings, hashed from the response body, so an unchanged
+	 * page is answered with a 304 and no body. Single products and manufacturers
+	 * get a strong ETag from their versions instead.
+	 */
+	@Bean
+	public FilterRegistrationBean<ShallowEtagHeaderFilter> listingsETagFilter() {
+		ShallowEtagHeaderFilter filter = new ShallowEtagHeaderFilter();
+		filter.setWriteWeakETag(true);
+		FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(filter);
+		registration.addUrlPatterns("/products", "/manufacturers");
+		return registration;
+	}
 }
\ No newline at end of file
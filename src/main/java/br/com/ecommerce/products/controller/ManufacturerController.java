@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
@@ -42,8 +43,11 @@ public class ManufacturerController {
 		return ResponseEntity.ok(dto);
 	}
 	@GetMapping("/{id}")
-	public ResponseEntity<ManufacturerResponseDTO> getManufacturerById(@PathVariable Long id){
-		return ResponseEntity.ok(service.findManufacturerById(id));
+	public ResponseEntity<ManufacturerResponseDTO> getManufacturerById(@PathVariable Long id, WebRequest request){
+		String eTag = service.getManufacturerETag(id);
+		if (request.checkNotModified(eTag))
+			return null;
+		return ResponseEntity.ok().eTag(eTag).body(service.findManufacturerById(id));
 	}
 	
 	@PutMapping("/{id}")
@@ -1,36 +1,55 @@
 package br.com.ecommerce.products.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import br.com.ecommerce.products.cache.EncodedJson;
+import br.com.ecommerce.products.cache.ProductJsonCache;
 import br.com.ecommerce.products.model.product.Category;
-import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
 import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductFacetsDTO;
 import br.com.ecommerce.products.model.product.ProductIdAndUnitsDTO;
+import br.com.ecommerce.products.model.product.ProductImportResultDTO;
 import br.com.ecommerce.products.model.product.ProductPriceDTO;
 import br.com.ecommerce.products.model.product.ProductResponseDTO;
 import br.com.ecommerce.products.model.product.ProductUpdateDTO;
 import br.com.ecommerce.products.model.product.ProductUpdateResponseDTO;
 import br.com.ecommerce.products.model.product.StockDTO;
 import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.reservation.StockReservation;
+import br.com.ecommerce.products.service.ConflictRetry;
+import br.com.ecommerce.products.service.ProductExportService;
+import br.com.ecommerce.products.service.ProductFacetService;
+import br.com.ecommerce.products.service.ProductImportService;
 import br.com.ecommerce.products.service.ProductService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.transaction.Transactional;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
@@ -41,11 +60,38 @@ public class ProductController {
 
 	@Autowired
 	private ProductService service;
+	@Autowired
+	private ProductImportService importService;
+	@Autowired
+	private ProductExportService exportService;
+	@Autowired
+	private ProductFacetService facetService;
+	@Autowired
+	private ConflictRetry retry;
+	@Autowired
+	private ProductJsonCache jsonCache;
 	
 	
 	@GetMapping("/{productId}")
-	public ResponseEntity<ProductResponseDTO> getProduct(@PathVariable Long productId){
-		return ResponseEntity.ok(service.getProduct(productId));
+	public ResponseEntity<byte[]> getProduct(
+		@PathVariable Long productId,
+		@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+		@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+		WebRequest request,
+		HttpServletResponse response
+		){
+		boolean gzip = jsonCache.isGzip() && acceptsGzip(acceptEncoding);
+		// the versions are only read to answer a conditional request, otherwise the cached body is tagged with its own
+		String eTag = null;
+		if (ifNoneMatch != null) {
+			eTag = service.getProductETag(productId);
+			if (request.checkNotModified(productETag(eTag, gzip)))
+				return null; // 304, the product is not read
+		}
+		EncodedJson json = jsonCache.product(productId, eTag, () -> service.getProduct(productId));
+		// replaces the tag checkNotModified set: the body was built from versions that can be older than the ones just read
+		response.setHeader(HttpHeaders.ETAG, productETag(json.version().eTag(), gzip));
+		return this.encoded(json, gzip).body(gzip ? json.body() : json.json());
 	}
 	
 	@GetMapping
@@ -55,14 +101,59 @@ public class ProductController {
 		@RequestParam(required = false) Category category,
 		@RequestParam(required = false) BigDecimal minPrice,
 		@RequestParam(required = false) BigDecimal maxPrice,
-		@RequestParam(required = false) String manufacturer
+		@RequestParam(required = false) String manufacturer,
+		@RequestParam(required = false) String after,
+		@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
 		){
 		
+		if (after != null) {
+			return ResponseEntity.ok(service.scrollProductsWithParams(
+				after, pageable.getPageSize(), pageable.getSort(), name, category, minPrice, maxPrice, manufacturer));
+		}
+		boolean otherFilters = name != null || minPrice != null || maxPrice != null || manufacturer != null;
+		if (ProductJsonCache.isCachedPage(pageable, category, otherFilters)) {
+			EncodedJson json = jsonCache.page(category, pageable, () -> service
+				.getAllProductWithParams(pageable, null, category, null, null, null));
+			boolean gzip = jsonCache.isGzip() && acceptsGzip(acceptEncoding);
+			return this.encoded(json, gzip).body(gzip ? json.body() : json.json());
+		}
 		return ResponseEntity.ok(service
 			.getAllProductWithParams(pageable, name, category, minPrice, maxPrice, manufacturer));
 	}
 	
 	
+	@GetMapping("/facets")
+	public ResponseEntity<ProductFacetsDTO> getFacets(
+		@RequestParam(required = false) String name,
+		@RequestParam(required = false) Category category,
+		@RequestParam(required = false) BigDecimal minPrice,
+		@RequestParam(required = false) BigDecimal maxPrice,
+		@RequestParam(required = false) String manufacturer
+		){
+		return ResponseEntity.ok(facetService.getFacets(name, category, minPrice, maxPrice, manufacturer));
+	}
+	
+	@GetMapping("/prices/histogram")
+	public ResponseEntity<List<PriceFacetDTO>> getPriceHistogram(
+		@RequestParam(required = false) Category category,
+		@RequestParam(required = false) BigDecimal minPrice,
+		@RequestParam(required = false) BigDecimal maxPrice,
+		@RequestParam(defaultValue = "10") int buckets
+		){
+		return ResponseEntity.ok(facetService.getPriceHistogram(category, minPrice, maxPrice, buckets));
+	}
+	
+	@GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportProducts(
+		@RequestParam(required = false) Category category,
+		@RequestParam(required = false) String manufacturer
+		){
+		return ResponseEntity.ok()
+			.contentType(MediaType.APPLICATION_NDJSON)
+			.body(out -> exportService.exportProducts(category, manufacturer, out));
+	}
+	
+	
 	@PostMapping
 	@Transactional
 	public ResponseEntity<ProductResponseDTO> createProduct(@RequestBody @Valid ProductDTO dto, UriComponentsBuilder uriBuilder) {
@@ -71,49 +162,100 @@ public class ProductController {
 		return ResponseEntity.created(uri).body(responseBody);
 	}
 	
+	// not transactional: every chunk of the import commits on its own
+	@PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<ProductImportResultDTO> importProducts(InputStream ndjson) throws IOException {
+		return ResponseEntity.ok(importService.importProducts(ndjson));
+	}
+	
 	@PostMapping("/stocks")
 	public ResponseEntity<List<StockResponseDTO>> verifyStocks(
 		@RequestBody @Valid @NotEmpty List<ProductIdAndUnitsDTO> dto
 		) {
-		List<Product> outOfStock = service.verifyProductsStocks(dto);
+		List<StockResponseDTO> outOfStock = service.verifyProductsStocks(dto);
 		
-		List<StockResponseDTO> responseBody = null;
 		if(outOfStock.isEmpty()) {
-			return ResponseEntity.ok(responseBody);
+			return ResponseEntity.ok(null);
 		}
-		
-		responseBody = outOfStock.stream()
-			.map(StockResponseDTO::new)
-			.toList();
-		
-		return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(responseBody);
+		return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(outOfStock);
+	}
+	
+	@PostMapping("/reservations")
+	public ResponseEntity<StockReservation> reserveStocks(
+		@RequestBody @Valid @NotEmpty List<ProductIdAndUnitsDTO> dto,
+		UriComponentsBuilder uriBuilder
+		) {
+		StockReservation reservation = service.reserveStocks(dto);
+		var uri = uriBuilder.path("/products/reservations/{reservationId}").buildAndExpand(reservation.id()).toUri();
+		return ResponseEntity.created(uri).body(reservation);
+	}
+	
+	@PostMapping("/reservations/{reservationId}/confirm")
+	@Transactional
+	public ResponseEntity<List<StockResponseDTO>> confirmReservation(@PathVariable UUID reservationId) {
+		return ResponseEntity.ok(service.confirmReservation(reservationId));
+	}
+	
+	@DeleteMapping("/reservations/{reservationId}")
+	public ResponseEntity<Void> releaseReservation(@PathVariable UUID reservationId) {
+		service.releaseReservation(reservationId);
+		return ResponseEntity.noContent().build();
 	}
 
 	@PostMapping("/specs")
 	public ResponseEntity<Page<ProductResponseDTO>> readAllBySpecs(
 			@PageableDefault(size = 10) Pageable pageable,
+			@RequestParam(required = false) Category category,
 			@RequestBody @Valid @NotEmpty List<Map<String, String>> map
 			) {
-		return ResponseEntity.ok(service.getAllBySpecs(pageable, map));
+		return ResponseEntity.ok(service.getAllBySpecs(pageable, map, category));
 	}
 	
 	@PostMapping("/prices")
 	public ResponseEntity<List<ProductPriceDTO>> getPrices(@RequestBody @Valid @NotEmpty List<Long> productsIds){
-		return ResponseEntity.ok(service.getAllProductsByListOfIds(productsIds).stream()
-			.map(p -> new ProductPriceDTO(p.getId(), p.getPrice()))
-			.toList());
+		List<ProductPriceDTO> prices = service.getPrices(productsIds);
+		
+		if (prices.stream().anyMatch(p -> p.getPrice() == null)) {
+			return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(prices);
+		}
+		return ResponseEntity.ok(prices);
 	}
 	
 	
+	// not retried: the edit was made to the product the client read, a conflict is answered with 409
 	@PutMapping("/{productId}")
 	@Transactional
-	public ResponseEntity<ProductUpdateResponseDTO> updateProduct(@PathVariable Long productId, @RequestBody ProductUpdateDTO dto) {
-		return ResponseEntity.ok().body(service.updateProductData(productId, dto));
+	public ResponseEntity<ProductUpdateResponseDTO> updateProduct(
+		@PathVariable Long productId,
+		@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+		@RequestBody ProductUpdateDTO dto
+		) {
+		return ResponseEntity.ok().body(service.updateProductData(productId, dto, ifMatch));
 	}
 	
+	// not transactional: run in its own transaction, again when it conflicts with a concurrent update
 	@PutMapping("/{productId}/stocks")
-	@Transactional
 	public ResponseEntity<StockResponseDTO> updateStock(@PathVariable Long productId, @RequestBody @Valid StockDTO dto) {
-		return ResponseEntity.ok().body(service.updateStockByProductId(productId, dto));
+		return ResponseEntity.ok().body(retry.inTransaction("update-stock", () -> service.updateStockByProductId(productId, dto)));
+	}
+	
+	
+	/** Headers of a cached body, written as it is when the client accepts how it is compressed. */
+	private ResponseEntity.BodyBuilder encoded(EncodedJson json, boolean gzip) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON);
+		if (json.gzipped())
+			response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+		if (gzip)
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		return response;
+	}
+	
+	private static String productETag(String eTag, boolean gzip) {
+		// the compressed bytes are not the representation a strong tag is given to
+		return (gzip ? "W/\"" : "\"") + eTag + "\"";
+	}
+	
+	private static boolean acceptsGzip(String acceptEncoding) {
+		return acceptEncoding != null && acceptEncoding.contains("gzip");
 	}
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package br.com.ecommerce.products.datasource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.NonNull;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chooses the pool each connection is taken from: one of the replicas for a
+ * read-only transaction, the primary for anything else.
+ * <p>
+ * A replica takes reads only while the lag last measured on it is within
+ * {@code maxLag}; until it has been measured, or when it cannot be, its reads go
+ * to the primary. Once a request has run a read-write transaction, its later
+ * read-only ones go to the primary too, so it reads what it wrote. Threads
+ * outside a request, such as the queue consumers, get no such guarantee.
+ * <p>
+ * The connection is chosen when the first statement runs, not when the
+ * transaction begins, because Spring marks a transaction read-only only after
+ * beginning it.
+ */
+@Slf4j
+public class ReplicaRouting implements MeterBinder, Closeable {
+
+	private static final String WROTE = ReplicaRouting.class.getName() + ".WROTE";
+	private static final List<String> LAG_COLUMNS = List.of("Seconds_Behind_Source", "Seconds_Behind_Master");
+
+	private final DataSource primary;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final String lagQuery;
+	private final Duration maxLag;
+	private final Duration checkInterval;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "replica-lag-check");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final AtomicInteger next = new AtomicInteger();
+	private final LongAdder primaryConnections = new LongAdder();
+
+	public ReplicaRouting(DataSource primary, Map<String, DataSource> replicas, String lagQuery, Duration maxLag, Duration checkInterval) {
+		this.primary = primary;
+		replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+		this.lagQuery = lagQuery;
+		this.maxLag = maxLag;
+		this.checkInterval = checkInterval;
+	}
+
+
+	/** Measures the lag of the replicas now and then every {@code checkInterval}. */
+	public void start() {
+		scheduler.scheduleWithFixedDelay(this::checkLag, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/** The data source the application uses, choosing the pool of each connection lazily. */
+	public DataSource dataSource() {
+		return new LazyConnectionDataSourceProxy(new RoutingDataSource());
+	}
+
+	/** Time after which a replica in sync has caught up with what was committed before. */
+	public Duration catchUpTime() {
+		return maxLag.plus(checkInterval);
+	}
+
+	public void checkLag() {
+		replicas.forEach(replica -> replica.lag = this.measureLag(replica));
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		FunctionCounter.builder("products.datasource.connections", primaryConnections, LongAdder::sum)
+			.description("Connections taken from each pool")
+			.tag("pool", "primary")
+			.register(registry);
+		for (Replica replica : replicas) {
+			FunctionCounter.builder("products.datasource.connections", replica.connections, LongAdder::sum)
+				.description("Connections taken from each pool")
+				.tag("pool", replica.name)
+				.register(registry);
+			Gauge.builder("products.datasource.replica.lag", replica, r -> r.lag == null ? Double.NaN : r.lag.toMillis() / 1000.0)
+				.description("Lag last measured on the replica, NaN when it could not be")
+				.tag("pool", replica.name)
+				.baseUnit("seconds")
+				.register(registry);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		scheduler.shutdownNow();
+		for (DataSource dataSource : this.dataSources()) {
+			if (dataSource instanceof Closeable closeable)
+				closeable.close();
+		}
+	}
+
+	private List<DataSource> dataSources() {
+		List<DataSource> dataSources = new ArrayList<>();
+		dataSources.add(primary);
+		replicas.forEach(replica -> dataSources.add(replica.dataSource));
+		return dataSources;
+	}
+
+	private DataSource route() {
+		RequestAttributes request = RequestContextHolder.getRequestAttributes();
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (request != null && TransactionSynchronizationManager.isActualTransactionActive())
+				request.setAttribute(WROTE, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+			return this.primary();
+		}
+		if (request != null && request.getAttribute(WROTE, RequestAttributes.SCOPE_REQUEST) != null)
+			return this.primary();
+
+		int first = Math.floorMod(next.getAndIncrement(), Math.max(replicas.size(), 1));
+		for (int i = 0; i < replicas.size(); i++) {
+			Replica replica = replicas.get((first + i) % replicas.size());
+			if (replica.inSync()) {
+				replica.connections.increment();
+				return replica.dataSource;
+			}
+		}
+		return this.primary();
+	}
+
+	private DataSource primary() {
+		primaryConnections.increment();
+		return primary;
+	}
+
+	private Duration measureLag(Replica replica) {
+		try (Connection connection = replica.dataSource.getConnection();
+				Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery(lagQuery)) {
+			if (!result.next())
+				return null; // not replicating
+			Object seconds = result.getObject(this.lagColumn(result.getMetaData()));
+			return seconds == null ? null : Duration.ofMillis(Math.round(((Number) seconds).doubleValue() * 1000));
+		} catch (SQLException | ClassCastException e) {
+			log.warn("Could not measure the lag of replica {}, its reads go to the primary: {}", replica.name, e.getMessage());
+			return null;
+		}
+	}
+
+	// the lag column of SHOW REPLICA STATUS (or SLAVE STATUS), else the first one of the query
+	private int lagColumn(ResultSetMetaData metadata) throws SQLException {
+		for (int column = 1; column <= metadata.getColumnCount(); column++) {
+			String label = metadata.getColumnLabel(column);
+			if (LAG_COLUMNS.stream().anyMatch(label::equalsIgnoreCase))
+				return column;
+		}
+		return 1;
+	}
+
+
+	private class Replica {
+
+		private final String name;
+		private final DataSource dataSource;
+		private final LongAdder connections = new LongAdder();
+		private volatile Duration lag;
+
+		Replica(String name, DataSource dataSource) {
+			this.name = name;
+			this.dataSource = dataSource;
+		}
+
+		boolean inSync() {
+			Duration lag = this.lag;
+			return lag != null && lag.compareTo(maxLag) <= 0;
+		}
+	}
+
+	private class RoutingDataSource extends AbstractDataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return route().getConnection();
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return route().getConnection(username, password);
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package br.com.ecommerce.products.datasource;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replaces the data source with one routing read-only transactions to the pools
+ * of {@code products.datasource.replica.urls}; without replicas the data source
+ * is left to Spring Boot. Every pool takes the {@code spring.datasource.hikari}
+ * settings, and the replicas the primary's credentials unless they have their own.
+ */
+@Configuration
+@ConditionalOnExpression("!'${products.datasource.replica.urls:}'.isBlank()")
+public class ReplicaRoutingConfig {
+
+	@Bean(initMethod = "start")
+	ReplicaRouting replicaRouting(
+			DataSourceProperties properties,
+			Environment environment,
+			MeterRegistry registry,
+			@Value("${products.datasource.replica.urls}") List<String> urls,
+			@Value("${products.datasource.replica.username:}") String username,
+			@Value("${products.datasource.replica.password:}") String password,
+			@Value("${products.datasource.replica.lag-query:SHOW REPLICA STATUS}") String lagQuery,
+			@Value("${products.datasource.replica.max-lag:5s}") Duration maxLag,
+			@Value("${products.datasource.replica.lag-check-interval:1s}") Duration checkInterval) {
+
+		HikariDataSource primary = this.pool(properties, environment, registry, "primary", properties.determineUrl(),
+			properties.determineUsername(), properties.determinePassword());
+
+		Map<String, DataSource> replicas = new LinkedHashMap<>();
+		for (String url : urls) {
+			String name = "replica-" + (replicas.size() + 1);
+			HikariDataSource replica = this.pool(properties, environment, registry, name, url.trim(),
+				StringUtils.hasText(username) ? username : properties.determineUsername(),
+				StringUtils.hasText(username) ? password : properties.determinePassword());
+			replica.setReadOnly(true);
+			replicas.put(name, replica);
+		}
+		return new ReplicaRouting(primary, replicas, lagQuery, maxLag, checkInterval);
+	}
+
+	@Bean
+	DataSource dataSource(ReplicaRouting routing) {
+		return routing.dataSource();
+	}
+
+	private HikariDataSource pool(DataSourceProperties properties, Environment environment, MeterRegistry registry,
+			String name, String url, String username, String password) {
+		HikariDataSource pool = properties.initializeDataSourceBuilder()
+			.type(HikariDataSource.class)
+			.url(url)
+			.username(username)
+			.password(password)
+			.build();
+		Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+		pool.setPoolName("products-" + name);
+		// Spring Boot only publishes the pools it finds as beans
+		pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+		return pool;
+	}
+}
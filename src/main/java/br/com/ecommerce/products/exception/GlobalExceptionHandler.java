@@ -2,6 +2,7 @@ package br.com.ecommerce.products.exception;
 
 import java.util.stream.Collectors;
 
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -12,13 +13,17 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.method.annotation.HandlerMethodValidationException;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import br.com.ecommerce.products.reservation.InsufficientStockException;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 	
 	private final String INPUT_VALIDATION_ERROR = "Input validation error";
 	private final String INTERNAL_SERVER_ERROR_MESSAGE = "Internal server error";
+	private final String CONCURRENT_UPDATE_MESSAGE = "The product was updated concurrently, try again";
     
 
 	@ExceptionHandler(NoResourceFoundException.class)
@@ -31,6 +36,15 @@ public class GlobalExceptionHandler {
 		return ResponseEntity.notFound().build();
 	}
 
+	@ExceptionHandler(InsufficientStockException.class)
+	public ResponseEntity<ErrorMessage> handlerError409(InsufficientStockException ex) {
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorMessage(HttpStatus.CONFLICT.value(), ex.getShortages()));
+	}
+	@ExceptionHandler({ConcurrencyFailureException.class, OptimisticLockException.class, PessimisticLockException.class})
+	public ResponseEntity<ErrorMessage> handlerError409(RuntimeException ex) {
+		return ResponseEntity.status(HttpStatus.CONFLICT).body(new ErrorMessage(HttpStatus.CONFLICT.value(), CONCURRENT_UPDATE_MESSAGE));
+	}
+
 	@ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorMessageWithFields> handleError400(MethodArgumentNotValidException ex) {
     	var fields = ex.getFieldErrors().stream().collect(Collectors.toMap(f -> f.getField().toString(), f -> f.getDefaultMessage()));
@@ -0,0 +1,126 @@
+package br.com.ecommerce.products.index;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import br.com.ecommerce.products.model.product.Product;
+
+/**
+ * Locking and rebuild plumbing shared by the indexes.
+ * <p>
+ * The index state {@code S} is not thread safe: it is written under the write lock
+ * and read under the read lock. A rebuild loads a fresh state without holding the
+ * lock, then replays the updates applied meanwhile before swapping it in.
+ *
+ * @param <S> the index state
+ * @param <V> what the index keeps of each product
+ */
+abstract class AbstractProductIndex<S, V> implements ProductIndex {
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private S state = this.emptyState();
+	private List<Map.Entry<Long, V>> pending;
+	private volatile boolean ready;
+
+
+	/** A state with no products; must not depend on the fields of the subclass. */
+	protected abstract S emptyState();
+
+	/** Reads every product from the database into a new state. */
+	protected abstract S load();
+
+	/** What the index keeps of the product. */
+	protected abstract V valueOf(Product product);
+
+	/** Indexes the value of the product, or removes the product when it is null, returning the previous value. */
+	protected abstract V put(S state, Long id, V value);
+
+
+	// one at a time, the updates applied meanwhile being kept for a single one
+	@Override
+	public synchronized void rebuild() {
+		this.write(current -> pending = new ArrayList<>());
+
+		S fresh;
+		try {
+			fresh = this.load();
+		} catch (RuntimeException e) {
+			this.write(current -> pending = null);
+			throw e;
+		}
+
+		this.write(current -> {
+			// updates applied while loading may or may not be in what was read
+			pending.forEach(change -> this.put(fresh, change.getKey(), change.getValue()));
+			pending = null;
+			state = fresh;
+			ready = true;
+			return null;
+		});
+	}
+
+	@Override
+	public void update(Long id, Product product) {
+		V value = product == null ? null : this.valueOf(product);
+		this.write(current -> {
+			if (pending != null)
+				pending.add(new AbstractMap.SimpleImmutableEntry<>(id, value));
+			return this.put(current, id, value);
+		});
+	}
+
+	/**
+	 * Replaces the value indexed for the product by what {@code change} makes of
+	 * it, leaving a product that is not indexed alone.
+	 */
+	protected void change(Long id, BiFunction<S, Long, V> current, UnaryOperator<V> change) {
+		this.write(state -> {
+			V previous = current.apply(state, id);
+			if (previous == null)
+				return null;
+			V value = change.apply(previous);
+			if (pending != null)
+				pending.add(new AbstractMap.SimpleImmutableEntry<>(id, value));
+			return this.put(state, id, value);
+		});
+	}
+
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Returns once the index was built, waiting for the build running or else
+	 * running it, so the reads arriving before the first build share one load.
+	 */
+	protected synchronized void awaitFirstBuild() {
+		if (!ready)
+			this.rebuild();
+	}
+
+	/** Runs the reader against the current state, which is empty until {@link #isReady()}. */
+	protected <R> R read(Function<S, R> reader) {
+		lock.readLock().lock();
+		try {
+			return reader.apply(state);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private <R> R write(Function<S, R> writer) {
+		lock.writeLock().lock();
+		try {
+			return writer.apply(state);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package br.com.ecommerce.products.index;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA callbacks of {@code Product} and {@code ProductSpec}. Hibernate creates
+ * its own instance of an entity listener, so this one only hands the entity to
+ * the {@link ProductIndexListener} bean, which holds the state shared with the
+ * stock writes and the resync.
+ */
+public class ProductEntityListener {
+
+	@Autowired
+	private ObjectProvider<ProductIndexListener> indexListener;
+
+
+	@PostPersist
+	@PostUpdate
+	public void onSave(Object entity) {
+		indexListener.getObject().onSave(entity);
+	}
+
+	@PostRemove
+	public void onRemove(Object entity) {
+		indexListener.getObject().onRemove(entity);
+	}
+}
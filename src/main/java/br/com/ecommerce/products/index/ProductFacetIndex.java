@@ -0,0 +1,243 @@
+package br.com.ecommerce.products.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductFacetEntryDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Number of products in stock per category, manufacturer and price bucket, the
+ * facets shown next to the filters of the product search.
+ * <p>
+ * The products in stock are kept in a bitmap per category, manufacturer, price
+ * bucket and price, updated as products are saved and as their stock reaches or
+ * leaves zero, so the facets of the whole catalog are their sizes. Facets of a
+ * filtered search intersect the bitmaps of the values filtered on, each facet
+ * ignoring its own filter so the other values stay selectable. The buckets are
+ * bounded by {@code products.facets.price-buckets}, in ascending order. The
+ * searches arriving before the first build wait for it.
+ */
+@Component
+public class ProductFacetIndex extends AbstractProductIndex<ProductFacetIndex.Counts, ProductFacetIndex.Facet> implements MeterBinder {
+
+	private static final int LOAD_CHUNK = 10_000;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Value("${products.facets.price-buckets:100,500,1000,2000,5000}")
+	private BigDecimal[] priceBuckets;
+
+
+	public FacetCounts count(FacetFilter filter) {
+		if (!this.isReady())
+			this.awaitFirstBuild();
+		return this.read(counts -> this.count(counts, filter));
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("products.index.facets.products", this, index -> index.read(c -> c.products.size()))
+			.description("Products indexed")
+			.register(registry);
+		Gauge.builder("products.index.facets.in-stock", this, index -> index.read(c -> c.inStock))
+			.description("Products in stock, counted in the facets")
+			.register(registry);
+	}
+
+	@Override
+	protected Counts emptyState() {
+		return new Counts();
+	}
+
+	@Override
+	protected Counts load() {
+		Counts counts = new Counts();
+		long after = 0;
+		List<ProductFacetEntryDTO> chunk;
+		do {
+			chunk = productRepository.findFacetEntriesAfter(after, Limit.of(LOAD_CHUNK));
+			chunk.forEach(p -> counts.put(p.getProductId(), this.facet(p.getCategory(), p.getManufacturerId(), p.getPrice(), p.getUnit())));
+			if (!chunk.isEmpty())
+				after = chunk.get(chunk.size() - 1).getProductId();
+		} while (chunk.size() == LOAD_CHUNK);
+		return counts;
+	}
+
+	@Override
+	protected Facet valueOf(Product product) {
+		return this.facet(product.getCategory(), product.getManufacturer().getId(), product.getPrice(), product.getStock().getUnit());
+	}
+
+	@Override
+	protected Facet put(Counts counts, Long id, Facet facet) {
+		return counts.put(id, facet);
+	}
+
+	@Override
+	public void stockChanged(Long id, int units) {
+		this.change(id, (counts, productId) -> counts.products.get(productId), facet -> facet.withStock(units > 0));
+	}
+
+	private Facet facet(Category category, Long manufacturerId, BigDecimal price, int units) {
+		// the number of bounds not above the price
+		int bucket = Arrays.binarySearch(priceBuckets, price, BigDecimal::compareTo);
+		bucket = bucket >= 0 ? bucket + 1 : -bucket - 1;
+		return new Facet(category, manufacturerId, price, bucket, units > 0);
+	}
+
+	private FacetCounts count(Counts counts, FacetFilter filter) {
+		// null where the search does not filter
+		Roaring64Bitmap names = filter.productIds() == null ? null
+			: Roaring64Bitmap.bitmapOf(filter.productIds().stream().mapToLong(Long::longValue).toArray());
+		Roaring64Bitmap category = filter.category() == null ? null
+			: counts.categories.getOrDefault(filter.category(), new Roaring64Bitmap());
+		Roaring64Bitmap manufacturer = filter.manufacturerId() == null ? null
+			: counts.manufacturers.getOrDefault(filter.manufacturerId(), new Roaring64Bitmap());
+		Roaring64Bitmap price = counts.priced(filter.minPrice(), filter.maxPrice());
+
+		return new FacetCounts(
+			counted(counts.categories, names, manufacturer, price),
+			counted(counts.manufacturers, names, category, price),
+			this.prices(counted(counts.buckets, names, category, manufacturer)));
+	}
+
+	/** The products of each value that match every filter, the null ones not filtering. */
+	private static <K> Map<K, Long> counted(Map<K, Roaring64Bitmap> values, Roaring64Bitmap... filters) {
+		List<Roaring64Bitmap> required = new ArrayList<>(Arrays.stream(filters).filter(Objects::nonNull).toList());
+		Roaring64Bitmap matching = null;
+		if (!required.isEmpty()) {
+			required.sort(Comparator.comparingLong(Roaring64Bitmap::getLongCardinality));
+			matching = required.get(0).clone();
+			for (int i = 1; i < required.size() && !matching.isEmpty(); i++) {
+				matching.and(required.get(i));
+			}
+		}
+
+		Map<K, Long> counts = new HashMap<>();
+		for (Map.Entry<K, Roaring64Bitmap> value : values.entrySet()) {
+			long count = matching == null
+				? value.getValue().getLongCardinality()
+				: andCardinality(value.getValue(), matching);
+			if (count > 0)
+				counts.put(value.getKey(), count);
+		}
+		return counts;
+	}
+
+	private static long andCardinality(Roaring64Bitmap left, Roaring64Bitmap right) {
+		boolean leftSmaller = left.getLongCardinality() <= right.getLongCardinality();
+		Roaring64Bitmap both = (leftSmaller ? left : right).clone();
+		both.and(leftSmaller ? right : left);
+		return both.getLongCardinality();
+	}
+
+	private List<PriceFacetDTO> prices(Map<Integer, Long> counts) {
+		List<PriceFacetDTO> prices = new ArrayList<>(priceBuckets.length + 1);
+		for (int bucket = 0; bucket <= priceBuckets.length; bucket++) {
+			prices.add(new PriceFacetDTO(
+				bucket == 0 ? null : priceBuckets[bucket - 1],
+				bucket == priceBuckets.length ? null : priceBuckets[bucket],
+				counts.getOrDefault(bucket, 0L)));
+		}
+		return prices;
+	}
+
+
+	/**
+	 * Filters of the product search; a null field does not filter. {@code productIds}
+	 * are the products matching the name, when one is searched.
+	 */
+	public record FacetFilter(
+			Collection<Long> productIds,
+			Category category,
+			BigDecimal minPrice,
+			BigDecimal maxPrice,
+			Long manufacturerId) {}
+
+	/** Products in stock per category, manufacturer id and price bucket. */
+	public record FacetCounts(Map<Category, Long> categories, Map<Long, Long> manufacturers, List<PriceFacetDTO> prices) {}
+
+	record Facet(Category category, Long manufacturerId, BigDecimal price, int bucket, boolean inStock) {
+
+		Facet withStock(boolean inStock) {
+			return inStock == this.inStock ? this : new Facet(category, manufacturerId, price, bucket, inStock);
+		}
+	}
+
+	/** The products in stock per value; a value with none has no bitmap. */
+	static class Counts {
+
+		private final Map<Long, Facet> products = new HashMap<>();
+		private final Map<Category, Roaring64Bitmap> categories = new EnumMap<>(Category.class);
+		private final Map<Long, Roaring64Bitmap> manufacturers = new HashMap<>();
+		private final Map<Integer, Roaring64Bitmap> buckets = new HashMap<>();
+		private final NavigableMap<BigDecimal, Roaring64Bitmap> prices = new TreeMap<>();
+		private long inStock;
+
+		Facet put(Long id, Facet facet) {
+			Facet previous = facet == null ? products.remove(id) : products.put(id, facet);
+			if (previous != null && previous.inStock()) {
+				inStock--;
+				remove(categories, previous.category(), id);
+				remove(manufacturers, previous.manufacturerId(), id);
+				remove(buckets, previous.bucket(), id);
+				remove(prices, previous.price(), id);
+			}
+			if (facet != null && facet.inStock()) {
+				inStock++;
+				categories.computeIfAbsent(facet.category(), c -> new Roaring64Bitmap()).addLong(id);
+				manufacturers.computeIfAbsent(facet.manufacturerId(), m -> new Roaring64Bitmap()).addLong(id);
+				buckets.computeIfAbsent(facet.bucket(), b -> new Roaring64Bitmap()).addLong(id);
+				prices.computeIfAbsent(facet.price(), p -> new Roaring64Bitmap()).addLong(id);
+			}
+			return previous;
+		}
+
+		/** The products priced within the bounds, or null when neither is given. */
+		Roaring64Bitmap priced(BigDecimal min, BigDecimal max) {
+			if (min == null && max == null)
+				return null;
+			NavigableMap<BigDecimal, Roaring64Bitmap> range = prices;
+			if (min != null)
+				range = range.tailMap(min, true);
+			if (max != null)
+				range = range.headMap(max, true);
+			Roaring64Bitmap ids = new Roaring64Bitmap();
+			range.values().forEach(ids::or);
+			return ids;
+		}
+
+		private static <K> void remove(Map<K, Roaring64Bitmap> bitmaps, K key, long id) {
+			Roaring64Bitmap ids = bitmaps.get(key);
+			ids.removeLong(id);
+			if (ids.isEmpty())
+				bitmaps.remove(key);
+		}
+	}
+}
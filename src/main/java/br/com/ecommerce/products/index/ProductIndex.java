@@ -0,0 +1,21 @@
+package br.com.ecommerce.products.index;
+
+import br.com.ecommerce.products.model.product.Product;
+
+/**
+ * In-process view of the catalog kept up to date by {@link ProductIndexListener}.
+ */
+public interface ProductIndex {
+
+	/**
+	 * Applies the committed state of the product to the index, or removes the
+	 * product when it is null.
+	 */
+	void update(Long id, Product product);
+
+	/** Applies the units a stock write left to the values that depend on them, if any. */
+	default void stockChanged(Long id, int units) {}
+
+	/** Reads every product from the database again, replacing the current state once done. */
+	void rebuild();
+}
@@ -0,0 +1,233 @@
+package br.com.ecommerce.products.index;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps the indexes in step with the products table.
+ * <p>
+ * Every flushed insert or update of a {@link Product}, or of one of its specs,
+ * only records the id of the product. Once the transaction commits, those
+ * products are read again, in a transaction of their own on the primary, and
+ * what was read is indexed; nothing is indexed if it rolls back. A stock write
+ * records the units it left instead, and only the values of the indexes that
+ * depend on the stock are changed from them, without a read.
+ * <p>
+ * Both are queued to a single thread, so the committing request or consumer
+ * does not wait for them and they are applied in the order they committed in.
+ * A product is never indexed from a read older than the one indexed before it,
+ * but two stock writes of a product completing at once may be applied in either
+ * order until the next resync.
+ * <p>
+ * Writes committed by other instances, and updates that failed, are only seen by
+ * the indexes on the next {@link #resync()}, every {@code products.index.resync-interval}.
+ */
+@Slf4j
+@Component
+public class ProductIndexListener {
+
+	private static final Object CHANGED_KEY = ProductIndexListener.class;
+	private static final Object STOCKS_KEY = ProductIndex.class;
+
+	@Autowired
+	private ObjectProvider<ProductIndex> indexes;
+	@Autowired
+	private ObjectProvider<ProductRepository> productRepository;
+	@Autowired
+	private ObjectProvider<PlatformTransactionManager> transactionManager;
+
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "product-index");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ReentrantLock lock = new ReentrantLock();
+	// products updated while a resync is loading, read again once it is done
+	private volatile Set<Long> changedDuringResync;
+
+
+	/** Called by {@link ProductEntityListener} once a product or spec was flushed. */
+	public void onSave(Object entity) {
+		if (entity instanceof ProductSpec spec)
+			this.changed(List.of(spec.getProduct().getId()));
+		else
+			this.changed(List.of(((Product) entity).getId()));
+	}
+
+	public void onRemove(Object entity) {
+		if (entity instanceof ProductSpec spec)
+			this.changed(List.of(spec.getProduct().getId()));
+	}
+
+	/** Called with the units a stock write left, once it has run. */
+	public void stockChanged(Collection<StockResponseDTO> stocks) {
+		Map<Long, Integer> units = this.bound(STOCKS_KEY, LinkedHashMap::new, this::restock);
+		stocks.forEach(stock -> units.put(stock.getProductId(), stock.getUnit()));
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+			this.queue(() -> this.restock(units));
+	}
+
+	/** Whether the current transaction has written products the indexes will only see once it commits. */
+	public boolean changedInTransaction() {
+		Set<?> changed = (Set<?>) TransactionSynchronizationManager.getResource(CHANGED_KEY);
+		return changed != null && !changed.isEmpty();
+	}
+
+	/** Waits for the updates queued so far to be applied. */
+	public void awaitQueued() {
+		try {
+			worker.submit(() -> {}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/** Rebuilds every index from the database, then reads again what was updated meanwhile. */
+	@EventListener(ApplicationReadyEvent.class)
+	@Scheduled(fixedDelayString = "${products.index.resync-interval:PT10M}", initialDelayString = "${products.index.resync-interval:PT10M}")
+	public synchronized void resync() {
+		changedDuringResync = ConcurrentHashMap.newKeySet();
+		try {
+			indexes.orderedStream().forEach(ProductIndex::rebuild);
+		} finally {
+			lock.lock();
+			try {
+				Set<Long> changed = changedDuringResync;
+				changedDuringResync = null;
+				if (!changed.isEmpty())
+					this.update(changed);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		worker.shutdownNow();
+	}
+
+	private void changed(Collection<Long> productIds) {
+		Set<Long> changed = this.bound(CHANGED_KEY, LinkedHashSet::new, this::reindex);
+		changed.addAll(productIds);
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+			this.queue(() -> this.reindex(changed));
+	}
+
+	/**
+	 * The collection bound to the current transaction under {@code key}, handed
+	 * to {@code apply} on the index thread once the transaction commits. Outside
+	 * a transaction it is a new one, which the caller applies itself.
+	 */
+	@SuppressWarnings("unchecked")
+	private <C> C bound(Object key, Supplier<C> collection, Consumer<C> apply) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+			return collection.get();
+
+		C bound = (C) TransactionSynchronizationManager.getResource(key);
+		if (bound == null) {
+			C created = collection.get();
+			TransactionSynchronizationManager.bindResource(key, created);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					queue(() -> apply.accept(created));
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(key);
+				}
+			});
+			bound = created;
+		}
+		return bound;
+	}
+
+	private void queue(Runnable update) {
+		try {
+			worker.execute(update);
+		} catch (RejectedExecutionException e) {
+			log.warn("Could not queue an index update while shutting down, it is applied on the next resync");
+		}
+	}
+
+	private void reindex(Collection<Long> productIds) {
+		lock.lock();
+		try {
+			this.update(productIds);
+			this.changedDuringResync(productIds);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void restock(Map<Long, Integer> units) {
+		lock.lock();
+		try {
+			indexes.orderedStream().forEach(index -> units.forEach(index::stockChanged));
+			this.changedDuringResync(units.keySet());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void changedDuringResync(Collection<Long> productIds) {
+		Set<Long> changed = changedDuringResync;
+		if (changed != null)
+			changed.addAll(productIds);
+	}
+
+	private void update(Collection<Long> productIds) {
+		try {
+			Map<Long, Product> products = this.read(productIds);
+			indexes.orderedStream().forEach(index ->
+				productIds.forEach(id -> index.update(id, products.get(id))));
+		} catch (RuntimeException e) {
+			log.warn("Could not index products {}, they are indexed again on the next resync", productIds, e);
+		}
+	}
+
+	// read-write so that it runs on the primary, which has what was just committed
+	private Map<Long, Product> read(Collection<Long> productIds) {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager.getObject());
+		transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return transaction.execute(status -> productRepository.getObject().findWithSpecsByIdIn(productIds).stream()
+			.collect(Collectors.toMap(Product::getId, Function.identity(), (product, same) -> product)));
+	}
+}
@@ -0,0 +1,232 @@
+package br.com.ecommerce.products.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductNameDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Trigram inverted index over the lower-cased product names, answering the
+ * {@code name} filter of the product search without a {@code LIKE '%...%'} scan.
+ * <p>
+ * Candidates are the intersection of the postings of every trigram of the query,
+ * checked against the indexed name, so the result is exact. Queries the index
+ * cannot answer (before the first build, shorter than a trigram, with LIKE
+ * wildcards or matching too many products) return an empty {@link Optional}
+ * and the caller falls back to the database.
+ */
+@Component
+public class ProductNameIndex extends AbstractProductIndex<ProductNameIndex.Grams, String> implements MeterBinder {
+
+	private static final int GRAM = 3;
+	private static final int LOAD_CHUNK = 10_000;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Value("${products.index.name.max-candidates:1000}")
+	private int maxCandidates;
+
+
+	/**
+	 * Ids, in ascending order, of the products whose name contains {@code name}
+	 * ignoring case, or empty when the database has to answer the query.
+	 */
+	public Optional<List<Long>> search(String name) {
+		if (!this.isReady() || name.length() < GRAM || name.indexOf('%') >= 0 || name.indexOf('_') >= 0)
+			return Optional.empty();
+
+		String query = normalize(name);
+		return Optional.ofNullable(this.read(grams -> grams.search(query, maxCandidates)));
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		this.gauge(registry, "products.index.name.products", "Products indexed", g -> g.names.size());
+		this.gauge(registry, "products.index.name.grams", "Distinct trigrams", g -> g.postings.size());
+		this.gauge(registry, "products.index.name.postings", "Trigram postings", g -> g.entries);
+		Gauge.builder("products.index.name.memory", this, index -> index.read(Grams::estimatedBytes))
+			.description("Estimated heap used by the name index")
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	@Override
+	protected Grams emptyState() {
+		return new Grams();
+	}
+
+	@Override
+	protected Grams load() {
+		Grams grams = new Grams();
+		long after = 0;
+		List<ProductNameDTO> chunk;
+		do {
+			chunk = productRepository.findNamesAfter(after, Limit.of(LOAD_CHUNK));
+			chunk.forEach(p -> grams.put(p.getId(), p.getName()));
+			if (!chunk.isEmpty())
+				after = chunk.get(chunk.size() - 1).getId();
+		} while (chunk.size() == LOAD_CHUNK);
+		return grams;
+	}
+
+	@Override
+	protected String valueOf(Product product) {
+		return product.getName();
+	}
+
+	@Override
+	protected String put(Grams grams, Long id, String name) {
+		return grams.put(id, name);
+	}
+
+	private void gauge(MeterRegistry registry, String name, String description, ToDoubleFunction<Grams> metric) {
+		Gauge.builder(name, this, index -> index.read(metric::applyAsDouble))
+			.description(description)
+			.register(registry);
+	}
+
+	private static String normalize(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	private static long gram(String text, int at) {
+		return (long) text.charAt(at) << 32 | (long) text.charAt(at + 1) << 16 | text.charAt(at + 2);
+	}
+
+	private static long[] distinctGrams(String text) {
+		return IntStream.rangeClosed(0, text.length() - GRAM)
+			.mapToLong(at -> gram(text, at))
+			.distinct()
+			.toArray();
+	}
+
+
+	static class Grams {
+
+		private final Map<Long, Postings> postings = new HashMap<>();
+		private final Map<Long, String> names = new HashMap<>();
+		private long entries;
+		private long nameChars;
+
+		/** Indexes the name of the product, or removes the product when it is null, returning the previous name. */
+		String put(Long id, String name) {
+			String normalized = name == null ? null : normalize(name);
+			String previous = normalized == null ? names.remove(id) : names.put(id, normalized);
+			if (normalized != null && normalized.equals(previous))
+				return previous;
+
+			if (previous != null) {
+				nameChars -= previous.length();
+				for (long gram : distinctGrams(previous)) {
+					Postings list = postings.get(gram);
+					if (list.remove(id)) entries--;
+					if (list.size == 0) postings.remove(gram);
+				}
+			}
+			if (normalized != null) {
+				nameChars += normalized.length();
+				for (long gram : distinctGrams(normalized)) {
+					if (postings.computeIfAbsent(gram, g -> new Postings()).add(id)) entries++;
+				}
+			}
+			return previous;
+		}
+
+		/** @return the matching ids, or null when there are more than {@code limit} */
+		List<Long> search(String query, int limit) {
+			List<Postings> lists = new ArrayList<>();
+			for (long gram : distinctGrams(query)) {
+				Postings list = postings.get(gram);
+				if (list == null)
+					return List.of();
+				lists.add(list);
+			}
+			lists.sort(Comparator.comparingInt(list -> list.size));
+
+			List<Long> result = new ArrayList<>();
+			Postings smallest = lists.get(0);
+			candidates:
+			for (int i = 0; i < smallest.size; i++) {
+				long id = smallest.ids[i];
+				for (int j = 1; j < lists.size(); j++) {
+					if (!lists.get(j).contains(id))
+						continue candidates;
+				}
+				if (names.get(id).contains(query)) {
+					if (result.size() == limit)
+						return null;
+					result.add(id);
+				}
+			}
+			return result;
+		}
+
+		/** Rough figure: map nodes, boxed keys and the arrays and strings they point to. */
+		double estimatedBytes() {
+			long postingArrays = postings.values().stream().mapToLong(list -> 16 + 8L * list.ids.length).sum();
+			return postings.size() * (32 + 16 + 24) + postingArrays
+				+ names.size() * (32 + 16 + 24 + 16) + nameChars;
+		}
+	}
+
+	/** Ascending, duplicate free list of product ids. */
+	static class Postings {
+
+		private long[] ids = new long[4];
+		private int size;
+
+		boolean add(long id) {
+			// ids are mostly generated in ascending order
+			if (size > 0 && ids[size - 1] >= id) {
+				int at = Arrays.binarySearch(ids, 0, size, id);
+				if (at >= 0)
+					return false;
+				this.insert(-at - 1, id);
+				return true;
+			}
+			this.insert(size, id);
+			return true;
+		}
+
+		boolean remove(long id) {
+			int at = Arrays.binarySearch(ids, 0, size, id);
+			if (at < 0)
+				return false;
+			System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+			size--;
+			return true;
+		}
+
+		boolean contains(long id) {
+			return Arrays.binarySearch(ids, 0, size, id) >= 0;
+		}
+
+		private void insert(int at, long id) {
+			if (size == ids.length)
+				ids = Arrays.copyOf(ids, size + (size >> 1));
+			System.arraycopy(ids, at, ids, at + 1, size - at);
+			ids[at] = id;
+			size++;
+		}
+	}
+}
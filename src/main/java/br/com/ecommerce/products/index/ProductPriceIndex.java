@@ -0,0 +1,301 @@
+package br.com.ecommerce.products.index;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductPriceEntryDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Prices of the products of each category, in minor units (the two decimals of
+ * the price column), kept in ascending order in a primitive array next to the
+ * array of their ids. A price range is found with two binary searches, and a
+ * histogram with two per bucket.
+ * <p>
+ * Range searches matching more than {@code products.index.price.max-candidates}
+ * products, and those before the first build, are left to the database.
+ */
+@Component
+public class ProductPriceIndex extends AbstractProductIndex<ProductPriceIndex.Prices, ProductPriceIndex.Price> implements MeterBinder {
+
+	private static final int SCALE = 2;
+	// far above any price, and far enough from overflow to subtract two of them
+	private static final long MAX_MINOR_UNITS = Long.MAX_VALUE / 4;
+	private static final int LOAD_CHUNK = 10_000;
+	private static final int MAX_BUCKETS = 100;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Value("${products.index.price.max-candidates:1000}")
+	private int maxCandidates;
+
+
+	/**
+	 * Ids, in ascending order, of the products of the category, or of any category
+	 * when null, priced between {@code minPrice} and {@code maxPrice} inclusive;
+	 * empty when the database has to answer the query.
+	 */
+	public Optional<List<Long>> search(Category category, BigDecimal minPrice, BigDecimal maxPrice) {
+		if (!this.isReady() || (minPrice == null && maxPrice == null))
+			return Optional.empty();
+
+		long from = minorUnits(minPrice, RoundingMode.CEILING, 0);
+		long to = minorUnits(maxPrice, RoundingMode.FLOOR, MAX_MINOR_UNITS);
+		long[] ids = this.read(prices -> prices.search(prices.of(category), from, to, maxCandidates));
+		if (ids == null)
+			return Optional.empty();
+		Arrays.sort(ids);
+		return Optional.of(LongStream.of(ids).boxed().toList());
+	}
+
+	/**
+	 * Number of products of the category, or of any category when null, in each of
+	 * {@code buckets} equal price ranges between {@code minPrice} and {@code maxPrice},
+	 * which default to the lowest and highest prices indexed.
+	 */
+	public List<PriceFacetDTO> histogram(Category category, BigDecimal minPrice, BigDecimal maxPrice, int buckets) {
+		if (buckets < 1 || buckets > MAX_BUCKETS)
+			throw new IllegalArgumentException("The number of buckets must be between 1 and " + MAX_BUCKETS);
+		if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0)
+			throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+
+		if (!this.isReady())
+			return this.load().histogram(category, minPrice, maxPrice, buckets);
+		return this.read(prices -> prices.histogram(category, minPrice, maxPrice, buckets));
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("products.index.prices.products", this, index -> index.read(p -> p.products.size()))
+			.description("Products indexed")
+			.register(registry);
+		Gauge.builder("products.index.prices.memory", this, index -> index.read(Prices::arrayBytes))
+			.description("Size of the sorted price and id arrays")
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	@Override
+	protected Prices emptyState() {
+		return new Prices();
+	}
+
+	/** Reads the products in price order, so each category is built by appending. */
+	@Override
+	protected Prices load() {
+		Prices prices = new Prices();
+		BigDecimal afterPrice = BigDecimal.ZERO;
+		long afterId = 0;
+		List<ProductPriceEntryDTO> chunk;
+		do {
+			chunk = productRepository.findPriceEntriesAfter(afterPrice, afterId, Limit.of(LOAD_CHUNK));
+			chunk.forEach(p -> prices.append(p.getProductId(), new Price(p.getCategory(), minorUnits(p.getPrice()))));
+			if (!chunk.isEmpty()) {
+				ProductPriceEntryDTO last = chunk.get(chunk.size() - 1);
+				afterPrice = last.getPrice();
+				afterId = last.getProductId();
+			}
+		} while (chunk.size() == LOAD_CHUNK);
+		return prices;
+	}
+
+	@Override
+	protected Price valueOf(Product product) {
+		return new Price(product.getCategory(), minorUnits(product.getPrice()));
+	}
+
+	@Override
+	protected Price put(Prices prices, Long id, Price price) {
+		return prices.put(id, price);
+	}
+
+	private static long minorUnits(BigDecimal price) {
+		return price.movePointRight(SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+	}
+
+	private static long minorUnits(BigDecimal price, RoundingMode rounding, long absent) {
+		if (price == null)
+			return absent;
+		BigDecimal units = price.movePointRight(SCALE).setScale(0, rounding);
+		if (units.signum() < 0)
+			return 0;
+		return units.compareTo(BigDecimal.valueOf(MAX_MINOR_UNITS)) > 0 ? MAX_MINOR_UNITS : units.longValue();
+	}
+
+	private static BigDecimal price(long minorUnits) {
+		return BigDecimal.valueOf(minorUnits, SCALE);
+	}
+
+
+	record Price(Category category, long minorUnits) {}
+
+	static class Prices {
+
+		private final Map<Category, SortedPrices> categories = new EnumMap<>(Category.class);
+		// only read to find what an update replaces
+		private final Map<Long, Price> products = new HashMap<>();
+
+		Price put(Long id, Price price) {
+			Price previous = price == null ? products.remove(id) : products.put(id, price);
+			if (price != null && price.equals(previous))
+				return previous;
+
+			if (previous != null)
+				categories.get(previous.category()).remove(previous.minorUnits(), id);
+			if (price != null)
+				categories.computeIfAbsent(price.category(), c -> new SortedPrices()).insert(price.minorUnits(), id);
+			return previous;
+		}
+
+		void append(Long id, Price price) {
+			products.put(id, price);
+			categories.computeIfAbsent(price.category(), c -> new SortedPrices()).append(price.minorUnits(), id);
+		}
+
+		Collection<SortedPrices> of(Category category) {
+			if (category == null)
+				return categories.values();
+			SortedPrices prices = categories.get(category);
+			return prices == null ? List.of() : List.of(prices);
+		}
+
+		/** The ids priced between from and to, unordered, or null when there are more than max. */
+		long[] search(Collection<SortedPrices> sorted, long from, long to, int max) {
+			int count = 0;
+			for (SortedPrices prices : sorted) {
+				count += prices.count(from, to);
+				if (count > max)
+					return null;
+			}
+			long[] ids = new long[count];
+			int at = 0;
+			for (SortedPrices prices : sorted) {
+				int first = prices.from(from);
+				int length = prices.count(from, to);
+				System.arraycopy(prices.ids, first, ids, at, length);
+				at += length;
+			}
+			return ids;
+		}
+
+		List<PriceFacetDTO> histogram(Category category, BigDecimal minPrice, BigDecimal maxPrice, int buckets) {
+			Collection<SortedPrices> sorted = this.of(category).stream().filter(prices -> prices.size > 0).toList();
+			if (sorted.isEmpty())
+				return List.of();
+
+			long lowest = sorted.stream().mapToLong(prices -> prices.prices[0]).min().getAsLong();
+			long highest = sorted.stream().mapToLong(prices -> prices.prices[prices.size - 1]).max().getAsLong();
+			long from = minorUnits(minPrice, RoundingMode.CEILING, lowest);
+			long to = minorUnits(maxPrice, RoundingMode.FLOOR, highest);
+			long width = Math.max(1, (to - from) / buckets + 1);
+
+			List<PriceFacetDTO> histogram = new ArrayList<>(buckets);
+			for (int bucket = 0; bucket < buckets; bucket++) {
+				long start = from + bucket * width;
+				long end = Math.min(start + width - 1, to);
+				long count = 0;
+				for (SortedPrices prices : sorted) {
+					count += prices.count(start, end);
+				}
+				histogram.add(new PriceFacetDTO(price(start), price(start + width), count));
+			}
+			return histogram;
+		}
+
+		double arrayBytes() {
+			return categories.values().stream().mapToLong(prices -> 2L * Long.BYTES * prices.prices.length).sum();
+		}
+	}
+
+	/** Prices in ascending order, ties by id, with the id of each in the same position. */
+	static class SortedPrices {
+
+		private long[] prices = new long[16];
+		private long[] ids = new long[16];
+		private int size;
+
+		/** Number of prices between from and to inclusive. */
+		int count(long from, long to) {
+			return Math.max(0, this.upTo(to) - this.from(from));
+		}
+
+		/** Position of the first price not below {@code price}. */
+		int from(long price) {
+			return this.search(price, Long.MIN_VALUE);
+		}
+
+		/** Position after the last price not above {@code price}; no id is Long.MAX_VALUE. */
+		int upTo(long price) {
+			return this.search(price, Long.MAX_VALUE);
+		}
+
+		void insert(long price, long id) {
+			int at = this.search(price, id);
+			this.grow();
+			System.arraycopy(prices, at, prices, at + 1, size - at);
+			System.arraycopy(ids, at, ids, at + 1, size - at);
+			prices[at] = price;
+			ids[at] = id;
+			size++;
+		}
+
+		void remove(long price, long id) {
+			int at = this.search(price, id);
+			if (at == size || prices[at] != price || ids[at] != id)
+				return;
+			System.arraycopy(prices, at + 1, prices, at, size - at - 1);
+			System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+			size--;
+		}
+
+		void append(long price, long id) {
+			this.grow();
+			prices[size] = price;
+			ids[size] = id;
+			size++;
+		}
+
+		/** Position of the first (price, id) pair not below the given one. */
+		private int search(long price, long id) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (prices[middle] < price || (prices[middle] == price && ids[middle] < id))
+					low = middle + 1;
+				else
+					high = middle;
+			}
+			return low;
+		}
+
+		private void grow() {
+			if (size == prices.length) {
+				prices = Arrays.copyOf(prices, size * 2);
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+		}
+	}
+}
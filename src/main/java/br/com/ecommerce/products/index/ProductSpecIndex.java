@@ -0,0 +1,237 @@
+package br.com.ecommerce.products.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpecEntryDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Attribute → value → product ids index over the product specs, plus one id set
+ * per category, kept as compressed bitmaps so a search is the AND of one bitmap
+ * per requested spec pair.
+ * <p>
+ * Pages are cut from the resulting id set in ascending id order; other sorts,
+ * and searches before the first build, are left to the database.
+ */
+@Component
+public class ProductSpecIndex extends AbstractProductIndex<ProductSpecIndex.Bitmaps, ProductSpecIndex.Specs> implements MeterBinder {
+
+	private static final long LOAD_RANGE = 50_000;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+
+	/**
+	 * Ids of the products having every one of the attribute/value pairs and, when
+	 * given, the category; empty when the database has to answer the query.
+	 */
+	public Optional<Page<Long>> search(List<SpecValue> specs, Category category, Pageable pageable) {
+		if (!this.isReady() || !isIdOrder(pageable.getSort()))
+			return Optional.empty();
+
+		Roaring64Bitmap ids = this.read(bitmaps -> bitmaps.match(specs, category));
+		return Optional.of(page(ids, pageable));
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("products.index.specs.products", this, index -> index.read(b -> b.products.size()))
+			.description("Products indexed")
+			.register(registry);
+		Gauge.builder("products.index.specs.bitmaps", this, index -> index.read(Bitmaps::bitmapCount))
+			.description("Attribute/value bitmaps")
+			.register(registry);
+		Gauge.builder("products.index.specs.memory", this, index -> index.read(Bitmaps::sizeInBytes))
+			.description("Serialized size of the spec and category bitmaps")
+			.baseUnit("bytes")
+			.register(registry);
+	}
+
+	@Override
+	protected Bitmaps emptyState() {
+		return new Bitmaps();
+	}
+
+	/** Loads ranges of ids in parallel and merges the partial indexes. */
+	@Override
+	protected Bitmaps load() {
+		long maxId = productRepository.findMaxId();
+		Bitmaps bitmaps = LongStream.rangeClosed(0, maxId / LOAD_RANGE)
+			.parallel()
+			.mapToObj(range -> this.load(range * LOAD_RANGE, (range + 1) * LOAD_RANGE))
+			.reduce(Bitmaps::merge)
+			.orElseGet(Bitmaps::new);
+		bitmaps.runOptimize();
+		return bitmaps;
+	}
+
+	@Override
+	protected Specs valueOf(Product product) {
+		return new Specs(product.getCategory(), product.getSpecs().stream()
+			.map(spec -> new SpecValue(spec.getAttribute(), spec.getValue()))
+			.collect(Collectors.toUnmodifiableSet()));
+	}
+
+	@Override
+	protected Specs put(Bitmaps bitmaps, Long id, Specs specs) {
+		return bitmaps.put(id, specs);
+	}
+
+	private Bitmaps load(long fromExclusive, long toInclusive) {
+		Map<Long, List<ProductSpecEntryDTO>> rows = productRepository.findSpecEntriesBetween(fromExclusive, toInclusive)
+			.stream()
+			.collect(Collectors.groupingBy(ProductSpecEntryDTO::getProductId, LinkedHashMap::new, Collectors.toList()));
+
+		Bitmaps bitmaps = new Bitmaps();
+		rows.forEach((id, entries) -> bitmaps.put(id, new Specs(
+			entries.get(0).getCategory(),
+			entries.stream()
+				.filter(entry -> entry.getAttribute() != null)
+				.map(entry -> new SpecValue(entry.getAttribute(), entry.getValue()))
+				.collect(Collectors.toUnmodifiableSet()))));
+		return bitmaps;
+	}
+
+	private static boolean isIdOrder(Sort sort) {
+		return sort.stream().allMatch(order -> order.getProperty().equals("id") && order.isAscending());
+	}
+
+	private static Page<Long> page(Roaring64Bitmap ids, Pageable pageable) {
+		long total = ids.getLongCardinality();
+		if (pageable.isUnpaged())
+			return new PageImpl<>(LongStream.of(ids.toArray()).boxed().toList(), pageable, total);
+		if (pageable.getOffset() >= total)
+			return new PageImpl<>(List.of(), pageable, total);
+
+		List<Long> content = new ArrayList<>(pageable.getPageSize());
+		PeekableLongIterator iterator = ids.getLongIteratorFrom(ids.select(pageable.getOffset()));
+		while (iterator.hasNext() && content.size() < pageable.getPageSize()) {
+			content.add(iterator.next());
+		}
+		return new PageImpl<>(content, pageable, total);
+	}
+
+
+	public record SpecValue(String attribute, String value) {}
+
+	record Specs(Category category, Set<SpecValue> specs) {}
+
+	static class Bitmaps {
+
+		private final Map<String, Map<String, Roaring64Bitmap>> specs = new HashMap<>();
+		private final Map<Category, Roaring64Bitmap> categories = new EnumMap<>(Category.class);
+		private final Map<Long, Specs> products = new HashMap<>();
+
+		Specs put(Long id, Specs indexed) {
+			Specs previous = indexed == null ? products.remove(id) : products.put(id, indexed);
+			if (indexed != null && indexed.equals(previous))
+				return previous;
+
+			if (previous != null) {
+				this.remove(categories, previous.category(), id);
+				previous.specs().forEach(spec -> specs.computeIfPresent(spec.attribute(), (attribute, values) -> {
+					this.remove(values, spec.value(), id);
+					return values.isEmpty() ? null : values;
+				}));
+			}
+			if (indexed != null) {
+				categories.computeIfAbsent(indexed.category(), c -> new Roaring64Bitmap()).addLong(id);
+				indexed.specs().forEach(spec -> specs
+					.computeIfAbsent(spec.attribute(), a -> new HashMap<>())
+					.computeIfAbsent(spec.value(), v -> new Roaring64Bitmap())
+					.addLong(id));
+			}
+			return previous;
+		}
+
+		/** A new bitmap, owned by the caller. */
+		Roaring64Bitmap match(List<SpecValue> values, Category category) {
+			List<Roaring64Bitmap> required = new ArrayList<>();
+			if (category != null)
+				required.add(categories.get(category));
+			for (SpecValue value : values) {
+				required.add(specs.getOrDefault(value.attribute(), Map.of()).get(value.value()));
+			}
+			if (required.contains(null))
+				return new Roaring64Bitmap();
+
+			if (required.isEmpty()) {
+				Roaring64Bitmap all = new Roaring64Bitmap();
+				categories.values().forEach(all::or);
+				return all;
+			}
+			required.sort(Comparator.comparingLong(Roaring64Bitmap::getLongCardinality));
+			Roaring64Bitmap result = required.get(0).clone();
+			for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+				result.and(required.get(i));
+			}
+			return result;
+		}
+
+		/** Folds the other index, built over a disjoint range of ids, into this one. */
+		Bitmaps merge(Bitmaps other) {
+			other.categories.forEach((category, ids) -> categories.merge(category, ids, Bitmaps::or));
+			other.specs.forEach((attribute, values) -> {
+				Map<String, Roaring64Bitmap> mine = specs.computeIfAbsent(attribute, a -> new HashMap<>());
+				values.forEach((value, ids) -> mine.merge(value, ids, Bitmaps::or));
+			});
+			products.putAll(other.products);
+			return this;
+		}
+
+		void runOptimize() {
+			categories.values().forEach(Roaring64Bitmap::runOptimize);
+			specs.values().forEach(values -> values.values().forEach(Roaring64Bitmap::runOptimize));
+		}
+
+		int bitmapCount() {
+			return specs.values().stream().mapToInt(Map::size).sum();
+		}
+
+		double sizeInBytes() {
+			return categories.values().stream().mapToLong(Roaring64Bitmap::getLongSizeInBytes).sum()
+				+ specs.values().stream()
+					.flatMap(values -> values.values().stream())
+					.mapToLong(Roaring64Bitmap::getLongSizeInBytes)
+					.sum();
+		}
+
+		private <K> void remove(Map<K, Roaring64Bitmap> bitmaps, K key, long id) {
+			Roaring64Bitmap ids = bitmaps.get(key);
+			ids.removeLong(id);
+			if (ids.isEmpty())
+				bitmaps.remove(key);
+		}
+
+		private static Roaring64Bitmap or(Roaring64Bitmap left, Roaring64Bitmap right) {
+			left.or(right);
+			return left;
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package br.com.ecommerce.products.mapper;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.ProductUpdateDTO;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.model.product.StockDTO;
+
+/**
+ * Mapping between product DTOs and entities, generated at compile time.
+ * <p>
+ * Null attributes of the source are kept as {@code null} on the target, so the
+ * {@link Product} built from a {@link ProductUpdateDTO} can be handed directly to
+ * {@link Product#update(Product)}, which skips them.
+ */
+@Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface ProductMapper {
+
+	Product toProduct(ProductDTO dto);
+
+	Product toProduct(ProductUpdateDTO dto);
+
+	// the versions are set by the reads that serve them as an ETag
+	@Mapping(target = "version", ignore = true)
+	ProductResponseDTO toProductResponseDTO(Product product);
+
+	Stock toStock(StockDTO dto);
+
+	Manufacturer toManufacturer(ManufacturerDTO dto);
+
+	ManufacturerResponseDTO toManufacturerResponseDTO(Manufacturer manufacturer);
+
+	ProductSpec toProductSpec(ProductSpecDTO dto);
+
+	ProductSpecDTO toProductSpecDTO(ProductSpec spec);
+}
@@ -3,7 +3,13 @@ package br.com.ecommerce.products.model.manufacturer;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
 import br.com.ecommerce.products.model.product.Product;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
@@ -12,6 +18,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -20,6 +27,8 @@ import lombok.Setter;
 @Getter @Setter
 @Entity(name = "Manufacturer")
 @Table(name = "manufacturers", uniqueConstraints = {@UniqueConstraint(columnNames = {"name"})})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "manufacturer")
 public class Manufacturer {
 
 	@Id 
@@ -31,6 +40,11 @@ public class Manufacturer {
 	@OneToMany(mappedBy = "manufacturer", fetch = FetchType.LAZY)
 	private List<Product> products = new ArrayList<>();;
 	
+	@Version
+	@ColumnDefault("0")
+	@Column(nullable = false)
+	private Long version;
+	
 	
 	public Manufacturer(String name) {
 		this.checkName(name);
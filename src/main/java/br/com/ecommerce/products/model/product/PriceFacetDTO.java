@@ -0,0 +1,19 @@
+package br.com.ecommerce.products.model.product;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceFacetDTO {
+
+	private BigDecimal from; // inclusive, null for the first bucket
+	private BigDecimal to; // exclusive, null for the last bucket
+	private long count;
+}
@@ -4,10 +4,19 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import br.com.ecommerce.products.index.ProductEntityListener;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Embedded;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
@@ -16,7 +25,9 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -31,10 +42,14 @@ import lombok.ToString;
 @ToString
 @Entity(name = "Product")
 @Table(name = "products")
+@EntityListeners(ProductEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product")
 public class Product {
 
 	@Id 
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+	@SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
 	private Long id;
 	private String name;
 	private String description;
@@ -51,9 +66,17 @@ public class Product {
 	@JoinColumn(name = "manufacturer_id")
 	private Manufacturer manufacturer;
 	
+	@BatchSize(size = 100)
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product-specs")
 	@OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
 	private List<ProductSpec> specs = new ArrayList<>();
 
+	// incremented by every update, stock updates included; the ETag of the product is built from it
+	@Version
+	@ColumnDefault("0")
+	@Column(nullable = false)
+	private Long version;
+
 
 	public Product(String name, String description, BigDecimal price, Category category, Stock stock, Manufacturer manufacturer, List<ProductSpec> specs) {
 		this.checkNotBlank(name, "name");
@@ -0,0 +1,94 @@
+package br.com.ecommerce.products.model.product;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Opaque {@code after} token of the keyset pagination mode of {@code GET /products}.
+ * <p>
+ * The token carries the sort it was issued for and the sort key values of the last
+ * product returned, the id always among them, so the next page is read with a
+ * {@code WHERE (key, id) > (:key, :id)} predicate instead of an {@code OFFSET}.
+ */
+public final class ProductCursor {
+
+	public static final Sort DEFAULT_SORT = Sort.by("id");
+	private static final Set<String> SORTABLE = Set.of("id", "name", "price");
+
+	private static final String SORT_KEY = "sort";
+	private static final ObjectMapper JSON = new ObjectMapper();
+	private static final TypeReference<Map<String, String>> TOKEN_TYPE = new TypeReference<>() {};
+
+	private ProductCursor() {}
+
+
+	public static Sort checkSort(Sort sort) {
+		if (sort == null || sort.isUnsorted())
+			return DEFAULT_SORT;
+
+		sort.forEach(order -> {
+			if (!SORTABLE.contains(order.getProperty()))
+				throw new IllegalArgumentException("Cursor pagination cannot sort by: " + order.getProperty());
+		});
+		return sort;
+	}
+
+	public static KeysetScrollPosition decode(String token, Sort sort) {
+		if (token == null || token.isBlank())
+			return ScrollPosition.keyset();
+
+		Map<String, String> values;
+		try {
+			values = JSON.readValue(Base64.getUrlDecoder().decode(token), TOKEN_TYPE);
+		} catch (IllegalArgumentException | IOException e) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+		if (!sort.toString().equals(values.remove(SORT_KEY)))
+			throw new IllegalArgumentException("Cursor was issued for a different sort");
+
+		Map<String, Object> keys = new LinkedHashMap<>();
+		values.forEach((property, value) -> keys.put(property, parse(property, value)));
+		return ScrollPosition.forward(keys);
+	}
+
+	public static String encode(ScrollPosition position, Sort sort) {
+		Map<String, String> values = new LinkedHashMap<>();
+		values.put(SORT_KEY, sort.toString());
+		((KeysetScrollPosition) position).getKeys()
+			.forEach((property, value) -> values.put(property, value == null ? null : value.toString()));
+
+		try {
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(JSON.writeValueAsString(values).getBytes(StandardCharsets.UTF_8));
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Object parse(String property, String value) {
+		if (value == null)
+			return null;
+		try {
+			return switch (property) {
+				case "id" -> Long.valueOf(value);
+				case "price" -> new BigDecimal(value);
+				case "name" -> value;
+				default -> throw new IllegalArgumentException("Invalid cursor");
+			};
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor");
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package br.com.ecommerce.products.model.product;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCursorPageDTO {
+
+	private List<ProductResponseDTO> content;
+	private int size;
+	private String next; // null when there is no next page
+}
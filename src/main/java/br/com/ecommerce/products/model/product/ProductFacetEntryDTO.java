@@ -0,0 +1,21 @@
+package br.com.ecommerce.products.model.product;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetEntryDTO {
+
+	private Long productId;
+	private Category category;
+	private Long manufacturerId;
+	private BigDecimal price;
+	private Integer unit;
+}
@@ -0,0 +1,20 @@
+package br.com.ecommerce.products.model.product;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsDTO {
+
+	private Map<Category, Long> categories;
+	private Map<String, Long> manufacturers;
+	private List<PriceFacetDTO> prices;
+}
@@ -0,0 +1,16 @@
+package br.com.ecommerce.products.model.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportErrorDTO {
+
+	private long line;
+	private String error;
+}
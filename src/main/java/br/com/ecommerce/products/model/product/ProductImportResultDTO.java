@@ -0,0 +1,19 @@
+package br.com.ecommerce.products.model.product;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportResultDTO {
+
+	private long imported;
+	private long failed;
+	private List<ProductImportErrorDTO> errors; // only the first products.import.max-errors
+}
@@ -4,6 +4,8 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -26,15 +28,22 @@ public class ProductResponseDTO {
     private Stock stock; // cria junto com o objeto Product
     private ManufacturerResponseDTO manufacturer; // espera-se que já esteja criado no banco de dados
     private List<ProductSpecDTO> specs = new ArrayList<>(); // cria junto com o objeto Product
+    @JsonIgnore
+    private ProductVersionDTO version; // what the response was built from, its ETag wherever it is cached
      
     public ProductResponseDTO(Product product) {
+    	this(product, new ManufacturerResponseDTO(product.getManufacturer()));
+    }
+    
+    // for products linked to a manufacturer reference, which would be read to get its name
+    public ProductResponseDTO(Product product, ManufacturerResponseDTO manufacturer) {
     	this.id = product.getId();
     	this.name = product.getName();
     	this.description = product.getDescription();
     	this.price = product.getPrice();
     	this.stock = product.getStock();
     	this.category = product.getCategory();
-    	this.manufacturer = new ManufacturerResponseDTO(product.getManufacturer());
+    	this.manufacturer = manufacturer;
     	this.specs.addAll(product.getSpecs().stream()
 			.map(s -> new ProductSpecDTO(s)).toList());
     }
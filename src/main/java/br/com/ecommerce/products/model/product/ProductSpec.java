@@ -1,13 +1,20 @@
 package br.com.ecommerce.products.model.product;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import br.com.ecommerce.products.index.ProductEntityListener;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -18,9 +25,13 @@ import lombok.Setter;
 @Getter @Setter
 @Entity(name = "ProductSpec")
 @Table(name = "product_specs")
+@EntityListeners(ProductEntityListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "product-spec")
 public class ProductSpec {
 	
-	@Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_specs_seq")
+	@SequenceGenerator(name = "product_specs_seq", sequenceName = "product_specs_seq", allocationSize = 50)
 	private Long id;
 	private String attribute;
 
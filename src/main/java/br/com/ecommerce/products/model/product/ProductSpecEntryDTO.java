@@ -0,0 +1,18 @@
+package br.com.ecommerce.products.model.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSpecEntryDTO {
+
+	private Long productId;
+	private Category category;
+	private String attribute; // null for a product without specs
+	private String value;
+}
@@ -22,11 +22,15 @@ public class ProductUpdateResponseDTO {
 	private ManufacturerDTO manufacturer;
 
 	public ProductUpdateResponseDTO(Product p) {
+		this(p, p.getManufacturer().getName());
+	}
+
+	public ProductUpdateResponseDTO(Product p, String manufacturerName) {
 		this.id = p.getId();
 		this.name = p.getName();
 		this.description = p.getDescription();
 		this.price = p.getPrice();
 		this.category = p.getCategory();
-		this.manufacturer = new ManufacturerDTO(p.getManufacturer().getName());
+		this.manufacturer = new ManufacturerDTO(manufacturerName);
 	} 
 }
\ No newline at end of file
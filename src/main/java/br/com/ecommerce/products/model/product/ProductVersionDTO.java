@@ -0,0 +1,26 @@
+package br.com.ecommerce.products.model.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductVersionDTO {
+
+	private Long version;
+	private Long manufacturerVersion;
+
+	/** The ETag of the product response built from these versions. */
+	public String eTag() {
+		return version + "-" + manufacturerVersion;
+	}
+
+	public boolean isNewerThan(ProductVersionDTO other) {
+		return version > other.version
+			|| version.equals(other.version) && manufacturerVersion > other.manufacturerVersion;
+	}
+}
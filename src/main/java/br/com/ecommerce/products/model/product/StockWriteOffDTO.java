@@ -1,5 +1,7 @@
 package br.com.ecommerce.products.model.product;
 
+import java.util.UUID;
+
 import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,6 +16,8 @@ public class StockWriteOffDTO {
 	private Long productId;
 	@NotNull
 	private Integer unit;
+	// the reservation the order held the units under, if any
+	private UUID reservationId;
 
 	public StockWriteOffDTO(Long productId, Integer unit) {
 		this.productId = productId;
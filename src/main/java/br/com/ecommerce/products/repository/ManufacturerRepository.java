@@ -1,12 +1,26 @@
 package br.com.ecommerce.products.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import jakarta.persistence.QueryHint;
 
 public interface ManufacturerRepository extends JpaRepository<Manufacturer, Long>{
 	
+	@QueryHints({
+		@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+		@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "manufacturer-by-name")})
 	Optional<Manufacturer> findByName(String manufacturerName);
+
+	List<Manufacturer> findAllByNameIn(Collection<String> manufacturerNames);
+
+	@Query("SELECT m.version FROM Manufacturer m WHERE m.id = :id")
+	Optional<Long> findVersionById(Long id);
 }
\ No newline at end of file
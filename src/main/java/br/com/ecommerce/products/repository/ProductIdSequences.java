@@ -0,0 +1,69 @@
+package br.com.ecommerce.products.repository;
+
+import java.util.Map;
+
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves the product and spec id sequences past the ids already in their tables
+ * on startup, before any request is served. A sequence is behind when its rows
+ * were inserted by a build that generated their ids in the database.
+ * <p>
+ * The pooled optimizer takes the value it reads as the last id of a block of
+ * {@link #ALLOCATION_SIZE}, so the next value must be at least
+ * {@code MAX(id) + ALLOCATION_SIZE}. MySQL has no sequences and Hibernate keeps
+ * them in a {@code next_val} table instead.
+ */
+@Slf4j
+@Component
+public class ProductIdSequences {
+
+	/** The allocationSize of the sequence generators of {@code Product} and {@code ProductSpec}. */
+	static final int ALLOCATION_SIZE = 50;
+	private static final Map<String, String> TABLES = Map.of("products_seq", "products", "product_specs_seq", "product_specs");
+
+	@Autowired
+	private JdbcTemplate jdbc;
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+
+	@PostConstruct
+	public void moveSequencesPastIds() {
+		SequenceSupport sequences = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+			.getJdbcServices().getDialect().getSequenceSupport();
+		TABLES.forEach((sequence, table) -> {
+			long max = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+			if (max == 0)
+				return;
+			long next = max + ALLOCATION_SIZE;
+			if (sequences.supportsSequences())
+				this.moveSequence(sequences, sequence, next);
+			else
+				this.moveTable(sequence, next);
+		});
+	}
+
+	private void moveSequence(SequenceSupport sequences, String sequence, long next) {
+		// read by taking a value, which only skips the ids of one block
+		Long current = jdbc.queryForObject(sequences.getSequenceNextValString(sequence), Long.class);
+		if (current != null && current >= next)
+			return;
+		jdbc.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + next);
+		log.warn("Moved sequence {} from {} to {}, past the ids already used", sequence, current, next);
+	}
+
+	private void moveTable(String sequence, long next) {
+		if (jdbc.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?", next, next) > 0)
+			log.warn("Moved sequence table {} to {}, past the ids already used", sequence, next);
+	}
+}
@@ -1,19 +1,34 @@
 package br.com.ecommerce.products.repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import br.com.ecommerce.products.model.product.Category;
 import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductFacetEntryDTO;
+import br.com.ecommerce.products.model.product.ProductNameDTO;
+import br.com.ecommerce.products.model.product.ProductPriceDTO;
+import br.com.ecommerce.products.model.product.ProductPriceEntryDTO;
+import br.com.ecommerce.products.model.product.ProductSpecEntryDTO;
+import br.com.ecommerce.products.model.product.ProductVersionDTO;
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import jakarta.persistence.QueryHint;
 
-public interface ProductRepository extends JpaRepository<Product, Long>{
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product>, ProductStockRepository {
 	
     @Query("""
         SELECT p FROM Product p WHERE
@@ -23,6 +38,7 @@ public interface ProductRepository extends JpaRepository<Product, Long>{
         AND (:maxPrice IS NULL OR p.price <= :maxPrice)
         AND (:manufacturerName IS NULL OR LOWER(p.manufacturer.name) = LOWER(:manufacturerName))
         """)
+    @EntityGraph(attributePaths = "manufacturer")
     Page<Product> findAllByParams(
             Pageable pageable,
             String name,
@@ -33,11 +49,87 @@ public interface ProductRepository extends JpaRepository<Product, Long>{
     );
     
     @Query("""
-        SELECT DISTINCT p FROM Product p WHERE p.id 
-        IN 
-        (SELECT DISTINCT ps.product.id FROM ProductSpec ps 
-        WHERE 
-        (ps.attribute = :#{#specs[0][attribute]} AND ps.value = :#{#specs[0][value]}))
+        SELECT p FROM Product p WHERE p.id IN :ids
+        AND (:category IS NULL OR p.category = :category)
+        AND (:minPrice IS NULL OR p.price >= :minPrice)
+        AND (:maxPrice IS NULL OR p.price <= :maxPrice)
+        AND (:manufacturerName IS NULL OR LOWER(p.manufacturer.name) = LOWER(:manufacturerName))
+        """)
+    @EntityGraph(attributePaths = "manufacturer")
+    Page<Product> findAllByIdsAndParams(
+            Pageable pageable,
+            Collection<Long> ids,
+            Category category,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String manufacturerName
+    );
+    
+    // forward-only and read-only, fetched from the database 500 rows at a time
+    @Query("""
+        SELECT p FROM Product p JOIN FETCH p.manufacturer m WHERE
+        (:category IS NULL OR p.category = :category)
+        AND (:manufacturerName IS NULL OR LOWER(m.name) = LOWER(:manufacturerName))
+        ORDER BY p.id
+        """)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Product> streamAllByParams(Category category, String manufacturerName);
+    
+    @Override
+    @EntityGraph(attributePaths = "manufacturer")
+    Page<Product> findAll(Specification<Product> spec, Pageable pageable);
+
+    @EntityGraph(attributePaths = "manufacturer")
+    List<Product> findAllByIdIn(Collection<Long> ids);
+
+    // read from the database and left out of the second-level cache
+    @Query("SELECT p FROM Product p WHERE p.id IN :ids")
+    @EntityGraph(attributePaths = {"manufacturer", "specs"})
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHE_MODE, value = "IGNORE"))
+    List<Product> findWithSpecsByIdIn(Collection<Long> ids);
+
+    @Query("SELECT p.id FROM Product p WHERE p.manufacturer.id = :manufacturerId")
+    List<Long> findIdsByManufacturerId(Long manufacturerId);
+
+    @Query("SELECT new br.com.ecommerce.products.model.product.ProductNameDTO(p.id, p.name) FROM Product p WHERE p.id > :after ORDER BY p.id")
+    List<ProductNameDTO> findNamesAfter(Long after, Limit limit);
+
+    @Query("SELECT p.id FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<Long> findIdsByNameContaining(String name);
+
+    @Query("""
+        SELECT new br.com.ecommerce.products.model.product.ProductFacetEntryDTO(p.id, p.category, p.manufacturer.id, p.price, p.stock.unit)
+        FROM Product p WHERE p.id > :after ORDER BY p.id
+        """)
+    List<ProductFacetEntryDTO> findFacetEntriesAfter(Long after, Limit limit);
+
+    // keyset on (price, id), so the rows of each category come in the order they are indexed
+    @Query("""
+        SELECT new br.com.ecommerce.products.model.product.ProductPriceEntryDTO(p.id, p.category, p.price)
+        FROM Product p WHERE p.price > :price OR (p.price = :price AND p.id > :id)
+        ORDER BY p.price, p.id
+        """)
+    List<ProductPriceEntryDTO> findPriceEntriesAfter(BigDecimal price, Long id, Limit limit);
+
+    @Query("SELECT new br.com.ecommerce.products.model.product.ProductPriceDTO(p.id, p.price) FROM Product p WHERE p.id IN :ids")
+    List<ProductPriceDTO> findPricesByIdIn(Collection<Long> ids);
+
+    @Query("SELECT new br.com.ecommerce.products.model.product.StockResponseDTO(p.id, p.name, p.stock.unit) FROM Product p WHERE p.id IN :ids")
+    List<StockResponseDTO> findStocksByIdIn(Collection<Long> ids);
+
+    @Query("SELECT new br.com.ecommerce.products.model.product.ProductVersionDTO(p.version, p.manufacturer.version) FROM Product p WHERE p.id = :id")
+    Optional<ProductVersionDTO> findVersionById(Long id);
+
+    @Query("SELECT COALESCE(MAX(p.id), 0) FROM Product p")
+    long findMaxId();
+
+    @Query("""
+        SELECT new br.com.ecommerce.products.model.product.ProductSpecEntryDTO(p.id, p.category, s.attribute, s.value)
+        FROM Product p LEFT JOIN p.specs s
+        WHERE p.id > :fromExclusive AND p.id <= :toInclusive
         """)
-     Page<Product> findProductsBySpecs(Pageable pageable, @Param("specs") List<Map<String, String>> specs);
+    List<ProductSpecEntryDTO> findSpecEntriesBetween(long fromExclusive, long toInclusive);
 }
\ No newline at end of file
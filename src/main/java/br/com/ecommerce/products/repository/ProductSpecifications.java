@@ -0,0 +1,93 @@
+package br.com.ecommerce.products.repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import br.com.ecommerce.products.index.ProductSpecIndex.SpecValue;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * Criteria counterpart of {@link ProductRepository#findAllByParams}, for the
+ * queries that cannot be expressed with a static JPQL string (keyset scrolling,
+ * any number of spec pairs).
+ */
+public final class ProductSpecifications {
+
+	private ProductSpecifications() {}
+
+
+	public static Specification<Product> byParams(
+			String name,
+			Category category,
+			BigDecimal minPrice,
+			BigDecimal maxPrice,
+			String manufacturerName) {
+
+		return Specification.allOf(
+			nameContains(name),
+			hasCategory(category),
+			priceFrom(minPrice),
+			priceUpTo(maxPrice),
+			hasManufacturer(manufacturerName));
+	}
+
+	public static Specification<Product> bySpecs(List<SpecValue> specs, Category category) {
+		List<Specification<Product>> all = new ArrayList<>();
+		specs.forEach(spec -> all.add(hasSpec(spec.attribute(), spec.value())));
+		all.add(hasCategory(category));
+		return Specification.allOf(all);
+	}
+
+	public static Specification<Product> hasSpec(String attribute, String value) {
+		return (root, query, cb) -> {
+			Subquery<Long> spec = query.subquery(Long.class);
+			Root<ProductSpec> specs = spec.from(ProductSpec.class);
+			return cb.exists(spec
+				.select(specs.get("id"))
+				.where(
+					cb.equal(specs.get("product"), root),
+					cb.equal(specs.get("attribute"), attribute),
+					cb.equal(specs.get("value"), value)));
+		};
+	}
+
+	public static Specification<Product> idIn(Collection<Long> ids) {
+		return (root, query, cb) -> root.get("id").in(ids);
+	}
+
+	public static Specification<Product> nameContains(String name) {
+		if (name == null) return null;
+		return (root, query, cb) -> cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase(Locale.ROOT) + "%");
+	}
+
+	public static Specification<Product> hasCategory(Category category) {
+		if (category == null) return null;
+		return (root, query, cb) -> cb.equal(root.get("category"), category);
+	}
+
+	public static Specification<Product> priceFrom(BigDecimal minPrice) {
+		if (minPrice == null) return null;
+		return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("price"), minPrice);
+	}
+
+	public static Specification<Product> priceUpTo(BigDecimal maxPrice) {
+		if (maxPrice == null) return null;
+		return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("price"), maxPrice);
+	}
+
+	public static Specification<Product> hasManufacturer(String manufacturerName) {
+		if (manufacturerName == null) return null;
+		return (root, query, cb) -> cb.equal(
+			cb.lower(root.get("manufacturer").get("name")),
+			manufacturerName.toLowerCase(Locale.ROOT));
+	}
+}
@@ -0,0 +1,27 @@
+package br.com.ecommerce.products.repository;
+
+import java.util.List;
+import java.util.Map;
+
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+
+/**
+ * Stock writes issued as SQL, without loading the products, so concurrent
+ * writers of the same product never overwrite each other's units.
+ */
+public interface ProductStockRepository {
+
+	/**
+	 * Adds the delta of each product id to its units in stock, clamping at zero,
+	 * with one UPDATE statement, and reads back the resulting units. The units
+	 * left below zero are set to zero by a second UPDATE, run only then.
+	 * <p>
+	 * Pending changes are flushed before the update and the persistence context
+	 * is cleared after it, as {@code @Modifying(flushAutomatically = true,
+	 * clearAutomatically = true)} would, so no managed product keeps stale units.
+	 *
+	 * @return the stock of each product found, in ascending id order, with the
+	 *         units before clamping: negative for the products set to zero
+	 */
+	List<StockResponseDTO> addToStocks(Map<Long, Integer> deltas);
+}
@@ -0,0 +1,110 @@
+package br.com.ecommerce.products.repository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+
+class ProductStockRepositoryImpl implements ProductStockRepository {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+
+	@Override
+	public List<StockResponseDTO> addToStocks(Map<Long, Integer> deltas) {
+		if (deltas.isEmpty())
+			return List.of();
+
+		StringBuilder sql = new StringBuilder("UPDATE products SET version = version + 1, unit = unit + CASE id");
+		deltas.forEach((id, delta) -> sql.append(" WHEN ? THEN ?"));
+		sql.append(" END WHERE id IN (");
+		sql.append("?, ".repeat(deltas.size() - 1)).append("?)");
+
+		Query query = entityManager.createNativeQuery(sql.toString());
+		// without a query space Hibernate drops every second-level cache region; only the rows written are evicted, below
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("");
+		int position = 1;
+		for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+			query.setParameter(position++, delta.getKey());
+			query.setParameter(position++, delta.getValue());
+		}
+		for (Long id : deltas.keySet()) {
+			query.setParameter(position++, id);
+		}
+
+		entityManager.flush();
+		query.executeUpdate();
+		this.detach(deltas.keySet());
+		this.evictFromSecondLevelCache(deltas.keySet());
+
+		// the rows stay locked by the update until commit, so these are the units it left
+		List<StockResponseDTO> stocks = entityManager.createQuery("""
+				SELECT new br.com.ecommerce.products.model.product.StockResponseDTO(p.id, p.name, p.stock.unit)
+				FROM Product p
+				WHERE p.id IN :ids
+				ORDER BY p.id""", StockResponseDTO.class)
+			.setParameter("ids", deltas.keySet())
+			.getResultList();
+		this.clampAtZero(stocks);
+		return stocks;
+	}
+
+	/** Stores zero units for the products the update left below zero, only when there are any. */
+	private void clampAtZero(List<StockResponseDTO> stocks) {
+		List<Long> negative = stocks.stream()
+			.filter(stock -> stock.getUnit() < 0)
+			.map(StockResponseDTO::getProductId)
+			.toList();
+		if (negative.isEmpty())
+			return;
+
+		Query query = entityManager.createNativeQuery("UPDATE products SET unit = 0 WHERE id IN (:ids)")
+			.setParameter("ids", negative);
+		query.unwrap(NativeQuery.class).addSynchronizedQuerySpace("");
+		query.executeUpdate();
+	}
+
+	/**
+	 * Detaches the products written, if this persistence context has them, so they
+	 * are read again with their new units; every other entity stays managed.
+	 */
+	private void detach(Set<Long> ids) {
+		// the instance already loaded, or else an uninitialized proxy that costs no query
+		ids.forEach(id -> entityManager.detach(entityManager.getReference(Product.class, id)));
+	}
+
+	/**
+	 * Evicts the products now and again when the transaction completes, since a
+	 * concurrent read can cache the units from before the update until it commits.
+	 * <p>
+	 * The native update takes none of the soft locks of the {@code READ_WRITE}
+	 * region, so a read that began before the commit can still put the old units
+	 * after the last eviction. {@code ProductCacheInvalidator} evicts once more
+	 * {@code products.cache.evict-again-after} later, and the short expiry of the
+	 * {@code product} region bounds the reads slower than that.
+	 */
+	private void evictFromSecondLevelCache(Set<Long> ids) {
+		List<Long> evicted = List.copyOf(ids);
+		Cache cache = entityManager.getEntityManagerFactory().getCache();
+		evicted.forEach(id -> cache.evict(Product.class, id));
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+			return;
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				evicted.forEach(id -> cache.evict(Product.class, id));
+			}
+		});
+	}
+}
@@ -0,0 +1,21 @@
+package br.com.ecommerce.products.reservation;
+
+import java.util.List;
+
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import lombok.Getter;
+
+/**
+ * A reservation asked for more units than are available; carries the units
+ * available of each product that fell short.
+ */
+@Getter
+public class InsufficientStockException extends RuntimeException {
+
+	private final List<StockResponseDTO> shortages;
+
+	public InsufficientStockException(List<StockResponseDTO> shortages) {
+		super("Insufficient stock");
+		this.shortages = shortages;
+	}
+}
@@ -0,0 +1,12 @@
+package br.com.ecommerce.products.reservation;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the sweep of expired reservations.
+ */
+@EnableScheduling
+@Configuration
+public class ReservationConfig {
+}
@@ -0,0 +1,15 @@
+package br.com.ecommerce.products.reservation;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Units held for an order, by product id, until confirmed, released or expired.
+ */
+public record StockReservation(UUID id, Map<Long, Integer> units, Instant expiresAt) {
+
+	boolean isExpired(Instant now) {
+		return !expiresAt.isAfter(now);
+	}
+}
@@ -0,0 +1,357 @@
+package br.com.ecommerce.products.reservation;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * Units reserved by orders that have not been written off yet, held in memory
+ * and striped by product id so reservations of different products do not
+ * contend for the same lock.
+ * <p>
+ * Each product keeps the units in stock last read from the database and the sum
+ * of its active reservations, and a reservation is granted when the difference
+ * covers it. The stock read is dropped when a transaction writing the product
+ * completes and read again by the next reservation. The writes of the other
+ * instances are not seen that way, so a stock read older than
+ * {@code products.reservations.stock-ttl} is read again as well: until then, a
+ * reservation can be granted units another instance has just written off, or
+ * refused units it has just added. The reservations held by the other instances
+ * are never seen, only their write-offs once they confirm. Expired reservations are
+ * released by a periodic sweep, so they can hold their units up to one sweep
+ * interval past their expiry.
+ * <p>
+ * A reservation whose stocks keep being written while they are read is tried
+ * again up to {@code products.reservations.max-attempts} times, waiting a random
+ * time up to a bound that doubles from {@code products.reservations.initial-backoff}
+ * to {@code products.reservations.max-backoff} before each new attempt.
+ */
+@Component
+public class StockReservationLedger implements MeterBinder {
+
+	private static final int UNKNOWN = -1;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Value("${products.reservations.ttl:10m}")
+	private Duration ttl;
+	@Value("${products.reservations.stock-ttl:1s}")
+	private Duration stockTtl;
+	@Value("${products.reservations.max-attempts:5}")
+	private int maxAttempts;
+	@Value("${products.reservations.initial-backoff:1ms}")
+	private Duration initialBackoff;
+	@Value("${products.reservations.max-backoff:50ms}")
+	private Duration maxBackoff;
+
+	private final Stripe[] stripes;
+	private final Map<UUID, StockReservation> reservations = new ConcurrentHashMap<>();
+	private final AtomicLong expired = new AtomicLong();
+
+	public StockReservationLedger(@Value("${products.reservations.stripes:64}") int stripes) {
+		if (stripes < 1)
+			throw new IllegalArgumentException("The number of stripes must be positive");
+		this.stripes = new Stripe[stripes];
+		Arrays.setAll(this.stripes, i -> new Stripe());
+	}
+
+
+	/**
+	 * Holds the units of every product, or none of them when one of the products
+	 * does not have enough units available.
+	 *
+	 * @throws InsufficientStockException with the units available of the products that fell short
+	 * @throws EntityNotFoundException when one of the products does not exist
+	 * @throws ConcurrencyFailureException when the stocks changed while being read on every attempt
+	 */
+	public StockReservation reserve(Map<Long, Integer> units) {
+		units.values().forEach(unit -> {
+			if (unit == null || unit <= 0)
+				throw new IllegalArgumentException("The units reserved must be positive");
+		});
+		StockReservation reservation = new StockReservation(
+			UUID.randomUUID(), Collections.unmodifiableMap(new TreeMap<>(units)), Instant.now().plus(ttl));
+
+		for (int attempt = 1; !this.hold(reservation); attempt++) {
+			// the stock of a product was written while it was being read
+			if (attempt >= maxAttempts)
+				throw new ConcurrencyFailureException("The stock of products " + reservation.units().keySet()
+					+ " changed while being read on each of " + attempt + " attempts");
+			this.backOff(attempt);
+		}
+		reservations.put(reservation.id(), reservation);
+		return reservation;
+	}
+
+	/**
+	 * Writes the units of the reservation off with {@code writeOff} and frees them
+	 * once its transaction commits; a failed or rolled back write-off puts the
+	 * reservation back.
+	 *
+	 * @throws EntityNotFoundException when the reservation does not exist or has expired
+	 */
+	public <R> R confirm(UUID id, Function<Map<Long, Integer>, R> writeOff) {
+		StockReservation reservation = this.take(id);
+		if (reservation.isExpired(Instant.now())) {
+			this.free(reservation);
+			expired.incrementAndGet();
+			throw new EntityNotFoundException("Reservation expired");
+		}
+
+		return this.writeOff(List.of(reservation), () -> writeOff.apply(reservation.units()));
+	}
+
+	/**
+	 * Runs {@code writeOff}, which writes off the units of the reservations
+	 * itself, and frees the reservations once its transaction commits; a failed or
+	 * rolled back write-off puts them back. The reservations that do not exist or
+	 * have been released already are skipped.
+	 */
+	public <R> R writeOff(Collection<UUID> ids, Supplier<R> writeOff) {
+		List<StockReservation> taken = ids.stream()
+			.distinct()
+			.map(reservations::remove)
+			.filter(Objects::nonNull)
+			.toList();
+		return this.writeOff(taken, writeOff);
+	}
+
+	/**
+	 * @throws EntityNotFoundException when the reservation does not exist
+	 */
+	public void release(UUID id) {
+		this.free(this.take(id));
+	}
+
+	/** Units of the product held by active reservations. */
+	public int reserved(Long productId) {
+		return this.withStripe(productId, products -> {
+			Holding holding = products.get(productId);
+			return holding == null ? 0 : holding.reserved;
+		});
+	}
+
+	/**
+	 * Drops the stock read for the products once the current transaction
+	 * completes, so the next reservation reads what it wrote.
+	 */
+	public void stockChanged(Collection<Long> productIds) {
+		List<Long> ids = List.copyOf(productIds);
+		this.afterCompletion(committed -> ids.forEach(id -> this.withStripe(id, products -> {
+			Holding holding = products.get(id);
+			if (holding != null) {
+				holding.stock = UNKNOWN;
+				holding.version++;
+			}
+			return null;
+		})));
+	}
+
+	@Scheduled(fixedDelayString = "${products.reservations.sweep-interval:PT1S}")
+	public void expire() {
+		Instant now = Instant.now();
+		reservations.values().forEach(reservation -> {
+			if (reservation.isExpired(now) && reservations.remove(reservation.id(), reservation)) {
+				this.free(reservation);
+				expired.incrementAndGet();
+			}
+		});
+	}
+
+	@Override
+	public void bindTo(@NonNull MeterRegistry registry) {
+		Gauge.builder("products.reservations.active", reservations, Map::size)
+			.description("Stock reservations waiting to be confirmed or released")
+			.register(registry);
+		FunctionCounter.builder("products.reservations.expired", expired, AtomicLong::get)
+			.description("Stock reservations released because they expired")
+			.register(registry);
+	}
+
+	private <R> R writeOff(List<StockReservation> taken, Supplier<R> writeOff) {
+		R result;
+		try {
+			result = writeOff.get();
+		} catch (RuntimeException e) {
+			taken.forEach(reservation -> reservations.put(reservation.id(), reservation));
+			throw e;
+		}
+		// registered after the write-off, so the stock read is dropped before the units are freed
+		this.afterCompletion(committed -> taken.forEach(reservation -> {
+			if (committed)
+				this.free(reservation);
+			else
+				reservations.put(reservation.id(), reservation);
+		}));
+		return result;
+	}
+
+	private void backOff(int attempt) {
+		long bound = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 30));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyFailureException("Interrupted while reserving stock", e);
+		}
+	}
+
+	/** Adds the units of the reservation to the reserved ones, or returns false when a stock has to be read again. */
+	private boolean hold(StockReservation reservation) {
+		this.loadStocks(reservation.units().keySet());
+
+		// always locked in the same order, so two reservations cannot wait on each other
+		List<Stripe> locked = reservation.units().keySet().stream()
+			.mapToInt(this::indexOf)
+			.distinct()
+			.sorted()
+			.mapToObj(i -> stripes[i])
+			.toList();
+		locked.forEach(stripe -> stripe.lock.lock());
+		try {
+			List<StockResponseDTO> shortages = new ArrayList<>();
+			for (Map.Entry<Long, Integer> units : reservation.units().entrySet()) {
+				Holding holding = stripes[this.indexOf(units.getKey())].products.get(units.getKey());
+				if (holding == null || holding.stock == UNKNOWN)
+					return false;
+				if (holding.available() < units.getValue())
+					shortages.add(new StockResponseDTO(units.getKey(), holding.name, holding.available()));
+			}
+			if (!shortages.isEmpty())
+				throw new InsufficientStockException(shortages);
+
+			reservation.units().forEach((id, units) -> stripes[this.indexOf(id)].products.get(id).reserved += units);
+			return true;
+		} finally {
+			locked.forEach(stripe -> stripe.lock.unlock());
+		}
+	}
+
+	/** Reads, in one query, the stock of the products not read yet or read too long ago. */
+	private void loadStocks(Collection<Long> ids) {
+		Map<Long, Long> unknown = new HashMap<>();
+		long now = System.nanoTime();
+		ids.forEach(id -> this.withStripe(id, products -> {
+			Holding holding = products.computeIfAbsent(id, key -> new Holding());
+			if (holding.stock != UNKNOWN && now - holding.readAt > stockTtl.toNanos())
+				holding.stock = UNKNOWN;
+			if (holding.stock == UNKNOWN)
+				unknown.put(id, holding.version);
+			return null;
+		}));
+		if (unknown.isEmpty())
+			return;
+
+		Map<Long, StockResponseDTO> stocks = productRepository.findStocksByIdIn(unknown.keySet()).stream()
+			.collect(Collectors.toMap(StockResponseDTO::getProductId, stock -> stock));
+		unknown.forEach((id, version) -> this.withStripe(id, products -> {
+			Holding holding = products.get(id);
+			StockResponseDTO stock = stocks.get(id);
+			if (holding == null)
+				return null;
+			if (stock == null && holding.reserved == 0)
+				products.remove(id);
+			else if (stock != null && holding.version == version) {
+				holding.name = stock.getName();
+				holding.stock = stock.getUnit();
+				holding.readAt = now;
+			}
+			return null;
+		}));
+		if (stocks.size() < unknown.size())
+			throw new EntityNotFoundException("Product not found");
+	}
+
+	private StockReservation take(UUID id) {
+		StockReservation reservation = reservations.remove(id);
+		if (reservation == null)
+			throw new EntityNotFoundException("Reservation not found");
+		return reservation;
+	}
+
+	private void free(StockReservation reservation) {
+		reservation.units().forEach((id, units) -> this.withStripe(id, products -> products.get(id).reserved -= units));
+	}
+
+	private void afterCompletion(Consumer<Boolean> action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.accept(true);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				action.accept(status == STATUS_COMMITTED);
+			}
+		});
+	}
+
+	private <R> R withStripe(Long id, Function<Map<Long, Holding>, R> action) {
+		Stripe stripe = stripes[this.indexOf(id)];
+		stripe.lock.lock();
+		try {
+			return action.apply(stripe.products);
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	private int indexOf(Long id) {
+		return Math.floorMod(Long.hashCode(id), stripes.length);
+	}
+
+
+	private static class Stripe {
+		private final Lock lock = new ReentrantLock();
+		private final Map<Long, Holding> products = new HashMap<>();
+	}
+
+	private static class Holding {
+		private String name;
+		private int stock = UNKNOWN;
+		// System.nanoTime() when the stock was read, before the query
+		private long readAt;
+		private int reserved;
+		private long version;
+
+		int available() {
+			return Math.max(stock - reserved, 0);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package br.com.ecommerce.products.service;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a write in its own transaction and, when it fails on a concurrent
+ * update of the same rows (a stale product version, a deadlock or a lock
+ * timeout), runs it again from the start, up to {@code products.retry.max-attempts}
+ * times. Before each new attempt it waits a random time up to a bound that
+ * doubles from {@code products.retry.initial-backoff} to {@code products.retry.max-backoff},
+ * so the writers that collided do not collide again.
+ * <p>
+ * Conflicts, retries and writes given up are counted per operation as
+ * {@code products.update.conflicts}, {@code products.update.retries} and
+ * {@code products.update.exhausted}.
+ */
+@Slf4j
+@Component
+public class ConflictRetry {
+
+	private final TransactionTemplate transaction;
+	private final MeterRegistry registry;
+	private final int maxAttempts;
+	private final long initialBackoff;
+	private final long maxBackoff;
+
+	public ConflictRetry(
+			PlatformTransactionManager transactionManager,
+			MeterRegistry registry,
+			@Value("${products.retry.max-attempts:4}") int maxAttempts,
+			@Value("${products.retry.initial-backoff:10ms}") Duration initialBackoff,
+			@Value("${products.retry.max-backoff:200ms}") Duration maxBackoff) {
+		if (maxAttempts < 1)
+			throw new IllegalArgumentException("products.retry.max-attempts must be at least 1");
+		this.transaction = new TransactionTemplate(transactionManager);
+		this.registry = registry;
+		this.maxAttempts = maxAttempts;
+		this.initialBackoff = initialBackoff.toMillis();
+		this.maxBackoff = maxBackoff.toMillis();
+	}
+
+
+	public <T> T inTransaction(String operation, Supplier<T> work) {
+		// a joined transaction is rolled back as a whole, so only whoever started it can run it again
+		if (TransactionSynchronizationManager.isActualTransactionActive())
+			return work.get();
+
+		for (int attempt = 1; ; attempt++) {
+			try {
+				return transaction.execute(status -> work.get());
+			} catch (RuntimeException e) {
+				if (!isConflict(e))
+					throw e;
+				this.conflict(operation, e);
+				if (attempt == maxAttempts) {
+					this.counter("products.update.exhausted", "Writes given up after every attempt conflicted", operation).increment();
+					log.warn("Giving up {} after {} conflicting attempts: {}", operation, attempt, e.getMessage());
+					throw e;
+				}
+				this.counter("products.update.retries", "Writes run again after a conflict", operation).increment();
+				this.backOff(attempt, e);
+			}
+		}
+	}
+
+	private void backOff(int attempt, RuntimeException conflict) {
+		long bound = Math.min(maxBackoff, initialBackoff << Math.min(attempt - 1, 30));
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw conflict;
+		}
+	}
+
+	private void conflict(String operation, RuntimeException e) {
+		Counter.builder("products.update.conflicts")
+			.description("Writes that failed on a concurrent update of the same rows")
+			.tag("operation", operation)
+			.tag("exception", e.getClass().getSimpleName())
+			.register(registry)
+			.increment();
+	}
+
+	private Counter counter(String name, String description, String operation) {
+		return Counter.builder(name)
+			.description(description)
+			.tag("operation", operation)
+			.register(registry);
+	}
+
+	private static boolean isConflict(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof ConcurrencyFailureException
+					|| cause instanceof OptimisticLockException
+					|| cause instanceof PessimisticLockException)
+				return true;
+		}
+		return false;
+	}
+}
@@ -4,39 +4,66 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import br.com.ecommerce.products.cache.ManufacturerCache;
+import br.com.ecommerce.products.cache.ProductCacheInvalidator;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
 import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
 
 @Service
+@Timed("products.service")
 public class ManufacturerService {
 
 	@Autowired
 	private ManufacturerRepository repository;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private ProductCacheInvalidator cacheInvalidator;
+	@Autowired
+	private ManufacturerCache manufacturerCache;
 	
 	
+	@Transactional(readOnly = true)
 	public Page<ManufacturerResponseDTO> findAllManufacturers(Pageable pageable){
 		return repository
 			.findAll(pageable)
 			.map(ManufacturerResponseDTO::new);
 	}
 	
+	@Transactional(readOnly = true)
 	public ManufacturerResponseDTO findManufacturerById(Long id){
 		Manufacturer mf = repository.findById(id)
 			.orElseThrow(EntityNotFoundException::new);
 		return new ManufacturerResponseDTO(mf);
 	}
 	
+	@Transactional(readOnly = true)
+	public String getManufacturerETag(Long id){
+		return repository.findVersionById(id)
+			.map(String::valueOf)
+			.orElseThrow(EntityNotFoundException::new);
+	}
+	
 	public ManufacturerResponseDTO saveManufacturer(ManufacturerDTO dto){
-		return new ManufacturerResponseDTO(repository.save(new Manufacturer(dto.getName())));
+		Manufacturer mf = repository.save(new Manufacturer(dto.getName()));
+		manufacturerCache.evict(mf.getName());
+		return new ManufacturerResponseDTO(mf);
 	}
 	
 	public ManufacturerResponseDTO updateManufacturerData(Long id, ManufacturerDTO dto){
 		Manufacturer mf = repository.findById(id).orElseThrow(EntityNotFoundException::new);
+		String previousName = mf.getName();
 		mf.updateName(dto.getName());
+		manufacturerCache.evict(previousName);
+		manufacturerCache.evict(mf.getName());
+		cacheInvalidator.evictProducts(productRepository.findIdsByManufacturerId(id));
 		return new ManufacturerResponseDTO(mf);
 	}
 }
\ No newline at end of file
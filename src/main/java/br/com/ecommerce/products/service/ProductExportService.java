@@ -0,0 +1,88 @@
+package br.com.ecommerce.products.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Writes the catalog as NDJSON, one {@link ProductResponseDTO} per line, in id
+ * order.
+ * <p>
+ * Products are read from a forward-only stream and written in chunks of
+ * {@code products.export.chunk-size}: the specs of a chunk are fetched in
+ * batches when it is written, then the chunk is flushed to the client and
+ * detached, so memory does not grow with the size of the catalog.
+ */
+@Service
+public class ProductExportService {
+
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${products.export.chunk-size:500}")
+	private int chunkSize;
+
+
+	public void exportProducts(Category category, String manufacturer, OutputStream out) throws IOException {
+		JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+			.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		generator.setRootValueSeparator(null); // every line ends with its own newline
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+
+		try {
+			transaction.executeWithoutResult(status -> {
+				try (Stream<Product> products = productRepository.streamAllByParams(category, manufacturer)) {
+					List<Product> chunk = new ArrayList<>(chunkSize);
+					Iterator<Product> iterator = products.iterator();
+					while (iterator.hasNext()) {
+						chunk.add(iterator.next());
+						if (chunk.size() == chunkSize || !iterator.hasNext())
+							this.write(chunk, generator);
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+		generator.close();
+	}
+
+	private void write(List<Product> chunk, JsonGenerator generator) throws IOException {
+		for (Product product : chunk) {
+			objectMapper.writeValue(generator, new ProductResponseDTO(product));
+			generator.writeRaw('\n');
+		}
+		generator.flush();
+		chunk.clear();
+		entityManager.clear();
+	}
+}
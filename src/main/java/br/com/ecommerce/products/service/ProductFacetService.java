@@ -0,0 +1,88 @@
+package br.com.ecommerce.products.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import br.com.ecommerce.products.cache.ManufacturerCache;
+import br.com.ecommerce.products.index.ProductFacetIndex;
+import br.com.ecommerce.products.index.ProductFacetIndex.FacetCounts;
+import br.com.ecommerce.products.index.ProductFacetIndex.FacetFilter;
+import br.com.ecommerce.products.index.ProductNameIndex;
+import br.com.ecommerce.products.index.ProductPriceIndex;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
+import br.com.ecommerce.products.model.product.ProductFacetsDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+/**
+ * Facets of the product search, for the same filters as {@code GET /products},
+ * counted by {@link ProductFacetIndex}. Categories and manufacturers are listed
+ * from the most products to the fewest. Price histograms are counted by
+ * {@link ProductPriceIndex}.
+ */
+@Service
+public class ProductFacetService {
+
+	// no manufacturer has this id, so an unknown name matches no product
+	private static final long UNKNOWN_MANUFACTURER = 0;
+
+	@Autowired
+	private ProductFacetIndex facetIndex;
+	@Autowired
+	private ProductNameIndex nameIndex;
+	@Autowired
+	private ProductPriceIndex priceIndex;
+	@Autowired
+	private ProductRepository productRepository;
+	@Autowired
+	private ManufacturerRepository manufacturerRepository;
+	@Autowired
+	private ManufacturerCache manufacturers;
+
+
+	public ProductFacetsDTO getFacets(
+			String name,
+			Category category,
+			BigDecimal minPrice,
+			BigDecimal maxPrice,
+			String manufacturer) {
+
+		Collection<Long> ids = name == null ? null : nameIndex.search(name)
+			.orElseGet(() -> productRepository.findIdsByNameContaining(name));
+		Long manufacturerId = manufacturer == null ? null : manufacturers.findByName(manufacturer)
+			.map(ManufacturerResponseDTO::getId)
+			.orElse(UNKNOWN_MANUFACTURER);
+
+		FacetCounts counts = facetIndex.count(new FacetFilter(ids, category, minPrice, maxPrice, manufacturerId));
+
+		Map<Long, String> names = manufacturerRepository.findAllById(counts.manufacturers().keySet()).stream()
+			.collect(Collectors.toMap(Manufacturer::getId, Manufacturer::getName));
+		return new ProductFacetsDTO(
+			byCount(counts.categories(), Function.identity()),
+			byCount(counts.manufacturers(), names::get),
+			counts.prices());
+	}
+
+	public List<PriceFacetDTO> getPriceHistogram(Category category, BigDecimal minPrice, BigDecimal maxPrice, int buckets) {
+		return priceIndex.histogram(category, minPrice, maxPrice, buckets);
+	}
+
+	private static <K, L> Map<L, Long> byCount(Map<K, Long> counts, Function<K, L> label) {
+		return counts.entrySet().stream()
+			.filter(entry -> label.apply(entry.getKey()) != null)
+			.sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
+			.collect(Collectors.toMap(entry -> label.apply(entry.getKey()), Map.Entry::getValue, Long::sum, LinkedHashMap::new));
+	}
+}
@@ -0,0 +1,207 @@
+package br.com.ecommerce.products.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.ecommerce.products.cache.ProductCacheInvalidator;
+import br.com.ecommerce.products.mapper.ProductMapper;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductImportErrorDTO;
+import br.com.ecommerce.products.model.product.ProductImportResultDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports products from an NDJSON stream, one {@link ProductDTO} per line.
+ * <p>
+ * Lines are read and validated one at a time and the valid ones are saved in
+ * chunks of {@code products.import.chunk-size}, each in its own transaction,
+ * with the persistence context cleared after every chunk so memory does not
+ * grow with the size of the feed. Manufacturers are looked up once per name for
+ * the whole import. A line that cannot be read, is invalid or cannot be saved is
+ * reported with its number and the import goes on with the next one.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+
+	private static final String MALFORMED_LINE = "Malformed or unexpected json format";
+
+	@Autowired
+	private ManufacturerRepository manufacturerRepository;
+	@Autowired
+	private ProductMapper mapper;
+	@Autowired
+	private TransactionTemplate transaction;
+	@Autowired
+	private ObjectMapper objectMapper;
+	@Autowired
+	private Validator validator;
+	@Autowired
+	private ProductCacheInvalidator cacheInvalidator;
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${products.import.chunk-size:500}")
+	private int chunkSize;
+	@Value("${products.import.max-errors:1000}")
+	private int maxErrors;
+
+
+	public ProductImportResultDTO importProducts(InputStream ndjson) throws IOException {
+		Import current = new Import();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8));
+		List<Line> chunk = new ArrayList<>(chunkSize);
+
+		long number = 0;
+		for (String text = reader.readLine(); text != null; text = reader.readLine()) {
+			number++;
+			if (text.isBlank())
+				continue;
+			Line line = this.read(number, text, current);
+			if (line == null)
+				continue;
+
+			chunk.add(line);
+			if (chunk.size() == chunkSize) {
+				this.save(chunk, current);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty())
+			this.save(chunk, current);
+
+		log.info("Imported {} products, {} lines failed", current.imported, current.failed);
+		// lines failing to save are only found when their chunk is written
+		current.errors.sort(Comparator.comparingLong(ProductImportErrorDTO::getLine));
+		return new ProductImportResultDTO(current.imported, current.failed, current.errors);
+	}
+
+	/** Parses and validates one line, or returns null when it has to be skipped. */
+	private Line read(long number, String text, Import current) {
+		ProductDTO dto;
+		try {
+			dto = objectMapper.readValue(text, ProductDTO.class);
+		} catch (JsonProcessingException e) {
+			dto = null;
+		}
+		if (dto == null) {
+			current.fail(number, MALFORMED_LINE);
+			return null;
+		}
+
+		Set<ConstraintViolation<ProductDTO>> violations = validator.validate(dto);
+		if (!violations.isEmpty()) {
+			current.fail(number, violations.stream()
+				.map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+				.sorted()
+				.collect(Collectors.joining(", ")));
+			return null;
+		}
+		return new Line(number, dto, dto.getManufacturer().getName().toUpperCase());
+	}
+
+	private void save(List<Line> chunk, Import current) {
+		this.resolveManufacturers(chunk, current);
+		List<Line> linked = chunk.stream()
+			.filter(line -> {
+				if (current.manufacturers.get(line.manufacturer()).isPresent())
+					return true;
+				current.fail(line.number(), "Manufacturer not found: " + line.manufacturer());
+				return false;
+			})
+			.toList();
+
+		try {
+			this.persist(linked, current);
+			current.imported += linked.size();
+		} catch (RuntimeException e) {
+			// the failure does not tell which products caused it, so each one is saved on its own
+			linked.forEach(line -> {
+				try {
+					this.persist(List.of(line), current);
+					current.imported++;
+				} catch (RuntimeException ex) {
+					current.fail(line.number(), "Could not be saved: " + NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+				}
+			});
+		}
+	}
+
+	/** Looks up, in one query, the manufacturers of the chunk not looked up yet. */
+	private void resolveManufacturers(List<Line> chunk, Import current) {
+		Set<String> unknown = chunk.stream()
+			.map(Line::manufacturer)
+			.filter(name -> !current.manufacturers.containsKey(name))
+			.collect(Collectors.toSet());
+		if (unknown.isEmpty())
+			return;
+
+		manufacturerRepository.findAllByNameIn(unknown)
+			.forEach(mf -> current.manufacturers.put(mf.getName(), Optional.of(mf.getId())));
+		unknown.forEach(name -> current.manufacturers.putIfAbsent(name, Optional.empty()));
+	}
+
+	private void persist(List<Line> lines, Import current) {
+		try {
+			transaction.executeWithoutResult(status -> {
+				lines.forEach(line -> {
+					Product product = mapper.toProduct(line.product());
+					product.setManufacturer(entityManager.getReference(
+						Manufacturer.class, current.manufacturers.get(line.manufacturer()).get()));
+					product.getSpecs().forEach(spec -> spec.setProduct(product));
+					entityManager.persist(product);
+				});
+				entityManager.flush();
+				lines.stream()
+					.map(line -> line.product().getCategory())
+					.distinct()
+					.forEach(cacheInvalidator::evictCategory);
+			});
+		} finally {
+			entityManager.clear();
+		}
+	}
+
+
+	private record Line(long number, ProductDTO product, String manufacturer) {}
+
+	private class Import {
+		private long imported;
+		private long failed;
+		private final List<ProductImportErrorDTO> errors = new ArrayList<>();
+		private final Map<String, Optional<Long>> manufacturers = new HashMap<>();
+
+		void fail(long line, String error) {
+			failed++;
+			if (errors.size() < maxErrors)
+				errors.add(new ProductImportErrorDTO(line, error));
+		}
+	}
+}
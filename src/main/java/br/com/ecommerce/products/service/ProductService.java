@@ -1,52 +1,118 @@
 package br.com.ecommerce.products.service;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import br.com.ecommerce.products.cache.CacheConfig;
+import br.com.ecommerce.products.cache.ManufacturerCache;
+import br.com.ecommerce.products.cache.ProductCacheInvalidator;
+import br.com.ecommerce.products.index.ProductIndexListener;
+import br.com.ecommerce.products.index.ProductNameIndex;
+import br.com.ecommerce.products.index.ProductPriceIndex;
+import br.com.ecommerce.products.index.ProductSpecIndex;
+import br.com.ecommerce.products.index.ProductSpecIndex.SpecValue;
+import br.com.ecommerce.products.mapper.ProductMapper;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
 import br.com.ecommerce.products.model.product.Category;
 import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductCursor;
+import br.com.ecommerce.products.model.product.ProductCursorPageDTO;
 import br.com.ecommerce.products.model.product.ProductDTO;
 import br.com.ecommerce.products.model.product.ProductIdAndUnitsDTO;
+import br.com.ecommerce.products.model.product.ProductPriceDTO;
 import br.com.ecommerce.products.model.product.ProductResponseDTO;
 import br.com.ecommerce.products.model.product.ProductSpec;
 import br.com.ecommerce.products.model.product.ProductUpdateDTO;
 import br.com.ecommerce.products.model.product.ProductUpdateResponseDTO;
-import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.model.product.ProductVersionDTO;
 import br.com.ecommerce.products.model.product.StockDTO;
 import br.com.ecommerce.products.model.product.StockResponseDTO;
 import br.com.ecommerce.products.model.product.StockWriteOffDTO;
-import br.com.ecommerce.products.repository.ManufacturerRepository;
 import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.repository.ProductSpecifications;
+import br.com.ecommerce.products.reservation.StockReservation;
+import br.com.ecommerce.products.reservation.StockReservationLedger;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 
 @Service
+@Timed("products.service")
 public class ProductService {
 
 	@Autowired
 	private ProductRepository productRepository;
 	@Autowired
-	private ManufacturerRepository manufacturerRepository;
+	private ManufacturerCache manufacturers;
 	@Autowired
-	private ModelMapper mapper;
+	private ProductMapper mapper;
+	@Autowired
+	private ProductCacheInvalidator cacheInvalidator;
+	@Autowired
+	private ProductNameIndex nameIndex;
+	@Autowired
+	private ProductSpecIndex specIndex;
+	@Autowired
+	private ProductPriceIndex priceIndex;
+	@Autowired
+	private ProductIndexListener indexListener;
+	@Autowired
+	private StockReservationLedger reservations;
+	@Autowired
+	private StockMetrics stockMetrics;
+	@PersistenceContext
+	private EntityManager entityManager;
 
 
+	// findById runs in a read-only transaction of its own, not opened for the hits
+	@Cacheable(cacheNames = CacheConfig.PRODUCTS, key = "#id")
 	public ProductResponseDTO getProduct(Long id) {
 		Product product = productRepository.findById(id)
 			.orElseThrow(EntityNotFoundException::new);
 		product.getSpecs();
 
-		return mapper.map(product, ProductResponseDTO.class);
+		ProductResponseDTO response = mapper.toProductResponseDTO(product);
+		response.setVersion(new ProductVersionDTO(product.getVersion(), product.getManufacturer().getVersion()));
+		return response;
 	}
 	
+	/**
+	 * ETag of {@link #getProduct}, from the versions of the product and of its
+	 * manufacturer, whose name is part of the response. Neither is loaded.
+	 */
+	@Transactional(readOnly = true)
+	public String getProductETag(Long id) {
+		ProductVersionDTO versions = productRepository.findVersionById(id)
+			.orElseThrow(EntityNotFoundException::new);
+		return versions.eTag();
+	}
+	
+	@Transactional(readOnly = true)
 	public Page<ProductResponseDTO> getAllProductWithParams(
 			Pageable pageable, 
 			String name, 
@@ -55,93 +121,265 @@ public class ProductService {
 			BigDecimal maxPrice,
 			String manufacturer) {
 		
+		Optional<List<Long>> candidates = this.searchCandidates(name, category, minPrice, maxPrice);
+		if (candidates.isPresent()) {
+			if (candidates.get().isEmpty())
+				return Page.empty(pageable);
+			return productRepository
+				.findAllByIdsAndParams(pageable, candidates.get(), category, minPrice, maxPrice, manufacturer)
+				.map(ProductResponseDTO::new);
+		}
 		return productRepository
 			.findAllByParams(pageable, name, category, minPrice, maxPrice, manufacturer)
 			.map(ProductResponseDTO::new);
 	}
 	
-	public Page<ProductResponseDTO> getAllBySpecs(Pageable pageable, List<Map<String, String>> map) {
-		return productRepository
-			.findProductsBySpecs(pageable, map)
-			.map(ProductResponseDTO::new);
+	@Transactional(readOnly = true)
+	public ProductCursorPageDTO scrollProductsWithParams(
+			String after,
+			int size,
+			Sort sort,
+			String name,
+			Category category,
+			BigDecimal minPrice,
+			BigDecimal maxPrice,
+			String manufacturer) {
+
+		Sort keysetSort = ProductCursor.checkSort(sort);
+		KeysetScrollPosition position = ProductCursor.decode(after, keysetSort);
+		Optional<List<Long>> candidates = this.searchCandidates(name, category, minPrice, maxPrice);
+		if (candidates.isPresent() && candidates.get().isEmpty())
+			return new ProductCursorPageDTO(List.of(), 0, null);
+
+		Specification<Product> filter = candidates
+			.map(ids -> ProductSpecifications.byParams(null, category, minPrice, maxPrice, manufacturer)
+				.and(ProductSpecifications.idIn(ids)))
+			.orElseGet(() -> ProductSpecifications.byParams(name, category, minPrice, maxPrice, manufacturer));
+		Window<Product> window = productRepository.findBy(
+			filter,
+			query -> query
+				.project("manufacturer")
+				.sortBy(keysetSort)
+				.limit(size)
+				.scroll(position));
+
+		String next = window.hasNext() && !window.isEmpty()
+			? ProductCursor.encode(window.positionAt(window.size() - 1), keysetSort)
+			: null;
+		List<ProductResponseDTO> content = window.map(ProductResponseDTO::new).getContent();
+		return new ProductCursorPageDTO(content, content.size(), next);
+	}
+	
+	@Transactional(readOnly = true)
+	public Page<ProductResponseDTO> getAllBySpecs(Pageable pageable, List<Map<String, String>> map, Category category) {
+		List<SpecValue> specs = map.stream()
+			.map(spec -> {
+				if (spec.get("attribute") == null || spec.get("value") == null)
+					throw new IllegalArgumentException("Each spec must have an attribute and a value");
+				return new SpecValue(spec.get("attribute"), spec.get("value"));
+			})
+			.toList();
+
+		Optional<Page<Long>> ids = this.indexesSeeTransaction()
+			? specIndex.search(specs, category, pageable)
+			: Optional.empty();
+		if (ids.isEmpty()) {
+			return productRepository
+				.findAll(ProductSpecifications.bySpecs(specs, category), pageable)
+				.map(ProductResponseDTO::new);
+		}
+
+		Map<Long, Product> products = productRepository.findAllByIdIn(ids.get().getContent()).stream()
+			.collect(Collectors.toMap(Product::getId, p -> p));
+		// the index can still list a product deleted since it was updated
+		List<ProductResponseDTO> content = ids.get().stream()
+			.map(products::get)
+			.filter(Objects::nonNull)
+			.map(ProductResponseDTO::new)
+			.toList();
+		long missing = ids.get().getNumberOfElements() - content.size();
+		return new PageImpl<>(content, pageable, ids.get().getTotalElements() - missing);
 	}
 	
-	public List<Product> verifyProductsStocks(List<ProductIdAndUnitsDTO> productsRequest) {
+	public List<StockResponseDTO> verifyProductsStocks(List<ProductIdAndUnitsDTO> productsRequest) {
 		Map<Long, Integer> unitiesRequested = productsRequest.stream()
-			.collect(Collectors.toMap(p -> p.getId(), p -> p.getUnit()));
+			.collect(Collectors.toMap(ProductIdAndUnitsDTO::getId, ProductIdAndUnitsDTO::getUnit, Integer::sum));
 		
-		return this.getAllProductsByListOfIds(productsRequest.stream()
-			.map(ProductIdAndUnitsDTO::getId)
-			.toList()
-			)
-			.stream()
-				.filter(p -> p != null && p.getStock().getUnit() < unitiesRequested.get(p.getId())) 
-				.collect(Collectors.toList());
+		List<StockResponseDTO> outOfStock = productRepository.findStocksByIdIn(unitiesRequested.keySet()).stream()
+			.map(stock -> new StockResponseDTO(
+				stock.getProductId(),
+				stock.getName(),
+				Math.max(stock.getUnit() - reservations.reserved(stock.getProductId()), 0)))
+			.filter(stock -> stock.getUnit() < unitiesRequested.get(stock.getProductId()))
+			.toList();
+		stockMetrics.outOfStock(outOfStock.size());
+		return outOfStock;
+	}
+	
+	public StockReservation reserveStocks(List<ProductIdAndUnitsDTO> productsRequest) {
+		return reservations.reserve(productsRequest.stream()
+			.collect(Collectors.toMap(ProductIdAndUnitsDTO::getId, ProductIdAndUnitsDTO::getUnit, Integer::sum)));
+	}
+	public List<StockResponseDTO> confirmReservation(UUID reservationId) {
+		return reservations.confirm(reservationId, units -> this.addToStocks(units.entrySet().stream()
+			.collect(Collectors.toMap(Map.Entry::getKey, unit -> -unit.getValue(), Integer::sum, TreeMap::new))));
+	}
+	public void releaseReservation(UUID reservationId) {
+		reservations.release(reservationId);
 	}
 	
 	public List<Product> getAllProductsByListOfIds(List<Long> productsIds) {
 		return productRepository.findAllById(productsIds);
 	}
 	
+	/**
+	 * Prices of the products in the order of {@code productsIds}, read without
+	 * loading the products; the ids that do not exist come back with a null price.
+	 */
+	@Transactional(readOnly = true)
+	public List<ProductPriceDTO> getPrices(List<Long> productsIds) {
+		// sorted and deduplicated as primitives, then searched to put the prices back in request order
+		long[] ids = productsIds.stream()
+			.mapToLong(id -> {
+				if (id == null)
+					throw new IllegalArgumentException("Product ids cannot be null");
+				return id;
+			})
+			.sorted()
+			.distinct()
+			.toArray();
+		BigDecimal[] prices = new BigDecimal[ids.length];
+		productRepository.findPricesByIdIn(LongStream.of(ids).boxed().toList())
+			.forEach(price -> prices[Arrays.binarySearch(ids, price.getId())] = price.getPrice());
+
+		return productsIds.stream()
+			.map(id -> new ProductPriceDTO(id, prices[Arrays.binarySearch(ids, id)]))
+			.toList();
+	}
+	
 	public ProductUpdateResponseDTO updateProductData(Long id, ProductUpdateDTO dto) {
+		return this.updateProductData(id, dto, null);
+	}
+	
+	/**
+	 * Applies the update to the product as read by this transaction, which fails
+	 * at the flush if the product was updated since. With {@code ifMatch}, the
+	 * {@code If-Match} header of the request, it also fails when the product is
+	 * no longer at one of the ETags the client listed.
+	 * <p>
+	 * The ETag is compared with the versions in the database, not the ones of the
+	 * product read, which can come from the second-level cache: stock writes
+	 * increment the version without updating the product cached. A product read
+	 * at another version than the one compared is read again, so the flush does
+	 * not fail against the version the client matched.
+	 */
+	public ProductUpdateResponseDTO updateProductData(Long id, ProductUpdateDTO dto, String ifMatch) {
 		Product currentProduct = productRepository.getReferenceById(id);
-		Product updateData = mapper.map(dto, Product.class);
+		if (ifMatch != null) {
+			ProductVersionDTO versions = productRepository.findVersionById(id)
+				.orElseThrow(EntityNotFoundException::new);
+			if (!matches(ifMatch, versions.eTag()))
+				throw new ObjectOptimisticLockingFailureException(Product.class, id);
+			if (!versions.getVersion().equals(currentProduct.getVersion()))
+				entityManager.refresh(currentProduct);
+		}
+		Product updateData = mapper.toProduct(dto);
+		cacheInvalidator.evictProduct(id);
+		
+		if (updateData.getCategory() != null)
+			cacheInvalidator.evictCategory(updateData.getCategory());
 		
 		if (updateData.getManufacturer() != null) {
-			Manufacturer currentManufacturer = manufacturerRepository
-				.findByName(currentProduct.getManufacturer().getName())
-				.orElseThrow(EntityNotFoundException::new);
-			currentManufacturer.removeProduct(currentProduct);
-			
-			Manufacturer newManufacturer = manufacturerRepository
+			ManufacturerResponseDTO newManufacturer = manufacturers
 				.findByName(updateData.getManufacturer().getName())
 				.orElseThrow(() -> new EntityNotFoundException("Manufacturer not found. Create a Manufacturer to link it to a product"));
-			updateData.setManufacturer(newManufacturer);
-			newManufacturer.addProduct(currentProduct);
+			updateData.setManufacturer(entityManager.getReference(Manufacturer.class, newManufacturer.getId()));
 
 			currentProduct.update(updateData);
-			manufacturerRepository.save(newManufacturer);
-			return new ProductUpdateResponseDTO(currentProduct);
+			return new ProductUpdateResponseDTO(currentProduct, newManufacturer.getName());
 		}
 		currentProduct.update(updateData);
 		return new ProductUpdateResponseDTO(currentProduct);
 	}
 	
+	// strong comparison, so the weak tags of gzip-compressed bodies never match
+	private static boolean matches(String ifMatch, String eTag) {
+		return Arrays.stream(ifMatch.split(","))
+			.map(String::trim)
+			.anyMatch(tag -> tag.equals("*") || tag.equals("\"" + eTag + "\""));
+	}
+	
 	public StockResponseDTO updateStockByProductId(Long productId, StockDTO dto) {
-		Product target = productRepository.getReferenceById(productId);
-		Stock stockUpdate = mapper.map(dto, Stock.class);
-		
-		target.updateStock(stockUpdate.getUnit());
-		return new StockResponseDTO(target.getId(), target.getName(), target.getStock().getUnit());
+		return this.addToStocks(Map.of(productId, dto.getUnit())).stream()
+			.findFirst()
+			.orElseThrow(EntityNotFoundException::new);
 	}
-	public void updateStocks(List<StockWriteOffDTO> dto) {
-		Map<Long, Integer> writeOffValueMap = dto.stream()
-			.collect(Collectors.toMap(StockWriteOffDTO::getProductId, StockWriteOffDTO::getUnit));
-		
-		productRepository.findAllById(dto.stream()
-			.map(StockWriteOffDTO::getProductId)
-			.toList()
-			)
-			.forEach(p -> p.updateStock(writeOffValueMap.get(p.getId())));
+	public List<StockResponseDTO> updateStocks(List<StockWriteOffDTO> dto) {
+		// sorted so concurrent write-offs lock the rows in the same order
+		Map<Long, Integer> deltas = dto.stream()
+			.collect(Collectors.toMap(StockWriteOffDTO::getProductId, StockWriteOffDTO::getUnit, Integer::sum, TreeMap::new));
+		return this.addToStocks(deltas);
+	}
+	/** Writes off the units of orders and frees the reservations they were held under once the write commits. */
+	public List<StockResponseDTO> writeOff(Map<Long, Integer> deltas, Collection<UUID> reservationIds) {
+		return reservations.writeOff(reservationIds, () -> this.addToStocks(deltas));
+	}
+	public List<StockResponseDTO> addToStocks(Map<Long, Integer> deltas) {
+		List<StockResponseDTO> stocks = productRepository.addToStocks(deltas);
+		stockMetrics.applied(deltas, stocks);
+		// the units stored, the ones below zero having been clamped
+		stocks.forEach(stock -> stock.setUnit(Math.max(stock.getUnit(), 0)));
+		cacheInvalidator.evictProducts(deltas.keySet());
+		indexListener.stockChanged(stocks);
+		reservations.stockChanged(deltas.keySet());
+		return stocks;
 	}
 	
 	
 	public ProductResponseDTO createProduct(ProductDTO dto) {
-		Product product = mapper.map(dto, Product.class);
+		Product product = mapper.toProduct(dto);
 		
-		this.setManufacturer(product);
+		ManufacturerResponseDTO manufacturer = this.setManufacturer(product);
 		this.createSpec(product);
 		productRepository.save(product);
+		cacheInvalidator.evictCategory(product.getCategory());
 		
-		return new ProductResponseDTO(product);
+		return new ProductResponseDTO(product, manufacturer);
+	}
+
+	/** The ids the search can be narrowed to: those matching the name or, without one, the price range. */
+	private Optional<List<Long>> searchCandidates(String name, Category category, BigDecimal minPrice, BigDecimal maxPrice) {
+		if (name != null)
+			return this.searchName(name);
+		if (minPrice == null && maxPrice == null)
+			return Optional.empty();
+		return this.indexesSeeTransaction() ? priceIndex.search(category, minPrice, maxPrice) : Optional.empty();
+	}
+
+	private Optional<List<Long>> searchName(String name) {
+		if (name == null || !this.indexesSeeTransaction())
+			return Optional.empty();
+		return nameIndex.search(name);
+	}
+
+	/**
+	 * The indexes only see what has committed, so a transaction that has written
+	 * products, flushed first as Hibernate would before a query, is answered by the database.
+	 */
+	private boolean indexesSeeTransaction() {
+		if (!TransactionSynchronizationManager.isActualTransactionActive() || TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+			return true;
+		entityManager.flush();
+		return !indexListener.changedInTransaction();
 	}
 
-	private void setManufacturer(Product product) {
-		Manufacturer mf = manufacturerRepository
-			.findByName(product.getManufacturer().getName().toUpperCase())
+	private ManufacturerResponseDTO setManufacturer(Product product) {
+		ManufacturerResponseDTO mf = manufacturers
+			.findByName(product.getManufacturer().getName())
 			.orElseThrow(EntityNotFoundException::new);
 
-		product.setManufacturer(mf);
+		product.setManufacturer(entityManager.getReference(Manufacturer.class, mf.getId()));
+		return mf;
 	}
 	private void createSpec(Product product) {
 		List<ProductSpec> specs = product.getSpecs();
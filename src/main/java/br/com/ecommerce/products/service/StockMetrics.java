@@ -0,0 +1,53 @@
+package br.com.ecommerce.products.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Counters of the stock written off and of the stock checks that came up
+ * short, published on {@code /actuator/metrics} and {@code /actuator/prometheus}.
+ */
+@Component
+public class StockMetrics {
+
+	private final Counter writeOffs;
+	private final Counter clamped;
+	private final Counter outOfStock;
+
+	public StockMetrics(MeterRegistry registry) {
+		this.writeOffs = Counter.builder("products.stock.write-offs")
+			.description("Stock write-offs applied to a product")
+			.register(registry);
+		this.clamped = Counter.builder("products.stock.clamped")
+			.description("Stock write-offs larger than the units in stock, clamped at zero")
+			.register(registry);
+		this.outOfStock = Counter.builder("products.stock.out-of-stock")
+			.description("Products reported without enough units by a stock check")
+			.register(registry);
+	}
+
+
+	/**
+	 * Counts the write-offs among {@code deltas} from the units they added up to
+	 * in {@code stocks}, negative for the ones clamped at zero.
+	 */
+	public void applied(Map<Long, Integer> deltas, List<StockResponseDTO> stocks) {
+		stocks.forEach(stock -> {
+			if (deltas.get(stock.getProductId()) >= 0)
+				return;
+			writeOffs.increment();
+			if (stock.getUnit() < 0)
+				clamped.increment();
+		});
+	}
+
+	public void outOfStock(int products) {
+		outOfStock.increment(products);
+	}
+}
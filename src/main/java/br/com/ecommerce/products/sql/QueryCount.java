@@ -0,0 +1,84 @@
+package br.com.ecommerce.products.sql;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Statements run, rows read and written and time spent on the database by the
+ * current thread since the count was started, with the times each statement ran.
+ * <p>
+ * Counts nest: closing one adds it to the count it was started in, so a single
+ * call can be counted inside a request that is counted too.
+ */
+public final class QueryCount implements AutoCloseable {
+
+	private static final ThreadLocal<QueryCount> CURRENT = new ThreadLocal<>();
+
+	private final QueryCount parent;
+	private final Map<String, Integer> executions = new HashMap<>();
+	private long statements;
+	private long rowsRead;
+	private long rowsWritten;
+	private long nanos;
+
+	private QueryCount(QueryCount parent) {
+		this.parent = parent;
+	}
+
+
+	public static QueryCount start() {
+		QueryCount count = new QueryCount(CURRENT.get());
+		CURRENT.set(count);
+		return count;
+	}
+
+	static QueryCount current() {
+		return CURRENT.get();
+	}
+
+	void executed(String sql, long rowsWritten, long nanos) {
+		this.statements++;
+		this.rowsWritten += rowsWritten;
+		this.nanos += nanos;
+		this.executions.merge(sql, 1, Integer::sum);
+	}
+
+	void read() {
+		this.rowsRead++;
+	}
+
+	public long getStatements() {
+		return statements;
+	}
+	public long getRowsRead() {
+		return rowsRead;
+	}
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+	public Duration getTime() {
+		return Duration.ofNanos(nanos);
+	}
+
+	/** The statement run the most times, the usual trace of an N+1, or null when none ran. */
+	public Map.Entry<String, Integer> getMostRepeated() {
+		return executions.entrySet().stream()
+			.max(Map.Entry.comparingByValue())
+			.orElse(null);
+	}
+
+	@Override
+	public void close() {
+		if (parent == null) {
+			CURRENT.remove();
+			return;
+		}
+		CURRENT.set(parent);
+		parent.statements += statements;
+		parent.rowsRead += rowsRead;
+		parent.rowsWritten += rowsWritten;
+		parent.nanos += nanos;
+		executions.forEach((sql, times) -> parent.executions.merge(sql, times, Integer::sum));
+	}
+}
@@ -0,0 +1,41 @@
+package br.com.ecommerce.products.sql;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.NonNull;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+@Configuration
+public class QueryCountConfig {
+
+	/**
+	 * Every data source is wrapped in a proxy that adds the statements it runs
+	 * to the {@link QueryCount} of the calling thread. Threads without one pay
+	 * for a thread-local lookup per statement and per row.
+	 */
+	@Bean
+	static BeanPostProcessor queryCountingDataSource() {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(@NonNull Object bean, @NonNull String beanName) {
+				if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource)
+					return bean;
+				return ProxyDataSourceBuilder.create(beanName, dataSource)
+					.listener(new QueryCountListener())
+					.proxyResultSet(QueryCountListener.RowCountingResultSet::new)
+					.build();
+			}
+		};
+	}
+
+	// declared here rather than scanned, so web slice tests do not pick it up without its recorder
+	@Bean
+	QueryCountFilter queryCountFilter() {
+		return new QueryCountFilter();
+	}
+}
@@ -0,0 +1,91 @@
+package br.com.ecommerce.products.sql;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Counts the statements of every request and, with {@code products.sql.header},
+ * returns the count in the {@code X-Query-*} headers. The headers are written
+ * when the body starts, so they leave out what runs while it is written, such
+ * as the chunks of a streamed export.
+ */
+public class QueryCountFilter extends OncePerRequestFilter {
+
+	public static final String STATEMENTS_HEADER = "X-Query-Count";
+	public static final String ROWS_HEADER = "X-Query-Rows";
+	public static final String TIME_HEADER = "X-Query-Time";
+
+	@Autowired
+	private QueryCountRecorder recorder;
+
+	@Value("${products.sql.header:false}")
+	private boolean header;
+
+
+	@Override
+	protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+			@NonNull FilterChain chain) throws ServletException, IOException {
+		QueryCount count = QueryCount.start();
+		CountingResponse counted = header ? new CountingResponse(response, count) : null;
+		try {
+			chain.doFilter(request, counted == null ? response : counted);
+		} finally {
+			count.close();
+			if (counted != null)
+				counted.writeHeaders();
+			Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+			recorder.record("http", pattern == null ? "UNKNOWN" : pattern.toString(), count);
+		}
+	}
+
+
+	private static class CountingResponse extends HttpServletResponseWrapper {
+
+		private final QueryCount count;
+		private boolean written;
+
+		CountingResponse(HttpServletResponse response, QueryCount count) {
+			super(response);
+			this.count = count;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			this.writeHeaders();
+			return super.getOutputStream();
+		}
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			this.writeHeaders();
+			return super.getWriter();
+		}
+		@Override
+		public void flushBuffer() throws IOException {
+			this.writeHeaders();
+			super.flushBuffer();
+		}
+
+		void writeHeaders() {
+			if (written || isCommitted())
+				return;
+			written = true;
+			setHeader(STATEMENTS_HEADER, String.valueOf(count.getStatements()));
+			setHeader(ROWS_HEADER, String.valueOf(count.getRowsRead() + count.getRowsWritten()));
+			setHeader(TIME_HEADER, String.format(Locale.ROOT, "%.3fms", count.getTime().toNanos() / 1_000_000.0));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package br.com.ecommerce.products.sql;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ConnectionInfo;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ProxyConfig;
+import net.ttddyy.dsproxy.proxy.SimpleResultSetProxyLogic;
+
+/**
+ * Adds every statement run through the proxied data source to the
+ * {@link QueryCount} of the thread running it, if one was started.
+ */
+class QueryCountListener implements QueryExecutionListener {
+
+	private static final String STARTED = "startedAt";
+
+
+	@Override
+	public void beforeQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+		if (QueryCount.current() != null)
+			execution.addCustomValue(STARTED, System.nanoTime());
+	}
+
+	@Override
+	public void afterQuery(ExecutionInfo execution, List<QueryInfo> queries) {
+		QueryCount count = QueryCount.current();
+		Long startedAt = execution.getCustomValue(STARTED, Long.class);
+		if (count == null || startedAt == null)
+			return;
+
+		count.executed(queries.isEmpty() ? "" : queries.get(0).getQuery(), written(execution.getResult()), System.nanoTime() - startedAt);
+	}
+
+	private static long written(Object result) {
+		if (result instanceof Integer rows)
+			return Math.max(rows, 0);
+		if (result instanceof Long rows)
+			return Math.max(rows, 0);
+		long rows = 0;
+		if (result instanceof int[] batch) {
+			for (int updated : batch)
+				rows += Math.max(updated, 0);
+		}
+		return rows;
+	}
+
+
+	/** Counts the rows read from the result sets of the proxied statements. */
+	static class RowCountingResultSet extends SimpleResultSetProxyLogic {
+
+		RowCountingResultSet(ResultSet resultSet, ConnectionInfo connectionInfo, ProxyConfig proxyConfig) {
+			super(resultSet, connectionInfo, proxyConfig);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = super.invoke(proxy, method, args);
+			if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+				QueryCount count = QueryCount.current();
+				if (count != null)
+					count.read();
+			}
+			return result;
+		}
+	}
+}
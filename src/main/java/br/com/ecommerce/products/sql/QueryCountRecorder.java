@@ -0,0 +1,79 @@
+package br.com.ecommerce.products.sql;
+
+import java.util.Map;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Publishes what each HTTP request or consumed AMQP batch ran on the database
+ * as {@code products.sql.*} meters, tagged with the {@code source} and the
+ * {@code name} of the endpoint or queue, and warns when it ran more statements
+ * than {@code products.sql.budget}.
+ */
+@Slf4j
+@Component
+public class QueryCountRecorder {
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Value("${products.sql.budget:20}")
+	private int budget;
+
+
+	public void record(String source, String name, QueryCount count) {
+		DistributionSummary.builder("products.sql.statements")
+			.description("Statements run per request or consumed batch")
+			.tags("source", source, "name", name)
+			.register(registry)
+			.record(count.getStatements());
+		DistributionSummary.builder("products.sql.rows")
+			.description("Rows read or written per request or consumed batch")
+			.tags("source", source, "name", name, "operation", "read")
+			.register(registry)
+			.record(count.getRowsRead());
+		DistributionSummary.builder("products.sql.rows")
+			.description("Rows read or written per request or consumed batch")
+			.tags("source", source, "name", name, "operation", "write")
+			.register(registry)
+			.record(count.getRowsWritten());
+		Timer.builder("products.sql.time")
+			.description("Time spent running statements per request or consumed batch")
+			.tags("source", source, "name", name)
+			.register(registry)
+			.record(count.getTime());
+
+		if (count.getStatements() <= budget)
+			return;
+		Counter.builder("products.sql.over-budget")
+			.description("Requests or consumed batches that ran more statements than the budget")
+			.tags("source", source, "name", name)
+			.register(registry)
+			.increment();
+		Map.Entry<String, Integer> repeated = count.getMostRepeated();
+		log.warn("{} {} ran {} statements, over the budget of {}; the most repeated ran {} times: {}",
+			source, name, count.getStatements(), budget, repeated.getValue(), repeated.getKey());
+	}
+
+	/** Counts each delivery to the listeners of a container, to be set on its advice chain. */
+	public MethodInterceptor listener(String queue) {
+		return invocation -> {
+			QueryCount count = QueryCount.start();
+			try {
+				return invocation.proceed();
+			} finally {
+				count.close();
+				this.record("amqp", queue, count);
+			}
+		};
+	}
+}
@@ -0,0 +1,90 @@
+package br.com.ecommerce.products.integration;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class MetricsIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    private Long productId;
+
+    @BeforeEach
+    void setup() {
+        Manufacturer manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+        ProductSpec spec = new ProductSpec("cores", "8");
+        Product product = new Product("p1", "d", BigDecimal.TEN, Category.CPU, new Stock(5), manufacturer, List.of(spec));
+        spec.setProduct(product);
+        productId = repository.save(product).getId();
+    }
+
+
+    @Test
+    @DisplayName("Integration - prometheus - Must expose the endpoint and service timers with percentiles and the stock counters")
+    void prometheusTest01() throws Exception {
+        // arrange
+        mvc.perform(get("/products/" + productId)).andExpect(status().isOk());
+        mvc.perform(post("/products/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"id\": " + productId + ", \"unit\": 10}]"))
+            .andExpect(status().isMultiStatus());
+        mvc.perform(put("/products/" + productId + "/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"unit\": -10}"))
+            .andExpect(status().isOk());
+
+        // act
+        mvc.perform(get("/actuator/prometheus"))
+
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("http_server_requests_seconds_bucket{")))
+        .andExpect(content().string(containsString("uri=\"/products/{productId}\"")))
+        .andExpect(content().string(containsString("method=\"getProduct\"")))
+        .andExpect(content().string(containsString("products_service_seconds{class=\"br.com.ecommerce.products.service.ProductService\"")))
+        .andExpect(content().string(containsString("quantile=\"0.99\"")))
+        .andExpect(content().string(containsString("products_stock_out_of_stock_total 1.0")))
+        .andExpect(content().string(containsString("products_stock_write_offs_total 1.0")))
+        .andExpect(content().string(containsString("products_stock_clamped_total 1.0")));
+    }
+}
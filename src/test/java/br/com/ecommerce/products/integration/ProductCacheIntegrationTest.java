@@ -0,0 +1,221 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import br.com.ecommerce.products.cache.CacheConfig;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.ProductUpdateDTO;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.model.product.StockWriteOffDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ManufacturerService;
+import br.com.ecommerce.products.service.ProductService;
+import jakarta.persistence.EntityNotFoundException;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductCacheIntegrationTest {
+
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private ManufacturerService manufacturerService;
+
+    @SpyBean
+    private ProductRepository repository;
+    @SpyBean
+    private ManufacturerRepository manufacturerRepository;
+
+    @Autowired
+    private TransactionTemplate transaction;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Product product;
+
+    @BeforeEach
+    void setup() {
+        Manufacturer manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+        ProductSpec spec = new ProductSpec("cores", "12");
+        Product p = Product.builder()
+            .name("aaa")
+            .description("ddd")
+            .price(BigDecimal.valueOf(1000))
+            .category(Category.CPU)
+            .stock(new Stock(1000))
+            .manufacturer(manufacturer)
+            .specs(List.of(spec))
+            .build();
+        spec.setProduct(p);
+        this.product = repository.save(p);
+    }
+
+
+    @Test
+    @DisplayName("Integration - getProduct - Repeated reads must be served from the cache")
+    void getProductTest01() {
+        // act
+        getProduct();
+        getProduct();
+        ProductResponseDTO result = getProduct();
+
+        // assert
+        assertEquals(product.getName(), result.getName());
+        verify(repository, times(1)).findById(anyLong());
+
+        CacheStats stats = stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(1, stats.missCount());
+    }
+
+    @Test
+    @DisplayName("Integration - updateProductData - Must invalidate the cached product")
+    void updateProductDataTest01() {
+        // arrange
+        getProduct();
+
+        // act
+        transaction.executeWithoutResult(status -> service.updateProductData(
+            product.getId(), new ProductUpdateDTO("UPDATED", null, null, null, null)));
+
+        // assert
+        assertEquals("UPDATED", getProduct().getName());
+    }
+
+    @Test
+    @DisplayName("Integration - updateStockByProductId - Must invalidate the cached product")
+    void updateStockByProductIdTest01() {
+        // arrange
+        getProduct();
+
+        // act
+        transaction.executeWithoutResult(status -> service.updateStockByProductId(product.getId(), new StockDTO(-100)));
+
+        // assert
+        assertEquals(900, getProduct().getStock().getUnit());
+    }
+
+    @Test
+    @DisplayName("Integration - updateStocks - Must invalidate every product written off")
+    void updateStocksTest01() {
+        // arrange
+        getProduct();
+
+        // act
+        transaction.executeWithoutResult(status -> service.updateStocks(List.of(new StockWriteOffDTO(product.getId(), 10))));
+
+        // assert
+        assertEquals(990, getProduct().getStock().getUnit());
+    }
+
+    @Test
+    @DisplayName("Integration - updateManufacturerData - Must invalidate the products of the manufacturer")
+    void updateManufacturerDataTest01() {
+        // arrange
+        getProduct();
+
+        // act
+        transaction.executeWithoutResult(status -> manufacturerService.updateManufacturerData(
+            product.getManufacturer().getId(), new ManufacturerDTO("intel")));
+
+        // assert
+        assertEquals("INTEL", getProduct().getManufacturer().getName());
+    }
+
+    @Test
+    @DisplayName("Integration - updateProductData - A rolled back update must not invalidate the cached product")
+    void updateProductDataTest02() {
+        // arrange
+        getProduct();
+
+        // act
+        transaction.executeWithoutResult(status -> {
+            service.updateProductData(product.getId(), new ProductUpdateDTO("UPDATED", null, null, null, null));
+            status.setRollbackOnly();
+        });
+
+        // assert
+        assertEquals(product.getName(), getProduct().getName());
+        assertEquals(1, stats().hitCount());
+    }
+
+    @Test
+    @DisplayName("Integration - createProduct - The manufacturer must be looked up once for repeated creates")
+    void createProductTest01() {
+        // act
+        ProductResponseDTO first = createProduct("amd");
+        ProductResponseDTO second = createProduct("AMD");
+
+        // assert
+        assertEquals("AMD", first.getManufacturer().getName());
+        assertEquals(product.getManufacturer().getId(), second.getManufacturer().getId());
+        verify(manufacturerRepository, times(1)).findByName("AMD");
+        assertEquals(3, repository.findIdsByManufacturerId(product.getManufacturer().getId()).size());
+    }
+
+    @Test
+    @DisplayName("Integration - updateManufacturerData - Must invalidate the cached manufacturer names")
+    void updateManufacturerDataTest02() {
+        // arrange
+        createProduct("AMD");
+
+        // act
+        transaction.executeWithoutResult(status -> manufacturerService.updateManufacturerData(
+            product.getManufacturer().getId(), new ManufacturerDTO("intel")));
+
+        // assert
+        assertThrows(EntityNotFoundException.class, () -> createProduct("AMD"));
+        assertEquals("INTEL", createProduct("intel").getManufacturer().getName());
+    }
+
+    private ProductResponseDTO createProduct(String manufacturer) {
+        ProductDTO dto = new ProductDTO(
+            "new", "ddd", BigDecimal.TEN, Category.CPU, new StockDTO(1), new ManufacturerDTO(manufacturer),
+            List.of(new ProductSpecDTO("cores", "8")));
+        return transaction.execute(status -> service.createProduct(dto));
+    }
+
+    private ProductResponseDTO getProduct() {
+        return transaction.execute(status -> service.getProduct(product.getId()));
+    }
+
+    private CacheStats stats() {
+        var decorator = (TransactionAwareCacheDecorator) cacheManager.getCache(CacheConfig.PRODUCTS);
+        return ((CaffeineCache) decorator.getTargetCache()).getNativeCache().stats();
+    }
+}
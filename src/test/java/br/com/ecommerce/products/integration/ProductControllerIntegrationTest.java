@@ -1,10 +1,18 @@
 package br.com.ecommerce.products.integration;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.IOException;
@@ -23,12 +31,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureWebMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.jayway.jsonpath.JsonPath;
+
+import br.com.ecommerce.products.index.ProductIndexListener;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
 import br.com.ecommerce.products.model.product.Category;
@@ -59,6 +73,10 @@ class ProductControllerIntegrationTest {
     private ProductRepository repository;
     @Autowired
     private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private ProductIndexListener indexListener;
+    @Autowired
+    private JdbcTemplate jdbc;
 
     @Autowired
     private JacksonTester<ProductDTO> productDTOJson;
@@ -86,6 +104,7 @@ class ProductControllerIntegrationTest {
         Product p2 = createProduct(manufacturersPersisted.get(0), "bbb", "ddd", BigDecimal.valueOf(100), Category.CPU, 100, "cores", "8");
         Product p3 = createProduct(manufacturersPersisted.get(1), "ccc", "ddd", BigDecimal.TEN, Category.GPU, 10, "memory size", "8GB");
         this.productsPersisted = repository.saveAll(List.of(p1, p2, p3));
+        indexListener.awaitQueued();
     }
 
 
@@ -129,6 +148,53 @@ class ProductControllerIntegrationTest {
         });
     }
 
+    @Test
+    @DisplayName("Integration - exportProducts - Must stream one product per line")
+    void exportProductsTest01() throws IOException, Exception {
+        // act
+        MvcResult result = mvc.perform(get("/products/export").param("manufacturer", "amd"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        // assert
+        String ndjson = mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        List<String> lines = ndjson.lines().toList();
+        assertEquals(2, lines.size());
+        assertEquals("aaa", JsonPath.read(lines.get(0), "$.name"));
+        assertEquals("12", JsonPath.read(lines.get(0), "$.specs[0].value"));
+        assertEquals("bbb", JsonPath.read(lines.get(1), "$.name"));
+    }
+
+    @Test
+    @DisplayName("Integration - importProducts - Must save the valid lines and report the invalid ones")
+    void importProductsTest01() throws IOException, Exception {
+        // arrange
+        ProductDTO valid = new ProductDTO(
+            "imported",
+            "description",
+            BigDecimal.TEN,
+            Category.SSD, new StockDTO(5),
+            new ManufacturerDTO("intel"),
+            List.of(new ProductSpecDTO("read", "7500MB/s")));
+        String ndjson = productDTOJson.write(valid).getJson() + "\n{\"name\":\"\"}\n";
+
+        // act
+        mvc.perform(
+            post("/products/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson)
+        )
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.imported").value(1))
+        .andExpect(jsonPath("$.failed").value(1))
+        .andExpect(jsonPath("$.errors[0].line").value(2));
+
+        assertEquals(4, repository.count());
+    }
+
     @Test
     @DisplayName("Integration - verifyStocks - Must return status 207 and product stock")
     void verifyStocksTest01() throws IOException, Exception {
@@ -186,6 +252,117 @@ class ProductControllerIntegrationTest {
         .andExpect(content().string(""));
     }
 
+    @Test
+    @DisplayName("Integration - reserveStocks - Reserved units must be unavailable until the reservation is confirmed")
+    void reserveStocksTest01() throws IOException, Exception {
+        // arrange
+        Product product = productsPersisted.get(0);
+        var ID = product.getId();
+        int STOCK = product.getStock().getUnit();
+        List<ProductIdAndUnitsDTO> reserveAll = List.of(new ProductIdAndUnitsDTO(ID, STOCK));
+
+        // act
+        String reservation = mvc.perform(
+            post("/products/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productIdAndUnitsDTOJson.write(reserveAll).getJson())
+        )
+        // assert
+        .andExpect(status().isCreated())
+        .andExpect(jsonPath("$.id").exists())
+        .andExpect(jsonPath("$.units." + ID).value(STOCK))
+        .andExpect(jsonPath("$.expiresAt").exists())
+        .andReturn().getResponse().getContentAsString();
+        String RESERVATION_ID = JsonPath.read(reservation, "$.id");
+
+        mvc.perform(
+            post("/products/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productIdAndUnitsDTOJson.write(List.of(new ProductIdAndUnitsDTO(ID, 1))).getJson())
+        )
+        .andExpect(status().isMultiStatus())
+        .andExpect(jsonPath("$[0].productId").value(ID))
+        .andExpect(jsonPath("$[0].unit").value(0));
+
+        mvc.perform(
+            post("/products/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productIdAndUnitsDTOJson.write(List.of(new ProductIdAndUnitsDTO(ID, 1))).getJson())
+        )
+        .andExpect(status().isConflict())
+        .andExpect(jsonPath("$.error[0].productId").value(ID))
+        .andExpect(jsonPath("$.error[0].unit").value(0));
+
+        mvc.perform(post("/products/reservations/{reservationId}/confirm", RESERVATION_ID))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].productId").value(ID))
+        .andExpect(jsonPath("$[0].unit").value(0));
+
+        assertEquals(0, repository.findById(ID).orElseThrow().getStock().getUnit());
+        mvc.perform(post("/products/reservations/{reservationId}/confirm", RESERVATION_ID))
+        .andExpect(status().isNotFound());
+    }
+    @Test
+    @DisplayName("Integration - releaseReservation - Must return status 204 and free the reserved units")
+    void releaseReservationTest01() throws IOException, Exception {
+        // arrange
+        Product product = productsPersisted.get(2);
+        var ID = product.getId();
+        int STOCK = product.getStock().getUnit();
+        String reservation = mvc.perform(
+            post("/products/reservations")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productIdAndUnitsDTOJson.write(List.of(new ProductIdAndUnitsDTO(ID, STOCK))).getJson())
+        )
+        .andReturn().getResponse().getContentAsString();
+        String RESERVATION_ID = JsonPath.read(reservation, "$.id");
+
+        // act
+        mvc.perform(delete("/products/reservations/{reservationId}", RESERVATION_ID))
+        // assert
+        .andExpect(status().isNoContent());
+
+        mvc.perform(
+            post("/products/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productIdAndUnitsDTOJson.write(List.of(new ProductIdAndUnitsDTO(ID, STOCK))).getJson())
+        )
+        .andExpect(status().isOk());
+        mvc.perform(delete("/products/reservations/{reservationId}", RESERVATION_ID))
+        .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Integration - getAllProductsByParams - Must return status 200 and a keyset page when the after parameter is present")
+    void getAllProductsByParamsTest01() throws IOException, Exception {
+        // act
+        mvc.perform(
+            get("/products")
+                .param("after", "")
+                .param("size", "1")
+                .param("category", "CPU")
+        )
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.content", hasSize(1)))
+        .andExpect(jsonPath("$.content[0].name").value("aaa"))
+        .andExpect(jsonPath("$.size").value(1))
+        .andExpect(jsonPath("$.totalElements").doesNotExist())
+        .andExpect(jsonPath("$.next").exists());
+    }
+
+    @Test
+    @DisplayName("Integration - getAllProductsByParams - Must return status 400 when the after parameter is not a valid cursor")
+    void getAllProductsByParamsTest02() throws IOException, Exception {
+        // act
+        mvc.perform(
+            get("/products")
+                .param("after", "not-a-cursor")
+        )
+        // assert
+        .andExpect(status().isBadRequest());
+    }
+
     @Test
     @DisplayName("Integration - readAllBySpecs - Must return status 201 and product data that correspond to the specifications")
     void readAllBySpecsTest01() throws IOException, Exception {
@@ -252,6 +429,30 @@ class ProductControllerIntegrationTest {
         .andExpect(jsonPath("$[1].price").value(EXPECTED_PRICE_2));
     }
     
+    @Test
+    @DisplayName("Integration - getPrices - Must return status 207 with the prices in request order and the missing ids")
+    void getPricesTest02() throws IOException, Exception {
+        // arrange
+        var ID_PRODUCT_1 = productsPersisted.get(0).getId();
+        var ID_PRODUCT_3 = productsPersisted.get(2).getId();
+        var requestBody = List.of(ID_PRODUCT_3, 999L, ID_PRODUCT_1);
+        
+        // act
+        mvc.perform(
+            post("/products/prices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(idsListJson.write(requestBody).getJson())
+        )
+        // assert
+        .andExpect(status().isMultiStatus())
+        .andExpect(jsonPath("$", hasSize(3)))
+        .andExpect(jsonPath("$[0].id").value(ID_PRODUCT_3))
+        .andExpect(jsonPath("$[0].price").value(productsPersisted.get(2).getPrice().doubleValue()))
+        .andExpect(jsonPath("$[1].id").value(999))
+        .andExpect(jsonPath("$[1].price").doesNotExist())
+        .andExpect(jsonPath("$[2].id").value(ID_PRODUCT_1));
+    }
+    
     @Test
     @DisplayName("Integration - updateProduct - Must return status 200 and product data updated")
     void updateProductTest01() throws IOException, Exception {
@@ -286,6 +487,56 @@ class ProductControllerIntegrationTest {
         .andExpect(jsonPath("$.category").value(EXPECTED_CATEGORY))
         .andExpect(jsonPath("$.manufacturer.name").value(EXPECTED_MANUFACTURER_NAME));
     }
+
+    @Test
+    @DisplayName("Integration - updateProduct - Must return status 409 when If-Match is not the current ETag of the product")
+    void updateProductTest02() throws Exception {
+        // arrange
+        Long productId = productsPersisted.get(0).getId();
+        String eTag = mvc.perform(get("/products/" + productId))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(put("/products/" + productId + "/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stockDTOJson.write(new StockDTO(-1)).getJson()))
+            .andExpect(status().isOk());
+
+        // act and assert
+        mvc.perform(put("/products/" + productId)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"stale\"}"))
+            .andExpect(status().isConflict());
+
+        String newETag = mvc.perform(get("/products/" + productId))
+            .andExpect(jsonPath("$.name").value("aaa"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mvc.perform(put("/products/" + productId)
+                .header(HttpHeaders.IF_MATCH, newETag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"current\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("current"));
+    }
+
+    @Test
+    @DisplayName("Integration - updateProduct - Must compare If-Match with the database when the cached product is older")
+    void updateProductTest03() throws Exception {
+        // arrange
+        Long productId = productsPersisted.get(0).getId();
+        mvc.perform(get("/products/" + productId)).andExpect(status().isOk());
+        // a stock write that leaves the product in the second-level cache at its previous version
+        jdbc.update("UPDATE products SET version = version + 1, unit = unit - 1 WHERE id = ?", productId);
+        String eTag = "\"" + repository.findVersionById(productId).orElseThrow().eTag() + "\"";
+
+        // act and assert
+        mvc.perform(put("/products/" + productId)
+                .header(HttpHeaders.IF_MATCH, eTag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"current\"}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("current"));
+    }
+
     @Test
     @DisplayName("Integration - updateStock - Must reduce stock and return status 200")
     void updateStockTest01() throws IOException, Exception {
@@ -333,6 +584,168 @@ class ProductControllerIntegrationTest {
         .andExpect(jsonPath("$.unit").value(EXPECTED_UNITS));
     }
 
+    @Test
+    @DisplayName("Integration - getProduct - Must return status 304 while the ETag matches and 200 with a new one after a stock update")
+    void getProductTest01() throws Exception {
+        // arrange
+        Long productId = productsPersisted.get(0).getId();
+        String eTag = mvc.perform(get("/products/" + productId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.name").value("aaa"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act and assert
+        mvc.perform(get("/products/" + productId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, eTag))
+            .andExpect(content().string(""));
+
+        mvc.perform(put("/products/" + productId + "/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stockDTOJson.write(new StockDTO(-1)).getJson()))
+            .andExpect(status().isOk());
+
+        String newETag = mvc.perform(get("/products/" + productId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.stock.unit").value(999))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, newETag);
+    }
+
+    @Test
+    @DisplayName("Integration - getProduct - The ETag must change when the manufacturer of the product is renamed")
+    void getProductTest02() throws Exception {
+        // arrange
+        Long productId = productsPersisted.get(0).getId();
+        String eTag = mvc.perform(get("/products/" + productId))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // act
+        mvc.perform(put("/manufacturers/" + manufacturersPersisted.get(0).getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"AMD RADEON\"}"))
+            .andExpect(status().isOk());
+
+        // assert
+        mvc.perform(get("/products/" + productId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.manufacturer.name").value("AMD RADEON"));
+    }
+
+    @Test
+    @DisplayName("Integration - getAllProductsByParams - Must return a weak ETag and status 304 while the page is unchanged")
+    void getAllProductsByParamsETagTest01() throws Exception {
+        // arrange
+        String eTag = mvc.perform(get("/products").param("category", "CPU"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue(eTag.startsWith("W/"));
+
+        // act and assert
+        mvc.perform(get("/products").param("category", "CPU").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isNotModified());
+        mvc.perform(get("/products").param("category", "GPU").header(HttpHeaders.IF_NONE_MATCH, eTag))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Integration - getAllProductsByParams - A cached category page must not outlive a stock update or a new product")
+    void getAllProductsByParamsJsonCacheTest01() throws Exception {
+        // arrange
+        Long productId = productsPersisted.get(0).getId();
+        mvc.perform(get("/products").param("category", "CPU"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$.content", hasSize(2)))
+            .andExpect(jsonPath("$.content[0].stock.unit").value(1000));
+
+        // act
+        mvc.perform(put("/products/" + productId + "/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stockDTOJson.write(new StockDTO(-1)).getJson()))
+            .andExpect(status().isOk());
+        mvc.perform(post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productDTOJson.write(new ProductDTO("new", "ddd", BigDecimal.ONE, Category.CPU, new StockDTO(1),
+                    new ManufacturerDTO("AMD"), List.of(new ProductSpecDTO("cores", "4")))).getJson()))
+            .andExpect(status().isCreated());
+
+        // assert
+        mvc.perform(get("/products").param("category", "CPU"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content", hasSize(3)))
+            .andExpect(jsonPath("$.content[0].stock.unit").value(999));
+        mvc.perform(get("/products/" + productId))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.stock.unit").value(999));
+    }
+
+    @Test
+    @DisplayName("Integration - getFacets - The counts must follow new products and stocks reaching zero")
+    void getFacetsTest01() throws Exception {
+        // arrange
+        mvc.perform(get("/products/facets"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.categories.CPU").value(2))
+            .andExpect(jsonPath("$.categories.GPU").value(1))
+            .andExpect(jsonPath("$.manufacturers.AMD").value(2))
+            .andExpect(jsonPath("$.manufacturers.INTEL").value(1));
+
+        // act
+        mvc.perform(put("/products/" + productsPersisted.get(2).getId() + "/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(stockDTOJson.write(new StockDTO(-10)).getJson()))
+            .andExpect(status().isOk());
+        mvc.perform(post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productDTOJson.write(new ProductDTO("new", "ddd", BigDecimal.ONE, Category.CPU, new StockDTO(1),
+                    new ManufacturerDTO("INTEL"), List.of(new ProductSpecDTO("cores", "4")))).getJson()))
+            .andExpect(status().isCreated());
+        indexListener.awaitQueued();
+
+        // assert
+        mvc.perform(get("/products/facets"))
+            .andExpect(jsonPath("$.categories.CPU").value(3))
+            .andExpect(jsonPath("$.categories.GPU").doesNotExist())
+            .andExpect(jsonPath("$.manufacturers.INTEL").value(1));
+        mvc.perform(get("/products/facets").param("category", "CPU").param("manufacturer", "amd"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.categories.CPU").value(2))
+            .andExpect(jsonPath("$.manufacturers.AMD").value(2))
+            .andExpect(jsonPath("$.manufacturers.INTEL").value(1));
+    }
+
+    @Test
+    @DisplayName("Integration - getPriceHistogram - Must count the products in each price range, including those just created")
+    void getPriceHistogramTest01() throws Exception {
+        // arrange
+        mvc.perform(get("/products/prices/histogram").param("category", "CPU").param("buckets", "2"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$", hasSize(2)))
+            .andExpect(jsonPath("$[0].from").value(100))
+            .andExpect(jsonPath("$[0].count").value(1))
+            .andExpect(jsonPath("$[1].count").value(1));
+
+        // act
+        mvc.perform(post("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(productDTOJson.write(new ProductDTO("new", "ddd", BigDecimal.valueOf(500), Category.CPU, new StockDTO(1),
+                    new ManufacturerDTO("INTEL"), List.of(new ProductSpecDTO("cores", "4")))).getJson()))
+            .andExpect(status().isCreated());
+        indexListener.awaitQueued();
+
+        // assert
+        mvc.perform(get("/products/prices/histogram").param("category", "CPU").param("buckets", "2"))
+            .andExpect(jsonPath("$[0].count").value(2))
+            .andExpect(jsonPath("$[1].count").value(1));
+        mvc.perform(get("/products").param("category", "CPU").param("minPrice", "200").param("maxPrice", "999.99"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content", hasSize(1)))
+            .andExpect(jsonPath("$.content[0].name").value("new"));
+        mvc.perform(get("/products/prices/histogram").param("buckets", "0"))
+            .andExpect(status().isBadRequest());
+    }
+
     Product createProduct(Manufacturer manufacturer, String name, String description, BigDecimal price, Category category, int stockUnits, String specAttribute, String specValue) {
         ProductSpec spec = new ProductSpec(specAttribute, specValue);
         Product product = Product.builder()
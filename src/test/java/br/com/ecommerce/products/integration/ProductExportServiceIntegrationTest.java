@@ -0,0 +1,108 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductExportService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductExportServiceIntegrationTest {
+
+    @Autowired
+    private ProductExportService service;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() {
+        List<Manufacturer> manufacturers = manufacturerRepository.saveAll(List.of(new Manufacturer("AMD"), new Manufacturer("INTEL")));
+        repository.saveAll(List.of(
+            createProduct(manufacturers.get(0), "p1", Category.CPU),
+            createProduct(manufacturers.get(0), "p2", Category.GPU),
+            createProduct(manufacturers.get(1), "p3", Category.CPU),
+            createProduct(manufacturers.get(0), "p4", Category.CPU),
+            createProduct(manufacturers.get(1), "p5", Category.GPU)));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+    }
+
+
+    @Test
+    @DisplayName("Integration - exportProducts - Must write every product with its specs, one per line, in id order")
+    void exportProductsTest01() throws Exception {
+        // act
+        List<ProductResponseDTO> exported = this.export(null, null);
+
+        // assert
+        assertEquals(List.of("p1", "p2", "p3", "p4", "p5"), exported.stream().map(ProductResponseDTO::getName).toList());
+        exported.forEach(product -> {
+            assertEquals(1, product.getSpecs().size());
+            assertEquals(product.getName(), product.getSpecs().get(0).getValue());
+        });
+    }
+
+    @Test
+    @DisplayName("Integration - exportProducts - Must write only the products of the category and manufacturer")
+    void exportProductsTest02() throws Exception {
+        // act
+        List<ProductResponseDTO> exported = this.export(Category.CPU, "amd");
+
+        // assert
+        assertEquals(List.of("p1", "p4"), exported.stream().map(ProductResponseDTO::getName).toList());
+        assertEquals(List.of(), this.export(Category.SSD, null));
+    }
+
+    private List<ProductResponseDTO> export(Category category, String manufacturer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportProducts(category, manufacturer, out);
+
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        return ndjson.lines()
+            .map(line -> {
+                try {
+                    return objectMapper.readValue(line, ProductResponseDTO.class);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            })
+            .toList();
+    }
+
+    private Product createProduct(Manufacturer manufacturer, String name, Category category) {
+        Product product = new Product(name, "d", BigDecimal.TEN, category, new Stock(1), manufacturer,
+            List.of(new ProductSpec("name", name)));
+        product.getSpecs().forEach(spec -> spec.setProduct(product));
+        return product;
+    }
+}
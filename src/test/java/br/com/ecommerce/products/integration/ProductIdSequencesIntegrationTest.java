@@ -0,0 +1,66 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductIdSequences;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext
+class ProductIdSequencesIntegrationTest {
+
+    @Autowired
+    private ProductIdSequences sequences;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+
+    @Test
+    @DisplayName("Integration - moveSequencesPastIds - Ids generated after a sequence fell behind must not collide with the rows")
+    void moveSequencesPastIdsTest01() {
+        // arrange
+        Manufacturer manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+        jdbc.update("INSERT INTO products (id, name, description, price, category, unit, manufacturer_id, version)"
+            + " VALUES (100, 'old', 'ddd', 10, 'CPU', 1, ?, 0)", manufacturer.getId());
+        jdbc.update("INSERT INTO product_specs (id, attribute, \"value\", product_id) VALUES (100, 'cores', '8', 100)");
+
+        // act
+        sequences.moveSequencesPastIds();
+        Product product = repository.save(product(manufacturer));
+
+        // assert
+        assertTrue(product.getId() > 100);
+        assertTrue(product.getSpecs().get(0).getId() > 100);
+    }
+
+    private static Product product(Manufacturer manufacturer) {
+        ProductSpec spec = new ProductSpec("cores", "12");
+        Product product = new Product("new", "ddd", BigDecimal.TEN, Category.CPU, new Stock(1), manufacturer, List.of(spec));
+        spec.setProduct(product);
+        return product;
+    }
+}
@@ -0,0 +1,109 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductImportErrorDTO;
+import br.com.ecommerce.products.model.product.ProductImportResultDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductImportService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductImportServiceIntegrationTest {
+
+    @Autowired
+    private ProductImportService service;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @BeforeEach
+    void setup() {
+        manufacturerRepository.saveAll(List.of(new Manufacturer("AMD"), new Manufacturer("INTEL")));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+    }
+
+
+    @Test
+    @DisplayName("Integration - importProducts - Must save every valid line and report the others by line number")
+    void importProductsTest01() throws Exception {
+        // arrange
+        String ndjson = String.join("\n",
+            line("p1", "amd"),
+            line("p2", "intel"),
+            "{not json",
+            "",
+            line("p3", "unknown"),
+            "{\"name\":\"p4\",\"description\":\"d\",\"price\":10,\"category\":\"CPU\",\"stock\":{\"unit\":1},\"manufacturer\":{\"name\":\"AMD\"},\"specs\":[]}",
+            line("p5", "amd"));
+
+        // act
+        ProductImportResultDTO result = service.importProducts(stream(ndjson));
+
+        // assert
+        assertEquals(3, result.getImported());
+        assertEquals(3, result.getFailed());
+        assertEquals(List.of(3L, 5L, 6L), result.getErrors().stream().map(ProductImportErrorDTO::getLine).toList());
+        assertEquals("Manufacturer not found: UNKNOWN", result.getErrors().get(1).getError());
+        assertEquals("specs: must not be empty", result.getErrors().get(2).getError());
+
+        List<Product> saved = repository.findAll();
+        assertEquals(List.of("p1", "p2", "p5"), saved.stream().map(Product::getName).sorted().toList());
+        List<Integer> specs = transaction.execute(status -> repository.findAll().stream().map(p -> p.getSpecs().size()).toList());
+        assertEquals(List.of(1, 1, 1), specs);
+    }
+
+    @Test
+    @DisplayName("Integration - importProducts - Must save the rest of a chunk when one of its products cannot be saved")
+    void importProductsTest02() throws Exception {
+        // arrange
+        String ndjson = String.join("\n",
+            line("p1", "amd"),
+            line("x".repeat(300), "amd"),
+            line("p3", "amd"));
+
+        // act
+        ProductImportResultDTO result = service.importProducts(stream(ndjson));
+
+        // assert
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(2L, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getError().startsWith("Could not be saved"));
+        assertEquals(List.of("p1", "p3"), repository.findAll().stream().map(Product::getName).sorted().toList());
+    }
+
+    private static String line(String name, String manufacturer) {
+        return "{\"name\":\"" + name + "\",\"description\":\"d\",\"price\":10,\"category\":\"CPU\",\"stock\":{\"unit\":1},"
+            + "\"manufacturer\":{\"name\":\"" + manufacturer + "\"},\"specs\":[{\"attribute\":\"cores\",\"value\":\"8\"}]}";
+    }
+
+    private static ByteArrayInputStream stream(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+}
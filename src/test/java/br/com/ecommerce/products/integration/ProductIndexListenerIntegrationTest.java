@@ -0,0 +1,128 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.ecommerce.products.index.ProductFacetIndex;
+import br.com.ecommerce.products.index.ProductFacetIndex.FacetFilter;
+import br.com.ecommerce.products.index.ProductIndexListener;
+import br.com.ecommerce.products.index.ProductNameIndex;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductIndexListenerIntegrationTest {
+
+    private static final FacetFilter NO_FILTER = new FacetFilter(null, null, null, null, null);
+
+    @Autowired
+    private ProductIndexListener listener;
+    @Autowired
+    private ProductNameIndex nameIndex;
+    @Autowired
+    private ProductFacetIndex facetIndex;
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private TransactionTemplate transaction;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private Manufacturer manufacturer;
+
+    @BeforeEach
+    void setup() {
+        manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+    }
+
+
+    @Test
+    @DisplayName("Integration - onSave - A product must only be indexed once its transaction commits")
+    void onSaveTest01() {
+        // act
+        transaction.executeWithoutResult(status -> {
+            repository.saveAndFlush(product("ryzen"));
+            assertEquals(Optional.of(List.of()), nameIndex.search("ryzen"), "flushed, not committed");
+            status.setRollbackOnly();
+        });
+        Long id = transaction.execute(status -> repository.save(product("athlon")).getId());
+        listener.awaitQueued();
+
+        // assert
+        assertEquals(Optional.of(List.of()), nameIndex.search("ryzen"));
+        assertEquals(Optional.of(List.of(id)), nameIndex.search("athlon"));
+    }
+
+    @Test
+    @DisplayName("Integration - stockChanged - Must change the facets from the units written, without reading the product")
+    void stockChangedTest01() {
+        // arrange
+        Long id = repository.save(product("ryzen")).getId();
+        listener.awaitQueued();
+        facetIndex.count(NO_FILTER);
+        jdbc.update("UPDATE products SET name = 'threadripper' WHERE id = ?", id);
+
+        // act
+        transaction.executeWithoutResult(status -> service.addToStocks(Map.of(id, -10)));
+        listener.awaitQueued();
+
+        // assert
+        assertEquals(Map.of(), facetIndex.count(NO_FILTER).categories());
+        assertEquals(Optional.of(List.of(id)), nameIndex.search("ryzen"), "not read again");
+    }
+
+    @Test
+    @DisplayName("Integration - resync - Must pick up the rows written without going through the listener")
+    void resyncTest01() {
+        // arrange
+        Long id = repository.save(product("ryzen")).getId();
+        jdbc.update("UPDATE products SET name = 'threadripper' WHERE id = ?", id);
+
+        // act
+        listener.resync();
+
+        // assert
+        assertEquals(Optional.of(List.of()), nameIndex.search("ryzen"));
+        assertEquals(Optional.of(List.of(id)), nameIndex.search("threadripper"));
+    }
+
+    private Product product(String name) {
+        return Product.builder()
+            .name(name)
+            .description("ddd")
+            .price(BigDecimal.TEN)
+            .category(Category.CPU)
+            .stock(new Stock(10))
+            .manufacturer(manufacturer)
+            .specs(List.of())
+            .build();
+    }
+}
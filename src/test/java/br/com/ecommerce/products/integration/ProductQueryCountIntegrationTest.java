@@ -0,0 +1,218 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.ecommerce.products.cache.CacheConfig;
+import br.com.ecommerce.products.index.ProductIndexListener;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.model.product.StockWriteOffDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductExportService;
+import br.com.ecommerce.products.service.ProductService;
+import br.com.ecommerce.products.sql.QueryCount;
+import br.com.ecommerce.products.utils.QueryCounter;
+import br.com.ecommerce.products.utils.QueryCounter.Counted;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductQueryCountIntegrationTest {
+
+    private static final int PRODUCTS = 25;
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private ProductExportService exportService;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private ProductIndexListener indexListener;
+
+    @Autowired
+    private TransactionTemplate transaction;
+    @Autowired
+    private CacheManager cacheManager;
+
+    private List<Long> ids;
+
+    @BeforeEach
+    void setup() {
+        List<Manufacturer> manufacturers = manufacturerRepository.saveAll(
+            List.of(new Manufacturer("AMD"), new Manufacturer("INTEL"), new Manufacturer("NVIDIA")));
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            List<ProductSpec> specs = List.of(new ProductSpec("cores", "8"), new ProductSpec("series", "s" + i));
+            Product product = Product.builder()
+                .name("product-" + i)
+                .description("ddd")
+                .price(BigDecimal.valueOf(100 + i))
+                .category(Category.CPU)
+                .stock(new Stock(10))
+                .manufacturer(manufacturers.get(i % manufacturers.size()))
+                .specs(specs)
+                .build();
+            specs.forEach(spec -> spec.setProduct(product));
+            products.add(product);
+        }
+        ids = repository.saveAll(products).stream().map(Product::getId).toList();
+        indexListener.awaitQueued();
+    }
+
+
+    @Test
+    @DisplayName("Integration - getAllProductWithParams - A page must be loaded with the page, count and spec queries only")
+    void getAllProductWithParamsTest01() throws Exception {
+        // act
+        Counted<Page<ProductResponseDTO>> counted = QueryCounter.count(() -> transaction.execute(status -> service
+            .getAllProductWithParams(PageRequest.of(0, PAGE_SIZE), null, Category.CPU, null, null, null)));
+
+        // assert
+        Page<ProductResponseDTO> result = counted.result();
+        assertEquals(PAGE_SIZE, result.getContent().size());
+        assertEquals(PRODUCTS, result.getTotalElements());
+        assertTrue(result.getContent().stream().allMatch(p -> p.getManufacturer().getName() != null && p.getSpecs().size() == 2));
+        assertEquals(3, counted.queries().getStatements(), "page + count + one batched spec query");
+        assertEquals(PAGE_SIZE + 1 + PAGE_SIZE * 2, counted.queries().getRowsRead(), "page rows + count + their specs");
+    }
+
+    @Test
+    @DisplayName("Integration - getAllProductWithParams - The statement count must not grow with the page size")
+    void getAllProductWithParamsTest02() throws Exception {
+        // act
+        Counted<Page<ProductResponseDTO>> counted = QueryCounter.count(() -> transaction.execute(status -> service
+            .getAllProductWithParams(PageRequest.of(1, 20), null, null, null, null, null)));
+
+        // assert
+        Page<ProductResponseDTO> lastPage = counted.result();
+        assertEquals(PRODUCTS - 20, lastPage.getContent().size());
+        assertEquals(PRODUCTS, lastPage.getTotalElements());
+        assertTrue(counted.queries().getStatements() <= 3);
+    }
+
+    @Test
+    @DisplayName("Integration - getAllBySpecs - A page must be loaded with the product and spec queries only")
+    void getAllBySpecsTest01() throws Exception {
+        // act
+        Counted<Page<ProductResponseDTO>> counted = QueryCounter.count(() -> transaction.execute(status -> service
+            .getAllBySpecs(PageRequest.of(0, PAGE_SIZE), List.of(Map.of("attribute", "cores", "value", "8")), null)));
+
+        // assert
+        Page<ProductResponseDTO> result = counted.result();
+        assertEquals(PAGE_SIZE, result.getContent().size());
+        assertEquals(PRODUCTS, result.getTotalElements());
+        assertEquals(2, counted.queries().getStatements(), "ids paged by the spec index + one batched spec query");
+    }
+
+    @Test
+    @DisplayName("Integration - createProduct - The specs of a new product must be inserted in one batch")
+    void createProductTest01() throws Exception {
+        // arrange
+        List<ProductSpecDTO> specs = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            specs.add(new ProductSpecDTO("attribute-" + i, "value-" + i));
+        }
+        ProductDTO dto = new ProductDTO(
+            "new product", "ddd", BigDecimal.TEN, Category.CPU, new StockDTO(10), new ManufacturerDTO("AMD"), specs);
+
+        // act
+        QueryCount queries = QueryCounter.count(() -> transaction.execute(status -> service.createProduct(dto))).queries();
+
+        // assert
+        assertEquals(31, queries.getRowsWritten());
+        assertTrue(queries.getStatements() <= 5,
+            "manufacturer + at most one call per id pool + product insert + one batched spec insert");
+    }
+
+    @Test
+    @DisplayName("Integration - exportProducts - The specs must be fetched in one batch per chunk")
+    void exportProductsTest01() throws Exception {
+        // arrange
+        ReflectionTestUtils.setField(exportService, "chunkSize", PAGE_SIZE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // act
+        QueryCount queries = QueryCounter.count(() -> {
+            exportService.exportProducts(null, null, out);
+            return null;
+        }).queries();
+
+        // assert
+        assertEquals(PRODUCTS, out.toString(StandardCharsets.UTF_8).lines().count());
+        assertEquals(4, queries.getStatements(), "product stream + one batched spec query per chunk of 10");
+    }
+
+    @Test
+    @DisplayName("Integration - getProduct - A product already read must be loaded from the second-level cache without statements")
+    void getProductTest01() throws Exception {
+        // arrange
+        transaction.execute(status -> service.getProduct(ids.get(0)));
+        cacheManager.getCache(CacheConfig.PRODUCTS).clear();
+
+        // act
+        Counted<ProductResponseDTO> counted = QueryCounter.count(() -> transaction.execute(status -> service.getProduct(ids.get(0))));
+
+        // assert
+        assertEquals("product-0", counted.result().getName());
+        assertEquals(2, counted.result().getSpecs().size());
+        assertEquals(0, counted.queries().getStatements(), "product, manufacturer and specs are all cached");
+    }
+
+    @Test
+    @DisplayName("Integration - getProduct - A stock change must evict only the products it wrote from the second-level cache")
+    void getProductTest02() throws Exception {
+        // arrange
+        transaction.execute(status -> service.getProduct(ids.get(0)));
+        transaction.execute(status -> service.getProduct(ids.get(1)));
+        transaction.execute(status -> service.updateStocks(List.of(new StockWriteOffDTO(ids.get(0), 3))));
+        cacheManager.getCache(CacheConfig.PRODUCTS).clear();
+
+        // act
+        Counted<ProductResponseDTO> changed = QueryCounter.count(() -> transaction.execute(status -> service.getProduct(ids.get(0))));
+        Counted<ProductResponseDTO> unchanged = QueryCounter.count(() -> transaction.execute(status -> service.getProduct(ids.get(1))));
+
+        // assert
+        assertEquals(7, changed.result().getStock().getUnit());
+        assertEquals(1, changed.queries().getStatements(), "only the product row is read again");
+        assertEquals(10, unchanged.result().getStock().getUnit());
+        assertEquals(0, unchanged.queries().getStatements());
+    }
+}
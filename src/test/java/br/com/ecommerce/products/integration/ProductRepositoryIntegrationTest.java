@@ -4,7 +4,6 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.math.BigDecimal;
 import java.util.List;
-import java.util.Map;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -18,6 +17,7 @@ import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import br.com.ecommerce.products.index.ProductSpecIndex.SpecValue;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
 import br.com.ecommerce.products.model.product.Category;
 import br.com.ecommerce.products.model.product.Product;
@@ -25,6 +25,7 @@ import br.com.ecommerce.products.model.product.ProductSpec;
 import br.com.ecommerce.products.model.product.Stock;
 import br.com.ecommerce.products.repository.ManufacturerRepository;
 import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.repository.ProductSpecifications;
 import br.com.ecommerce.products.testcontainers.MySQLTestContainerConfig;
 
 @DataJpaTest
@@ -73,13 +74,13 @@ class ProductRepositoryIntegrationTest {
     }
 
     @Test
-    @DisplayName("Integration - findProductsBySpecs - Must return correct products based on specs")
-    void findProductsBySpecsTest01() {
+    @DisplayName("Integration - findAll - Must return correct products based on specs")
+    void findAllBySpecsTest01() {
         // arrange
-        List<Map<String, String>> specs = List.of(Map.of("attribute", "cores", "value", "12"));
+        List<SpecValue> specs = List.of(new SpecValue("cores", "12"));
 
         // act
-        Page<Product> result = repository.findProductsBySpecs(pageable, specs);
+        Page<Product> result = repository.findAll(ProductSpecifications.bySpecs(specs, null), pageable);
 
         // assert
         assertEquals(1, result.getContent().size(), "Filtering by specs 'cores:12' should return 1 product.");
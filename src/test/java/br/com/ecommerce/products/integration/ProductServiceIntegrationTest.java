@@ -1,9 +1,12 @@
 package br.com.ecommerce.products.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -16,7 +19,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.annotation.DirtiesContext.ClassMode;
 import org.springframework.test.context.ActiveProfiles;
@@ -36,7 +41,9 @@ import br.com.ecommerce.products.model.product.StockWriteOffDTO;
 import br.com.ecommerce.products.repository.ManufacturerRepository;
 import br.com.ecommerce.products.repository.ProductRepository;
 import br.com.ecommerce.products.service.ProductService;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.PersistenceContext;
 import jakarta.transaction.Transactional;
 
 @Transactional
@@ -53,6 +60,8 @@ class ProductServiceIntegrationTest {
     private ProductRepository repository;
     @Autowired
     private ManufacturerRepository manufacturerRepository;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     private List<Product> productsPersisted;
     private List<Manufacturer> manufacturersPersisted;
@@ -178,12 +187,114 @@ class ProductServiceIntegrationTest {
         List<Map<String, String>> specs = List.of(Map.of("attribute", "cores", "value", "12"));
 
         // act
-        var result = service.getAllBySpecs(Pageable.unpaged(), specs).getContent();
+        var result = service.getAllBySpecs(Pageable.unpaged(), specs, null).getContent();
 
         // assert
         assertEquals(1, result.size());
     }
 
+    @Test
+    @DisplayName("Integration - getAllBySpecs - Must return only the products having every spec and the category")
+    void getAllBySpecsTest02() {
+        // arrange
+        service.createProduct(new ProductDTO("r7", "ddd", BigDecimal.TEN, Category.CPU, new StockDTO(1), new ManufacturerDTO("AMD"),
+            List.of(new ProductSpecDTO("socket", "AM5"), new ProductSpecDTO("ram_type", "DDR5"))));
+        service.createProduct(new ProductDTO("r5", "ddd", BigDecimal.TEN, Category.CPU, new StockDTO(1), new ManufacturerDTO("AMD"),
+            List.of(new ProductSpecDTO("socket", "AM5"), new ProductSpecDTO("ram_type", "DDR4"))));
+        List<Map<String, String>> specs = List.of(
+            Map.of("attribute", "socket", "value", "AM5"), 
+            Map.of("attribute", "ram_type", "value", "DDR5"));
+
+        // act
+        var result = service.getAllBySpecs(Pageable.unpaged(), specs, null).getContent();
+        var cpus = service.getAllBySpecs(Pageable.unpaged(), specs.subList(0, 1), Category.CPU).getContent();
+        var gpus = service.getAllBySpecs(Pageable.unpaged(), specs.subList(0, 1), Category.GPU).getContent();
+
+        // assert
+        assertEquals(List.of("r7"), result.stream().map(p -> p.getName()).toList());
+        assertEquals(2, cpus.size());
+        assertEquals(0, gpus.size());
+    }
+    @Test
+    @DisplayName("Integration - getAllBySpecs - Must page over the matching products")
+    void getAllBySpecsTest03() {
+        // arrange
+        List<Map<String, String>> specs = List.of();
+
+        // act
+        var firstPage = service.getAllBySpecs(PageRequest.of(0, 2), specs, null);
+        var lastPage = service.getAllBySpecs(PageRequest.of(1, 2), specs, null);
+
+        // assert
+        assertEquals(3, firstPage.getTotalElements());
+        assertEquals(List.of("aaa", "bbb"), firstPage.getContent().stream().map(p -> p.getName()).toList());
+        assertEquals(List.of("ccc"), lastPage.getContent().stream().map(p -> p.getName()).toList());
+    }
+
+    @Test
+    @DisplayName("Integration - getAllBySpecs - Must query the database when sorting by anything but the id")
+    void getAllBySpecsTest04() {
+        // arrange
+        List<Map<String, String>> specs = List.of(Map.of("attribute", "cores", "value", "8"));
+
+        // act
+        var result = service.getAllBySpecs(PageRequest.of(0, 10, Sort.by("price")), specs, Category.CPU);
+
+        // assert
+        assertEquals(List.of("bbb"), result.getContent().stream().map(p -> p.getName()).toList());
+    }
+
+    @Test
+    @DisplayName("Integration - scrollProductsWithParams - Must return the first page and a cursor to the next one")
+    void scrollProductsWithParamsTest01() {
+        // act
+        var result = service.scrollProductsWithParams("", 2, Sort.unsorted(), null, null, null, null, null);
+
+        // assert
+        assertEquals(List.of("aaa", "bbb"), result.getContent().stream().map(p -> p.getName()).toList());
+        assertEquals(2, result.getSize());
+        assertNotNull(result.getNext());
+    }
+    @Test
+    @DisplayName("Integration - scrollProductsWithParams - Must continue after the cursor and end without a next cursor")
+    void scrollProductsWithParamsTest02() {
+        // arrange
+        String next = service.scrollProductsWithParams("", 2, Sort.unsorted(), null, null, null, null, null).getNext();
+
+        // act
+        var result = service.scrollProductsWithParams(next, 2, Sort.unsorted(), null, null, null, null, null);
+
+        // assert
+        assertEquals(List.of("ccc"), result.getContent().stream().map(p -> p.getName()).toList());
+        assertNull(result.getNext());
+    }
+    @Test
+    @DisplayName("Integration - scrollProductsWithParams - Must seek by the requested sort and apply the filters")
+    void scrollProductsWithParamsTest03() {
+        // arrange
+        Sort byPrice = Sort.by(Sort.Direction.DESC, "price");
+        String next = service.scrollProductsWithParams("", 1, byPrice, null, Category.CPU, null, null, "amd").getNext();
+
+        // act
+        var result = service.scrollProductsWithParams(next, 1, byPrice, null, Category.CPU, null, null, "amd");
+
+        // assert
+        assertEquals(List.of("bbb"), result.getContent().stream().map(p -> p.getName()).toList());
+        assertNull(result.getNext());
+    }
+    @Test
+    @DisplayName("Integration - scrollProductsWithParams - Must reject a cursor issued for another sort")
+    void scrollProductsWithParamsTest04() {
+        // arrange
+        String next = service.scrollProductsWithParams("", 1, Sort.unsorted(), null, null, null, null, null).getNext();
+
+        // act and assert
+        assertThrows(IllegalArgumentException.class, () -> 
+            service.scrollProductsWithParams(next, 1, Sort.by("price"), null, null, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> 
+            service.scrollProductsWithParams("not-a-cursor", 1, Sort.unsorted(), null, null, null, null, null));
+    }
+
     @Test
     @DisplayName("Integration - verifyProductsStocks - Must return all products with insuficient stock")
     void verifyProductsStocksTest01() {
@@ -353,6 +464,25 @@ class ProductServiceIntegrationTest {
 
     }
     
+    @Test
+    @DisplayName("Integration - updateProductData - A renamed product must be found by its new name only")
+    void updateProductDataTest09() {
+        // arrange
+        Long ID = productsPersisted.get(0).getId();
+        ProductUpdateDTO updateData = new ProductUpdateDTO("Ryzen 9 7950X", null, null, null, null);
+
+        // act
+        service.updateProductData(ID, updateData);
+        repository.flush();
+
+        // assert
+        var byNewName = service.getAllProductWithParams(Pageable.unpaged(), "7950x", null, null, null, null).getContent();
+        var byOldName = service.getAllProductWithParams(Pageable.unpaged(), "aaa", null, null, null, null).getContent();
+        assertEquals(1, byNewName.size());
+        assertEquals(ID, byNewName.get(0).getId());
+        assertEquals(0, byOldName.size());
+    }
+    
     @Test
     @DisplayName("Integration - updateStockByProductId - Must reduce the units in stock")
     void updateStockByProductIdTest01() {
@@ -403,19 +533,55 @@ class ProductServiceIntegrationTest {
             .map(p -> new StockWriteOffDTO(p.getId(), p.getStock().getUnit())).toList();
 
         // act
-        service.updateStocks(input);
+        var result = service.updateStocks(input);
 
         // assert
-        this.productsPersisted.forEach(p -> {
-            Integer ORIGINAL_VALUE = ORIGINAL_STOCKS_UNITS.get(p.getId());
+        assertEquals(this.productsPersisted.size(), result.size());
+        result.forEach(stock -> {
+            Integer ORIGINAL_VALUE = ORIGINAL_STOCKS_UNITS.get(stock.getProductId());
             Integer EXPECTED = ORIGINAL_VALUE - ORIGINAL_VALUE;
-            Integer CURRENT = p.getStock().getUnit();
+            Integer CURRENT = repository.findById(stock.getProductId()).orElseThrow().getStock().getUnit();
 
+            assertEquals(EXPECTED, stock.getUnit());
             assertEquals(EXPECTED, CURRENT);
             assertNotEquals(ORIGINAL_VALUE, CURRENT);
         });
     }
 
+    @Test
+    @DisplayName("Integration - addToStocks - Must add every delta in one statement and clamp at zero")
+    void addToStocksTest01() {
+        // arrange
+        Long ID_1 = productsPersisted.get(0).getId();
+        Long ID_2 = productsPersisted.get(1).getId();
+        Long ID_3 = productsPersisted.get(2).getId();
+
+        // act
+        service.addToStocks(Map.of(ID_1, -10, ID_2, -1000, ID_3, 5));
+
+        // assert
+        assertEquals(990, repository.findById(ID_1).orElseThrow().getStock().getUnit());
+        assertEquals(0, repository.findById(ID_2).orElseThrow().getStock().getUnit());
+        assertEquals(15, repository.findById(ID_3).orElseThrow().getStock().getUnit());
+    }
+
+    @Test
+    @DisplayName("Integration - addToStocks - Must only detach the products written, which are read again with their new units")
+    void addToStocksTest02() {
+        // arrange
+        Product written = productsPersisted.get(0);
+        Product untouched = productsPersisted.get(1);
+
+        // act
+        service.addToStocks(Map.of(written.getId(), -10));
+
+        // assert
+        assertFalse(entityManager.contains(written));
+        assertTrue(entityManager.contains(untouched));
+        assertTrue(entityManager.contains(manufacturersPersisted.get(0)));
+        assertEquals(990, repository.findById(written.getId()).orElseThrow().getStock().getUnit());
+    }
+
     @Test
     @DisplayName("Integration - createProduct - Should create a Product")
     void createProductTest01() {
@@ -0,0 +1,135 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductUpdateDTO;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.model.product.StockWriteOffDTO;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.service.ProductService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class ProductStockConcurrencyIntegrationTest {
+
+    private static final int WRITERS = 64;
+
+    @Autowired
+    private ProductService service;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+    @Autowired
+    private TransactionTemplate transaction;
+
+    private Product product;
+
+    @BeforeEach
+    void setup() {
+        Manufacturer manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+        this.product = repository.save(Product.builder()
+            .name("aaa")
+            .description("ddd")
+            .price(BigDecimal.valueOf(1000))
+            .category(Category.CPU)
+            .stock(new Stock(1000))
+            .manufacturer(manufacturer)
+            .specs(List.of())
+            .build());
+    }
+
+
+    @Test
+    @DisplayName("Integration - updateStockByProductId and updateStocks - Parallel writers of one product must not lose updates")
+    void concurrentStockUpdatesTest01() throws Exception {
+        // arrange
+        Long id = product.getId();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Integer>> writers = IntStream.range(0, WRITERS)
+            .mapToObj(i -> (Callable<Integer>) () -> {
+                start.await();
+                return i % 2 == 0
+                    ? transaction.execute(status -> service.updateStockByProductId(id, new StockDTO(-10)).getUnit())
+                    : transaction.execute(status -> service.updateStocks(List.of(new StockWriteOffDTO(id, 10))).get(0).getUnit());
+            })
+            .toList();
+
+        // act
+        List<Integer> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            List<Future<Integer>> futures = writers.stream().map(executor::submit).toList();
+            start.countDown();
+            for (Future<Integer> future : futures) {
+                results.add(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // assert
+        assertEquals(1000 - WRITERS * 10, repository.findById(id).orElseThrow().getStock().getUnit());
+
+        // every writer saw the units left by its own update, one step apart from the others
+        Set<Integer> expected = IntStream.rangeClosed(1, WRITERS)
+            .mapToObj(i -> 1000 - i * 10)
+            .collect(Collectors.toCollection(TreeSet::new));
+        assertEquals(expected, new TreeSet<>(results));
+    }
+
+    @Test
+    @DisplayName("Integration - updateProductData - An update that conflicts with a stock write-off must fail without losing the write-off")
+    void conflictingProductUpdateTest01() throws Exception {
+        // arrange
+        Long id = product.getId();
+
+        // act
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> transaction.execute(status -> {
+            var updated = service.updateProductData(id, new ProductUpdateDTO(null, "new description", null, null, null));
+            // a write-off commits after the product was read and before this update is flushed
+            CompletableFuture.runAsync(() -> transaction.executeWithoutResult(
+                writeOff -> service.updateStocks(List.of(new StockWriteOffDTO(id, 10))))).join();
+            return updated;
+        }));
+
+        // assert
+        Product saved = repository.findById(id).orElseThrow();
+        assertEquals("ddd", saved.getDescription());
+        assertEquals(990, saved.getStock().getUnit());
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.sql.QueryCount;
+import br.com.ecommerce.products.sql.QueryCountFilter;
+import br.com.ecommerce.products.utils.QueryCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+@SpringBootTest(properties = {"products.sql.header=true", "products.sql.budget=1"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase
+@DirtiesContext(classMode = ClassMode.AFTER_EACH_TEST_METHOD)
+class QueryCountIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    private Long productId;
+
+    @BeforeEach
+    void setup() {
+        Manufacturer manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+        ProductSpec spec = new ProductSpec("cores", "8");
+        Product product = new Product("p1", "d", BigDecimal.TEN, Category.CPU, new Stock(5), manufacturer, List.of(spec));
+        spec.setProduct(product);
+        productId = repository.save(product).getId();
+    }
+
+
+    @Test
+    @DisplayName("Integration - doFilter - Must return the statements of the request in the headers and publish them per endpoint")
+    void doFilterTest01() throws Exception {
+        // act
+        MvcResult result = mvc.perform(get("/products/" + productId))
+            .andExpect(status().isOk())
+            .andReturn();
+
+        // assert
+        long statements = Long.parseLong(result.getResponse().getHeader(QueryCountFilter.STATEMENTS_HEADER));
+        assertTrue(statements > 1);
+        assertTrue(Long.parseLong(result.getResponse().getHeader(QueryCountFilter.ROWS_HEADER)) >= 2);
+        assertTrue(result.getResponse().getHeader(QueryCountFilter.TIME_HEADER).endsWith("ms"));
+
+        String endpoint = "/products/{productId}";
+        assertEquals(statements, registry.get("products.sql.statements").tags("source", "http", "name", endpoint).summary().totalAmount());
+        assertEquals(1, registry.get("products.sql.time").tags("name", endpoint).timer().count());
+        assertEquals(1, registry.get("products.sql.over-budget").tags("name", endpoint).counter().count());
+    }
+
+    @Test
+    @DisplayName("Integration - close - A nested count must add its statements to the count it was started in")
+    void closeTest01() throws Exception {
+        // act
+        QueryCount outer = QueryCount.start();
+        repository.count();
+        QueryCount inner = QueryCounter.count(() -> manufacturerRepository.findAll()).queries();
+        outer.close();
+
+        // assert
+        assertEquals(1, inner.getStatements());
+        assertEquals(1, inner.getRowsRead());
+        assertEquals(2, outer.getStatements());
+        assertEquals(2, outer.getRowsRead());
+        assertEquals(1, outer.getMostRepeated().getValue());
+    }
+}
@@ -0,0 +1,101 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import br.com.ecommerce.products.datasource.ReplicaRouting;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+
+// the replica is the primary's own database under a second pool, so it has the schema and every write
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "products.datasource.replica.urls=jdbc:h2:mem:replica-routing;DB_CLOSE_DELAY=-1",
+    "products.datasource.replica.lag-query=SELECT 0",
+    "products.datasource.replica.lag-check-interval=1h"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = Replace.NONE)
+@DirtiesContext
+class ReplicaRoutingConfigIntegrationTest {
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private MeterRegistry registry;
+    @Autowired
+    private ReplicaRouting routing;
+    @Autowired
+    private ProductRepository repository;
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    private Long productId;
+
+    @BeforeEach
+    void setup() {
+        Manufacturer manufacturer = manufacturerRepository.save(new Manufacturer("AMD"));
+        ProductSpec spec = new ProductSpec("cores", "8");
+        Product product = new Product("p1", "d", BigDecimal.TEN, Category.CPU, new Stock(5), manufacturer, List.of(spec));
+        spec.setProduct(product);
+        productId = repository.save(product).getId();
+        routing.checkLag();
+    }
+
+
+    @Test
+    @DisplayName("Integration - dataSource - Must read products from the replica pool and write stocks on the primary")
+    void dataSourceTest01() throws Exception {
+        // act
+        double replicaBefore = connections("replica-1");
+        mvc.perform(get("/products").param("minPrice", "5"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].id").value(productId));
+        double replicaAfterRead = connections("replica-1");
+
+        double primaryBefore = connections("primary");
+        mvc.perform(put("/products/" + productId + "/stocks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"unit\": -1}"))
+            .andExpect(status().isOk());
+
+        // assert
+        assertTrue(replicaAfterRead > replicaBefore);
+        assertEquals(replicaAfterRead, connections("replica-1"));
+        assertTrue(connections("primary") > primaryBefore);
+        assertEquals(4, repository.findById(productId).orElseThrow().getStock().getUnit());
+    }
+
+    private double connections(String pool) {
+        return registry.get("products.datasource.connections").tag("pool", pool).functionCounter().count();
+    }
+}
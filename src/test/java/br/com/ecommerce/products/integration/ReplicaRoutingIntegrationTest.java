@@ -0,0 +1,121 @@
+package br.com.ecommerce.products.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import br.com.ecommerce.products.datasource.ReplicaRouting;
+
+class ReplicaRoutingIntegrationTest {
+
+    private JdbcTemplate replicaJdbc;
+    private ReplicaRouting routing;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+
+    @BeforeEach
+    void setup() {
+        DataSource primary = database("primary");
+        DataSource replica = database("replica");
+        replicaJdbc = new JdbcTemplate(replica);
+        replicaJdbc.execute("CREATE TABLE replica_lag (seconds INT)");
+        replicaJdbc.update("INSERT INTO replica_lag VALUES (0)");
+
+        routing = new ReplicaRouting(primary, Map.of("replica-1", replica), "SELECT seconds FROM replica_lag",
+            Duration.ofSeconds(5), Duration.ofHours(1));
+        DataSource dataSource = routing.dataSource();
+        jdbc = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        RequestContextHolder.resetRequestAttributes();
+        routing.close();
+    }
+
+
+    @Test
+    @DisplayName("Integration - route - Must send read-only transactions to the replica and everything else to the primary")
+    void routeTest01() {
+        // arrange
+        routing.checkLag();
+
+        // act and assert
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+
+    @Test
+    @DisplayName("Integration - route - Must keep reads on the primary while the replica lags more than allowed or was not measured")
+    void routeTest02() {
+        // act and assert
+        assertEquals("primary", readOnly.execute(status -> node()), "not measured yet");
+
+        replicaJdbc.update("UPDATE replica_lag SET seconds = 6");
+        routing.checkLag();
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        replicaJdbc.update("UPDATE replica_lag SET seconds = 5");
+        routing.checkLag();
+        assertEquals("replica", readOnly.execute(status -> node()));
+
+        replicaJdbc.update("UPDATE replica_lag SET seconds = NULL");
+        routing.checkLag();
+        assertEquals("primary", readOnly.execute(status -> node()), "replication stopped");
+
+        replicaJdbc.execute("DROP TABLE replica_lag");
+        routing.checkLag();
+        assertEquals("primary", readOnly.execute(status -> node()), "lag query failing");
+    }
+
+    @Test
+    @DisplayName("Integration - route - Must read from the primary for the rest of a request once it has written")
+    void routeTest03() {
+        // arrange
+        routing.checkLag();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("replica", readOnly.execute(status -> node()));
+
+        // act
+        readWrite.executeWithoutResult(status -> jdbc.update("UPDATE node SET name = 'primary'"));
+
+        // assert
+        assertEquals("primary", readOnly.execute(status -> node()));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        assertEquals("replica", readOnly.execute(status -> node()), "next request");
+    }
+
+    private String node() {
+        return jdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource database(String node) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + node + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbc.update("INSERT INTO node VALUES (?)", node);
+        return dataSource;
+    }
+}
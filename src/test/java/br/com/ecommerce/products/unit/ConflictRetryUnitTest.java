@@ -0,0 +1,83 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.service.ConflictRetry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ConflictRetryUnitTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ConflictRetry retry = new ConflictRetry(transactionManager, registry, 3, Duration.ofMillis(1), Duration.ofMillis(2));
+
+
+    @Test
+    @DisplayName("Unit - inTransaction - Must run a conflicting write again in a new transaction until it commits")
+    void inTransactionTest01() {
+        // arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        // act
+        String result = retry.inTransaction("update-product", () -> {
+            if (attempts.incrementAndGet() < 3)
+                throw new ObjectOptimisticLockingFailureException(Product.class, 1L);
+            return "written";
+        });
+
+        // assert
+        assertEquals("written", result);
+        assertEquals(3, attempts.get());
+        verify(transactionManager, times(3)).getTransaction(any());
+        verify(transactionManager).commit(null);
+        assertEquals(2, registry.get("products.update.conflicts")
+            .tags("operation", "update-product", "exception", "ObjectOptimisticLockingFailureException").counter().count());
+        assertEquals(2, registry.get("products.update.retries").tag("operation", "update-product").counter().count());
+    }
+
+    @Test
+    @DisplayName("Unit - inTransaction - Must give up and rethrow the conflict after the last attempt")
+    void inTransactionTest02() {
+        // arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        // act and assert
+        assertThrows(CannotAcquireLockException.class, () -> retry.inTransaction("update-stock", () -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("deadlock");
+        }));
+        assertEquals(3, attempts.get());
+        assertEquals(2, registry.get("products.update.retries").tag("operation", "update-stock").counter().count());
+        assertEquals(1, registry.get("products.update.exhausted").tag("operation", "update-stock").counter().count());
+    }
+
+    @Test
+    @DisplayName("Unit - inTransaction - Must not run again a write that failed for any other reason")
+    void inTransactionTest03() {
+        // arrange
+        AtomicInteger attempts = new AtomicInteger();
+
+        // act and assert
+        assertThrows(IllegalArgumentException.class, () -> retry.inTransaction("update-product", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("Price must be a positive value");
+        }));
+        assertEquals(1, attempts.get());
+        assertEquals(0, registry.find("products.update.conflicts").counters().size());
+    }
+}
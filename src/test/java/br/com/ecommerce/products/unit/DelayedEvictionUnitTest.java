@@ -0,0 +1,75 @@
+package br.com.ecommerce.products.unit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import br.com.ecommerce.products.cache.DelayedEviction;
+
+@ExtendWith(MockitoExtension.class)
+class DelayedEvictionUnitTest {
+
+    private final Runnable eviction = () -> {};
+
+    @Mock
+    private TaskScheduler taskScheduler;
+    @InjectMocks
+    private DelayedEviction delayedEviction;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(delayedEviction, "delay", Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+
+    @Test
+    @DisplayName("Unit - againLater - Must schedule the eviction after the delay when there is no transaction")
+    void againLaterTest01() {
+        // act
+        Instant before = Instant.now();
+        delayedEviction.againLater(eviction);
+
+        // assert
+        verify(taskScheduler).schedule(eq(eviction), argThat((Instant at) ->
+            !at.isBefore(before.plusSeconds(2)) && at.isBefore(Instant.now().plusSeconds(3))));
+    }
+
+    @Test
+    @DisplayName("Unit - againLater - Must only schedule the eviction once the transaction commits")
+    void againLaterTest02() {
+        // arrange
+        TransactionSynchronizationManager.initSynchronization();
+
+        // act
+        delayedEviction.againLater(eviction);
+
+        // assert
+        verify(taskScheduler, never()).schedule(any(Runnable.class), any(Instant.class));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(taskScheduler).schedule(eq(eviction), any(Instant.class));
+    }
+}
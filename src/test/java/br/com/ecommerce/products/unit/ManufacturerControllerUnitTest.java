@@ -3,12 +3,14 @@ package br.com.ecommerce.products.unit;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -24,6 +26,7 @@ import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
@@ -128,6 +131,7 @@ class ManufacturerControllerUnitTest {
     void getManufacturerByIdTest01() throws IOException, Exception {
         // arrange
         var responseBody = new ManufacturerResponseDTO(1L, "AMD");
+        when(service.getManufacturerETag(anyLong())).thenReturn("0");
         when(service.findManufacturerById(anyLong())).thenReturn(responseBody);
 
         // act
@@ -137,11 +141,28 @@ class ManufacturerControllerUnitTest {
         )
         // assert
         .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
         .andExpect(jsonPath("$.id").value(responseBody.getId()))
         .andExpect(jsonPath("$.name").value(responseBody.getName()));
 
         verify(service).findManufacturerById(any());
     }
+    @Test
+    @DisplayName("Unit - getManufacturerById - Must return status 304 without reading the manufacturer when the ETag matches")
+    void getManufacturerByIdTest02() throws IOException, Exception {
+        // arrange
+        when(service.getManufacturerETag(anyLong())).thenReturn("2");
+
+        // act
+        mvc.perform(
+            get("/manufacturers/1")
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\"")
+        )
+        // assert
+        .andExpect(status().isNotModified());
+
+        verify(service, never()).findManufacturerById(any());
+    }
 
     @Test
     @DisplayName("Unit - updateManufacturerData - Must return status 200 and expected response body")
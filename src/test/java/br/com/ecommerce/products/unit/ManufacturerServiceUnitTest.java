@@ -4,6 +4,7 @@ import static org.junit.Assert.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
@@ -19,10 +20,13 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import br.com.ecommerce.products.cache.ManufacturerCache;
+import br.com.ecommerce.products.cache.ProductCacheInvalidator;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
 import br.com.ecommerce.products.repository.ManufacturerRepository;
+import br.com.ecommerce.products.repository.ProductRepository;
 import br.com.ecommerce.products.service.ManufacturerService;
 import br.com.ecommerce.products.utils.RandomUtils;
 import jakarta.persistence.EntityNotFoundException;
@@ -32,6 +36,12 @@ class ManufacturerServiceUnitTest {
 
     @Mock
     private ManufacturerRepository repository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private ProductCacheInvalidator cacheInvalidator;
+    @Mock
+    private ManufacturerCache manufacturerCache;
     @InjectMocks
     private ManufacturerService service;
 
@@ -84,6 +94,7 @@ class ManufacturerServiceUnitTest {
 
         // assert
         assertEquals(requestBody.getName(), result.getName());
+        verify(manufacturerCache).evict("AMD");
 	}
 
     @Test
@@ -91,13 +102,18 @@ class ManufacturerServiceUnitTest {
     void updateManufacturerDataTest01() {
         // arrange
         Manufacturer target = RandomUtils.getRandomManufacturer();
+        String previousName = target.getName();
         ManufacturerDTO requestBody = new ManufacturerDTO("INTEL");
         when(repository.findById(any())).thenReturn(Optional.of(target));
+        when(productRepository.findIdsByManufacturerId(any())).thenReturn(List.of(1L, 2L));
         
         // act
         service.updateManufacturerData(1L, requestBody);
 
         assertEquals(requestBody.getName(), target.getName());
+        verify(cacheInvalidator).evictProducts(List.of(1L, 2L));
+        verify(manufacturerCache).evict(previousName);
+        verify(manufacturerCache).evict("INTEL");
 	}
     @Test
     @DisplayName("Unit - updateManufacturerData - Should throw exception when not finding manufacturer")
@@ -4,21 +4,33 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,29 +38,44 @@ import org.springframework.boot.test.autoconfigure.json.AutoConfigureJsonTesters
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import br.com.ecommerce.products.cache.ProductJsonCache;
 import br.com.ecommerce.products.controller.ProductController;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
 import br.com.ecommerce.products.model.product.Category;
 import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
 import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductFacetsDTO;
 import br.com.ecommerce.products.model.product.ProductIdAndUnitsDTO;
+import br.com.ecommerce.products.model.product.ProductImportErrorDTO;
+import br.com.ecommerce.products.model.product.ProductImportResultDTO;
+import br.com.ecommerce.products.model.product.ProductPriceDTO;
 import br.com.ecommerce.products.model.product.ProductResponseDTO;
 import br.com.ecommerce.products.model.product.ProductSpecDTO;
 import br.com.ecommerce.products.model.product.ProductUpdateDTO;
 import br.com.ecommerce.products.model.product.ProductUpdateResponseDTO;
+import br.com.ecommerce.products.model.product.ProductVersionDTO;
 import br.com.ecommerce.products.model.product.Stock;
 import br.com.ecommerce.products.model.product.StockDTO;
 import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.service.ConflictRetry;
+import br.com.ecommerce.products.service.ProductExportService;
+import br.com.ecommerce.products.service.ProductFacetService;
+import br.com.ecommerce.products.service.ProductImportService;
 import br.com.ecommerce.products.service.ProductService;
 import br.com.ecommerce.products.utils.RandomUtils;
 
 @WebMvcTest(ProductController.class)
+@Import(ProductJsonCache.class)
 @AutoConfigureJsonTesters
 class ProductControllerUnitTest {
 
@@ -57,6 +84,14 @@ class ProductControllerUnitTest {
 
     @MockBean
     private ProductService service;
+    @MockBean
+    private ProductImportService importService;
+    @MockBean
+    private ProductExportService exportService;
+    @MockBean
+    private ProductFacetService facetService;
+    @MockBean
+    private ConflictRetry retry;
 
     @Autowired
     private JacksonTester<ProductDTO> productDTOJson;
@@ -71,6 +106,11 @@ class ProductControllerUnitTest {
     @Autowired
     private JacksonTester<StockDTO> stockDTOJson;
 
+    @BeforeEach
+    void setup() {
+        // no transaction manager in this slice, the write runs directly
+        when(retry.inTransaction(anyString(), any())).thenAnswer(invocation -> invocation.getArgument(1, Supplier.class).get());
+    }
 
     @Test
     @DisplayName("Unit - createProduct - Must return status 201 and product data")
@@ -92,7 +132,8 @@ class ProductControllerUnitTest {
             requestBody.getCategory(),
             new Stock(requestBody.getStock().getUnit()),
             new ManufacturerResponseDTO(1L, requestBody.getManufacturer().getName()),
-            requestBody.getSpecs()
+            requestBody.getSpecs(),
+            new ProductVersionDTO(0L, 0L)
         );
         when(service.createProduct(any())).thenReturn(responseBody);
         
@@ -150,6 +191,102 @@ class ProductControllerUnitTest {
         verifyNoInteractions(service);
     }
 
+    @Test
+    @DisplayName("Unit - importProducts - Must return status 200 and the import report")
+    void importProductsTest01() throws IOException, Exception {
+        // arrange
+        when(importService.importProducts(any()))
+            .thenReturn(new ProductImportResultDTO(1, 1, List.of(new ProductImportErrorDTO(2, "error"))));
+
+        // act
+        mvc.perform(
+            post("/products/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content("{}\n{}")
+        )
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.imported").value(1))
+        .andExpect(jsonPath("$.failed").value(1))
+        .andExpect(jsonPath("$.errors[0].line").value(2))
+        .andExpect(jsonPath("$.errors[0].error").value("error"));
+
+        verify(importService).importProducts(any());
+    }
+
+    @Test
+    @DisplayName("Unit - getFacets - Must return status 200 and the facets of the filters")
+    void getFacetsTest01() throws IOException, Exception {
+        // arrange
+        when(facetService.getFacets(null, Category.CPU, BigDecimal.TEN, null, "amd")).thenReturn(new ProductFacetsDTO(
+            Map.of(Category.CPU, 3L), Map.of("AMD", 2L), List.of(new PriceFacetDTO(null, BigDecimal.TEN, 1))));
+
+        // act
+        mvc.perform(
+            get("/products/facets")
+                .param("category", "cpu")
+                .param("minPrice", "10")
+                .param("manufacturer", "amd")
+        )
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.categories.CPU").value(3))
+        .andExpect(jsonPath("$.manufacturers.AMD").value(2))
+        .andExpect(jsonPath("$.prices[0].to").value(10))
+        .andExpect(jsonPath("$.prices[0].count").value(1));
+    }
+
+    @Test
+    @DisplayName("Unit - getPriceHistogram - Must return status 200 and the count of each price range")
+    void getPriceHistogramTest01() throws IOException, Exception {
+        // arrange
+        when(facetService.getPriceHistogram(Category.GPU, BigDecimal.ZERO, BigDecimal.valueOf(200), 2)).thenReturn(List.of(
+            new PriceFacetDTO(BigDecimal.ZERO, BigDecimal.valueOf(100), 4),
+            new PriceFacetDTO(BigDecimal.valueOf(100), BigDecimal.valueOf(200), 1)));
+
+        // act
+        mvc.perform(
+            get("/products/prices/histogram")
+                .param("category", "gpu")
+                .param("minPrice", "0")
+                .param("maxPrice", "200")
+                .param("buckets", "2")
+        )
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$[0].count").value(4))
+        .andExpect(jsonPath("$[1].from").value(100))
+        .andExpect(jsonPath("$[1].count").value(1));
+    }
+
+    @Test
+    @DisplayName("Unit - exportProducts - Must stream the NDJSON written by the service")
+    void exportProductsTest01() throws IOException, Exception {
+        // arrange
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(2);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes());
+            return null;
+        }).when(exportService).exportProducts(any(), any(), any());
+
+        // act
+        MvcResult result = mvc.perform(
+            get("/products/export")
+                .param("category", "cpu")
+                .param("manufacturer", "amd")
+        )
+        .andExpect(request().asyncStarted())
+        .andReturn();
+
+        // assert
+        mvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+        verify(exportService).exportProducts(eq(Category.CPU), eq("amd"), any());
+    }
+
     @Test
     @DisplayName("Unit - verifyStocks - Must return status 207 and product stock")
     void verifyStocksTest01() throws IOException, Exception {
@@ -159,7 +296,9 @@ class ProductControllerUnitTest {
             new ProductIdAndUnitsDTO(2L, 1)
         );
 
-        List<Product> serviceReturnMock = RandomUtils.getListOfRandomProducts(2, true);
+        List<StockResponseDTO> serviceReturnMock = RandomUtils.getListOfRandomProducts(2, true).stream()
+            .map(StockResponseDTO::new)
+            .toList();
         when(service.verifyProductsStocks(anyList())).thenReturn(serviceReturnMock);
         
         // act
@@ -190,7 +329,7 @@ class ProductControllerUnitTest {
         List<ProductIdAndUnitsDTO> requestBody = 
             List.of(new ProductIdAndUnitsDTO(1L, 1), new ProductIdAndUnitsDTO(2L, 1));
 
-        List<Product> emptyList = List.of();
+        List<StockResponseDTO> emptyList = List.of();
         when(service.verifyProductsStocks(anyList())).thenReturn(emptyList);
         
         // act
@@ -239,7 +378,7 @@ class ProductControllerUnitTest {
         var EXPECTED_SPEC_VALUE = productExpected.getSpecs().get(0).getValue();
 
         List<Map<String, String>> input = List.of(Map.of("attribute", "cores", "value", "12"));
-        when(service.getAllBySpecs(any(Pageable.class), anyList()))
+        when(service.getAllBySpecs(any(Pageable.class), anyList(), any()))
             .thenReturn(new PageImpl<>(List.of(new ProductResponseDTO(productExpected))));
 
         // act
@@ -261,7 +400,7 @@ class ProductControllerUnitTest {
         .andExpect(jsonPath("$.content[0].specs[0].attribute").value(EXPECTED_SPEC_ATTRIBUTE))
         .andExpect(jsonPath("$.content[0].specs[0].value").value(EXPECTED_SPEC_VALUE));
 
-        verify(service).getAllBySpecs(any(), anyList());
+        verify(service).getAllBySpecs(any(), anyList(), any());
     }
     @Test
     @DisplayName("Unit - readAllBySpecs - Must return status 400 when data is invalid")
@@ -281,14 +420,69 @@ class ProductControllerUnitTest {
         verifyNoInteractions(service);
     }
 
+    @Test
+    @DisplayName("Unit - getProduct - Must return status 200, product data and its ETag without reading the versions")
+    void getProductTest01() throws IOException, Exception {
+        // arrange
+        var responseBody = new ProductResponseDTO();
+        responseBody.setId(1L);
+        responseBody.setName("aaa");
+        responseBody.setVersion(new ProductVersionDTO(3L, 1L));
+        when(service.getProduct(1L)).thenReturn(responseBody);
+
+        // act
+        mvc.perform(get("/products/1"))
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"3-1\""))
+        .andExpect(jsonPath("$.name").value("aaa"));
+
+        verify(service, never()).getProductETag(anyLong());
+    }
+    @Test
+    @DisplayName("Unit - getProduct - Must return status 304 without reading the product when the ETag matches")
+    void getProductTest02() throws IOException, Exception {
+        // arrange
+        when(service.getProductETag(1L)).thenReturn("3-1");
+
+        // act
+        mvc.perform(get("/products/1").header(HttpHeaders.IF_NONE_MATCH, "\"3-1\""))
+        // assert
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+        verify(service, never()).getProduct(anyLong());
+    }
+
+    @Test
+    @DisplayName("Unit - getProduct - Must tag the body with the versions it was built from, not the ones read for the ETag")
+    void getProductTest03() throws IOException, Exception {
+        // arrange
+        var responseBody = new ProductResponseDTO();
+        responseBody.setId(2L);
+        responseBody.setName("aaa");
+        responseBody.setVersion(new ProductVersionDTO(3L, 1L));
+        when(service.getProductETag(2L)).thenReturn("4-1");
+        when(service.getProduct(2L)).thenReturn(responseBody);
+
+        // act
+        mvc.perform(get("/products/2").header(HttpHeaders.IF_NONE_MATCH, "\"2-1\""))
+        // assert
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, "\"3-1\""))
+        .andExpect(jsonPath("$.name").value("aaa"))
+        .andExpect(jsonPath("$.version").doesNotExist());
+    }
+
     @Test
     @DisplayName("Unit - getPrices - Must return status 200 and product prices")
     void getPricesTest01() throws IOException, Exception {
         // arrange
         var requestBody = List.of(1L, 2L);
 
-        List<Product> serviceReturnMock = RandomUtils.getListOfRandomProducts(requestBody.size(), true);
-        when(service.getAllProductsByListOfIds(anyList())).thenReturn(serviceReturnMock);
+        List<ProductPriceDTO> serviceReturnMock = List.of(
+            new ProductPriceDTO(1L, BigDecimal.TEN), new ProductPriceDTO(2L, BigDecimal.ONE));
+        when(service.getPrices(anyList())).thenReturn(serviceReturnMock);
         
         // act
         mvc.perform(
@@ -301,7 +495,28 @@ class ProductControllerUnitTest {
         .andExpect(jsonPath("$").isArray())
         .andExpect(jsonPath("$", hasSize(requestBody.size())));
 
-        verify(service).getAllProductsByListOfIds(anyList());
+        verify(service).getPrices(anyList());
+    }
+    @Test
+    @DisplayName("Unit - getPrices - Must return status 207 when some products do not exist")
+    void getPricesTest03() throws IOException, Exception {
+        // arrange
+        var requestBody = List.of(1L, 2L);
+
+        List<ProductPriceDTO> serviceReturnMock = List.of(
+            new ProductPriceDTO(1L, BigDecimal.TEN), new ProductPriceDTO(2L, null));
+        when(service.getPrices(anyList())).thenReturn(serviceReturnMock);
+        
+        // act
+        mvc.perform(
+            post("/products/prices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(idListJson.write(requestBody).getJson())
+        )
+        // assert
+        .andExpect(status().isMultiStatus())
+        .andExpect(jsonPath("$[1].id").value(2))
+        .andExpect(jsonPath("$[1].price").doesNotExist());
     }
     @Test
     @DisplayName("Unit - getPrices - Must return status 400 when data is invalid")
@@ -341,7 +556,7 @@ class ProductControllerUnitTest {
             requestBody.getCategory(),
             requestBody.getManufacturer()
         );
-        when(service.updateProductData(anyLong(), any())).thenReturn(responseBody);
+        when(service.updateProductData(anyLong(), any(), any())).thenReturn(responseBody);
 
         var EXPECTED_NAME = requestBody.getName();
         var EXPECTED_DESCRIPTION = requestBody.getDescription();
@@ -363,7 +578,7 @@ class ProductControllerUnitTest {
         .andExpect(jsonPath("$.category").value(EXPECTED_CATEGORY))
         .andExpect(jsonPath("$.manufacturer.name").value(EXPECTED_MANUFACTURER_NAME));
 
-        verify(service).updateProductData(anyLong(), any());
+        verify(service).updateProductData(anyLong(), any(), isNull());
     }
     
     @Test
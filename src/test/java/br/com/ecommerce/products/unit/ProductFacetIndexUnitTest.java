@@ -0,0 +1,198 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.ecommerce.products.index.ProductFacetIndex;
+import br.com.ecommerce.products.index.ProductFacetIndex.FacetCounts;
+import br.com.ecommerce.products.index.ProductFacetIndex.FacetFilter;
+import br.com.ecommerce.products.model.manufacturer.Manufacturer;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductFacetEntryDTO;
+import br.com.ecommerce.products.model.product.Stock;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ProductFacetIndexUnitTest {
+
+    private static final FacetFilter NO_FILTER = new FacetFilter(null, null, null, null, null);
+
+    @Mock
+    private ProductRepository repository;
+    @InjectMocks
+    private ProductFacetIndex index;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(index, "priceBuckets", new BigDecimal[] {BigDecimal.valueOf(100), BigDecimal.valueOf(1000)});
+    }
+
+
+    @Test
+    @DisplayName("Unit - count - Must count the products in stock per category, manufacturer and price bucket")
+    void countTest01() {
+        // arrange
+        rebuild(
+            new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 5),
+            new ProductFacetEntryDTO(2L, Category.CPU, 20L, BigDecimal.valueOf(100), 5),
+            new ProductFacetEntryDTO(3L, Category.GPU, 10L, BigDecimal.valueOf(2000), 5),
+            new ProductFacetEntryDTO(4L, Category.GPU, 10L, BigDecimal.valueOf(2000), 0));
+
+        // act
+        FacetCounts counts = index.count(NO_FILTER);
+
+        // assert
+        assertEquals(Map.of(Category.CPU, 2L, Category.GPU, 1L), counts.categories());
+        assertEquals(Map.of(10L, 2L, 20L, 1L), counts.manufacturers());
+        assertEquals(List.of(1L, 1L, 1L), counts(counts.prices()));
+        assertEquals(null, counts.prices().get(0).getFrom());
+        assertEquals(BigDecimal.valueOf(100), counts.prices().get(1).getFrom());
+        assertEquals(BigDecimal.valueOf(1000), counts.prices().get(1).getTo());
+    }
+
+    @Test
+    @DisplayName("Unit - count - Each facet must be counted with every filter but its own")
+    void countTest02() {
+        // arrange
+        rebuild(
+            new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 5),
+            new ProductFacetEntryDTO(2L, Category.CPU, 20L, BigDecimal.valueOf(500), 5),
+            new ProductFacetEntryDTO(3L, Category.GPU, 10L, BigDecimal.valueOf(500), 5),
+            new ProductFacetEntryDTO(4L, Category.GPU, 20L, BigDecimal.valueOf(2000), 5));
+
+        // act
+        FacetCounts counts = index.count(new FacetFilter(null, Category.CPU, BigDecimal.valueOf(100), null, null));
+
+        // assert
+        assertEquals(Map.of(Category.CPU, 1L, Category.GPU, 2L), counts.categories());
+        assertEquals(Map.of(20L, 1L), counts.manufacturers());
+        assertEquals(List.of(1L, 1L, 0L), counts(counts.prices()));
+
+        FacetCounts byName = index.count(new FacetFilter(List.of(3L, 4L, 99L), null, null, null, null));
+        assertEquals(Map.of(Category.GPU, 2L), byName.categories());
+    }
+
+    @Test
+    @DisplayName("Unit - count - Must count within both price bounds and the manufacturer filtered on")
+    void countTest03() {
+        // arrange
+        rebuild(
+            new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 5),
+            new ProductFacetEntryDTO(2L, Category.CPU, 10L, BigDecimal.valueOf(500), 5),
+            new ProductFacetEntryDTO(3L, Category.GPU, 10L, BigDecimal.valueOf(1000), 5),
+            new ProductFacetEntryDTO(4L, Category.GPU, 20L, BigDecimal.valueOf(700), 5),
+            new ProductFacetEntryDTO(5L, Category.GPU, 10L, BigDecimal.valueOf(800), 0));
+
+        // act
+        FacetCounts counts = index.count(new FacetFilter(null, null, BigDecimal.valueOf(500), BigDecimal.valueOf(1000), 10L));
+
+        // assert
+        assertEquals(Map.of(Category.CPU, 1L, Category.GPU, 1L), counts.categories());
+        assertEquals(Map.of(10L, 2L, 20L, 1L), counts.manufacturers());
+        assertEquals(List.of(1L, 1L, 1L), counts(counts.prices()));
+    }
+
+    @Test
+    @DisplayName("Unit - count - The searches before the first build must wait for a single load")
+    void countTest04() {
+        // arrange
+        when(repository.findFacetEntriesAfter(anyLong(), any()))
+            .thenReturn(List.of(new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 5)));
+
+        // act
+        index.count(NO_FILTER);
+        FacetCounts counts = index.count(NO_FILTER);
+
+        // assert
+        assertTrue(index.isReady());
+        assertEquals(Map.of(Category.CPU, 1L), counts.categories());
+        verify(repository, times(1)).findFacetEntriesAfter(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("Unit - update - Must stop counting a product out of stock and count it again once restocked")
+    void updateTest01() {
+        // arrange
+        rebuild(new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 5));
+        Manufacturer manufacturer = new Manufacturer("AMD");
+        manufacturer.setId(10L);
+        Product.ProductBuilder product = Product.builder()
+            .id(1L).category(Category.CPU).price(BigDecimal.valueOf(50)).manufacturer(manufacturer);
+
+        // act
+        index.update(1L, product.stock(new Stock(0)).build());
+
+        // assert
+        assertEquals(Map.of(), index.count(NO_FILTER).categories());
+        index.update(1L, product.stock(new Stock(10)).build());
+        assertEquals(Map.of(Category.CPU, 1L), index.count(NO_FILTER).categories());
+    }
+
+    @Test
+    @DisplayName("Unit - update - Must move the counts of a product whose category, manufacturer or price changed")
+    void updateTest02() {
+        // arrange
+        rebuild(new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 5));
+        Manufacturer manufacturer = new Manufacturer("INTEL");
+        manufacturer.setId(20L);
+        Product product = Product.builder()
+            .id(1L).category(Category.GPU).price(BigDecimal.valueOf(5000)).stock(new Stock(5)).manufacturer(manufacturer)
+            .build();
+
+        // act
+        index.update(1L, product);
+
+        // assert
+        FacetCounts counts = index.count(NO_FILTER);
+        assertEquals(Map.of(Category.GPU, 1L), counts.categories());
+        assertEquals(Map.of(20L, 1L), counts.manufacturers());
+        assertEquals(List.of(0L, 0L, 1L), counts(counts.prices()));
+    }
+
+    @Test
+    @DisplayName("Unit - stockChanged - Must count a product again from the units written, leaving unknown products out")
+    void stockChangedTest01() {
+        // arrange
+        rebuild(new ProductFacetEntryDTO(1L, Category.CPU, 10L, BigDecimal.valueOf(50), 0));
+
+        // act
+        index.stockChanged(1L, 3);
+        index.stockChanged(2L, 3);
+
+        // assert
+        FacetCounts counts = index.count(NO_FILTER);
+        assertEquals(Map.of(Category.CPU, 1L), counts.categories());
+        assertEquals(Map.of(10L, 1L), counts.manufacturers());
+        index.stockChanged(1L, 0);
+        assertEquals(Map.of(), index.count(NO_FILTER).categories());
+    }
+
+    private void rebuild(ProductFacetEntryDTO... rows) {
+        when(repository.findFacetEntriesAfter(anyLong(), any())).thenReturn(List.of(rows));
+        index.rebuild();
+    }
+
+    private static List<Long> counts(List<PriceFacetDTO> prices) {
+        return prices.stream().map(PriceFacetDTO::getCount).toList();
+    }
+}
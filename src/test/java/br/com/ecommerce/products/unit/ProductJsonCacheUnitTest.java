@@ -0,0 +1,203 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.ecommerce.products.cache.EncodedJson;
+import br.com.ecommerce.products.cache.ProductJsonCache;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductVersionDTO;
+
+class ProductJsonCacheUnitTest {
+
+    private final ProductJsonCache cache = new ProductJsonCache(DataSize.ofKilobytes(64), DataSize.ofKilobytes(64), Duration.ofMinutes(1));
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper());
+    }
+
+
+    @Test
+    @DisplayName("Unit - product - Must encode the product once and return the same bytes on later reads")
+    void productTest01() {
+        // act
+        EncodedJson first = cache.product(1L, "1-1", () -> product(1L, "aaa"));
+        EncodedJson second = cache.product(1L, "1-1", () -> product(1L, "bbb"));
+
+        // assert
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertFalse(first.gzipped());
+        assertTrue(new String(first.body(), StandardCharsets.UTF_8).contains("\"name\":\"aaa\""));
+    }
+
+    @Test
+    @DisplayName("Unit - product - Must keep the body gzip-compressed when enabled")
+    void productTest02() {
+        // arrange
+        ReflectionTestUtils.setField(cache, "gzip", true);
+
+        // act
+        EncodedJson json = cache.product(1L, "1-1", () -> product(1L, "aaa"));
+
+        // assert
+        assertTrue(json.gzipped());
+        assertEquals(0x1f, json.body()[0]);
+        assertEquals((byte) 0x8b, json.body()[1]);
+        assertTrue(new String(json.json(), StandardCharsets.UTF_8).contains("\"name\":\"aaa\""));
+    }
+
+    @Test
+    @DisplayName("Unit - product - Must read the product again when the body cached was built from other versions")
+    void productTest03() {
+        // arrange
+        cache.product(1L, "1-1", () -> product(1L, "aaa"));
+
+        // act
+        EncodedJson json = cache.product(1L, "2-1", () -> product(1L, "bbb", new ProductVersionDTO(2L, 1L)));
+
+        // assert
+        assertEquals(2, loads.get());
+        assertEquals("2-1", json.version().eTag());
+        assertTrue(new String(json.body(), StandardCharsets.UTF_8).contains("\"name\":\"bbb\""));
+        assertSame(json, cache.product(1L, "2-1", () -> product(1L, "ccc")));
+    }
+
+    @Test
+    @DisplayName("Unit - product - Must not cache a body read while an eviction ran")
+    void productTest04() {
+        // act
+        cache.product(1L, "1-1", () -> {
+            ProductResponseDTO product = product(1L, "aaa");
+            cache.evictProducts(List.of(1L)); // the update committed after the read
+            return product;
+        });
+        EncodedJson json = cache.product(1L, "1-1", () -> product(1L, "bbb"));
+
+        // assert
+        assertEquals(2, loads.get());
+        assertTrue(new String(json.body(), StandardCharsets.UTF_8).contains("\"name\":\"bbb\""));
+    }
+
+    @Test
+    @DisplayName("Unit - product - Must keep the newer body when an older read finishes after it")
+    void productTest05() {
+        // arrange
+        EncodedJson[] newer = new EncodedJson[1];
+
+        // act
+        cache.product(1L, "1-1", () -> {
+            newer[0] = cache.product(1L, "2-1", () -> product(1L, "bbb", new ProductVersionDTO(2L, 1L)));
+            return product(1L, "aaa");
+        });
+
+        // assert
+        assertSame(newer[0], cache.product(1L, "2-1", () -> product(1L, "ccc")));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Unit - page - Must not cache a page read while its category was evicted")
+    void pageTest01() {
+        // arrange
+        Pageable pageable = PageRequest.of(0, 10);
+
+        // act
+        cache.page(Category.CPU, pageable, () -> {
+            PageImpl<ProductResponseDTO> page = page(pageable, product(1L, "aaa"));
+            cache.evictPages(Category.CPU);
+            return page;
+        });
+        cache.page(Category.CPU, pageable, () -> page(pageable, product(1L, "aaa")));
+
+        // assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Unit - evictProducts - Must evict the product and every page showing it")
+    void evictProductsTest01() {
+        // arrange
+        Pageable first = PageRequest.of(0, 2);
+        Pageable second = PageRequest.of(1, 2);
+        EncodedJson product = cache.product(1L, "1-1", () -> product(1L, "aaa"));
+        EncodedJson showing = cache.page(Category.CPU, first, () -> page(first, product(1L, "aaa"), product(2L, "bbb")));
+        EncodedJson other = cache.page(Category.CPU, second, () -> page(second, product(3L, "ccc")));
+
+        // act
+        cache.evictProducts(List.of(1L));
+
+        // assert
+        assertNotSame(product, cache.product(1L, "1-1", () -> product(1L, "aaa")));
+        assertNotSame(showing, cache.page(Category.CPU, first, () -> page(first, product(1L, "aaa"), product(2L, "bbb"))));
+        assertSame(other, cache.page(Category.CPU, second, () -> page(second, product(3L, "ccc"))));
+    }
+
+    @Test
+    @DisplayName("Unit - evictPages - Must evict only the pages of the category")
+    void evictPagesTest01() {
+        // arrange
+        Pageable pageable = PageRequest.of(0, 10);
+        EncodedJson cpu = cache.page(Category.CPU, pageable, () -> page(pageable, product(1L, "aaa")));
+        EncodedJson gpu = cache.page(Category.GPU, pageable, () -> page(pageable, product(2L, "bbb")));
+
+        // act
+        cache.evictPages(Category.CPU);
+
+        // assert
+        assertSame(gpu, cache.page(Category.GPU, pageable, () -> page(pageable, product(2L, "bbb"))));
+        EncodedJson reloaded = cache.page(Category.CPU, pageable, () -> page(pageable, product(1L, "aaa")));
+        assertArrayEquals(cpu.body(), reloaded.body());
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    @DisplayName("Unit - isCachedPage - Must cache only category pages with no other filter or sort")
+    void isCachedPageTest01() {
+        assertTrue(ProductJsonCache.isCachedPage(PageRequest.of(2, 10), Category.CPU, false));
+        assertFalse(ProductJsonCache.isCachedPage(PageRequest.of(0, 10), null, false));
+        assertFalse(ProductJsonCache.isCachedPage(PageRequest.of(0, 10), Category.CPU, true));
+        assertFalse(ProductJsonCache.isCachedPage(PageRequest.of(0, 10, Sort.by("price")), Category.CPU, false));
+    }
+
+    private ProductResponseDTO product(Long id, String name) {
+        return product(id, name, new ProductVersionDTO(1L, 1L));
+    }
+
+    private ProductResponseDTO product(Long id, String name, ProductVersionDTO version) {
+        loads.incrementAndGet();
+        ProductResponseDTO product = new ProductResponseDTO();
+        product.setId(id);
+        product.setName(name);
+        product.setVersion(version);
+        return product;
+    }
+
+    private PageImpl<ProductResponseDTO> page(Pageable pageable, ProductResponseDTO... products) {
+        return new PageImpl<>(List.of(products), pageable, 3);
+    }
+}
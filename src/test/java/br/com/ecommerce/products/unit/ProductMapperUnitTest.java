@@ -0,0 +1,101 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+
+import br.com.ecommerce.products.mapper.ProductMapper;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductDTO;
+import br.com.ecommerce.products.model.product.ProductResponseDTO;
+import br.com.ecommerce.products.model.product.ProductSpecDTO;
+import br.com.ecommerce.products.model.product.ProductUpdateDTO;
+import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.utils.RandomUtils;
+
+class ProductMapperUnitTest {
+
+    private final ProductMapper mapper = Mappers.getMapper(ProductMapper.class);
+
+
+    @Test
+    @DisplayName("Unit - toProduct - Must map every attribute of a ProductDTO")
+    void toProductTest01() {
+        // arrange
+        ProductDTO dto = new ProductDTO(
+            "Name",
+            "Description",
+            new BigDecimal("350"),
+            Category.CPU,
+            new StockDTO(150),
+            new ManufacturerDTO("AMD"),
+            List.of(new ProductSpecDTO("socket", "AM4"))
+        );
+
+        // act
+        Product result = mapper.toProduct(dto);
+
+        // assert
+        assertEquals(dto.getName(), result.getName());
+        assertEquals(dto.getDescription(), result.getDescription());
+        assertEquals(dto.getPrice(), result.getPrice());
+        assertEquals(dto.getCategory(), result.getCategory());
+        assertEquals(dto.getStock().getUnit(), result.getStock().getUnit());
+        assertEquals(dto.getManufacturer().getName(), result.getManufacturer().getName());
+        assertEquals(dto.getSpecs().get(0).getAttribute(), result.getSpecs().get(0).getAttribute());
+        assertEquals(dto.getSpecs().get(0).getValue(), result.getSpecs().get(0).getValue());
+    }
+
+    @Test
+    @DisplayName("Unit - toProduct - Null attributes of a ProductUpdateDTO must not overwrite product data")
+    void toProductTest02() {
+        // arrange
+        Product target = RandomUtils.getRandomProduct(true);
+        String currentName = target.getName();
+        String currentManufacturer = target.getManufacturer().getName();
+        ProductUpdateDTO dto = new ProductUpdateDTO(null, "UPDATE-DESCRIPTION", null, null, null);
+
+        // act
+        Product updateData = mapper.toProduct(dto);
+        target.update(updateData);
+
+        // assert
+        assertNull(updateData.getManufacturer());
+        assertEquals(currentName, target.getName());
+        assertEquals("UPDATE-DESCRIPTION", target.getDescription());
+        assertEquals(currentManufacturer, target.getManufacturer().getName());
+    }
+
+    @Test
+    @DisplayName("Unit - toProductResponseDTO - Must map product, manufacturer and specs")
+    void toProductResponseDTOTest01() {
+        // arrange
+        Product product = RandomUtils.getRandomProduct(true);
+
+        // act
+        ProductResponseDTO result = mapper.toProductResponseDTO(product);
+
+        // assert
+        assertEquals(product.getId(), result.getId());
+        assertEquals(product.getName(), result.getName());
+        assertSame(product.getStock(), result.getStock());
+        assertEquals(product.getManufacturer().getName(), result.getManufacturer().getName());
+        assertEquals(product.getSpecs().size(), result.getSpecs().size());
+        assertEquals(product.getSpecs().get(0).getValue(), result.getSpecs().get(0).getValue());
+    }
+
+    @Test
+    @DisplayName("Unit - toStock - Must keep negative units so they can be applied as a delta")
+    void toStockTest01() {
+        assertEquals(-10, mapper.toStock(new StockDTO(-10)).getUnit());
+    }
+}
@@ -0,0 +1,122 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.ecommerce.products.index.ProductNameIndex;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductNameDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ProductNameIndexUnitTest {
+
+    @Mock
+    private ProductRepository repository;
+    @InjectMocks
+    private ProductNameIndex index;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(index, "maxCandidates", 2);
+    }
+
+
+    @Test
+    @DisplayName("Unit - search - Must return the ids of the names containing the query ignoring case")
+    void searchTest01() {
+        // arrange
+        rebuild(new ProductNameDTO(1L, "Ryzen 7 5800X"), new ProductNameDTO(2L, "Ryzen 5 5600"), new ProductNameDTO(3L, "Core i9"));
+
+        // act and assert
+        assertEquals(Optional.of(List.of(1L, 2L)), index.search("RYZEN"));
+        assertEquals(Optional.of(List.of(1L)), index.search("5800x"));
+        assertEquals(Optional.of(List.of()), index.search("radeon"));
+    }
+
+    @Test
+    @DisplayName("Unit - search - Names sharing every trigram of the query without containing it must not match")
+    void searchTest02() {
+        // arrange
+        rebuild(new ProductNameDTO(1L, "abcd bcde"));
+
+        // act and assert
+        assertEquals(Optional.of(List.of()), index.search("abcde"));
+    }
+
+    @Test
+    @DisplayName("Unit - search - Must leave the query to the database when the index cannot answer it")
+    void searchTest03() {
+        // act and assert
+        assertTrue(index.search("ryzen").isEmpty(), "not built yet");
+
+        rebuild(new ProductNameDTO(1L, "ryzen 1"), new ProductNameDTO(2L, "ryzen 2"), new ProductNameDTO(3L, "ryzen 3"));
+        assertTrue(index.search("ry").isEmpty(), "shorter than a trigram");
+        assertTrue(index.search("ry%en").isEmpty(), "LIKE wildcard");
+        assertTrue(index.search("ryzen").isEmpty(), "more candidates than allowed");
+    }
+
+    @Test
+    @DisplayName("Unit - update - Must reindex a renamed product")
+    void updateTest01() {
+        // arrange
+        rebuild(new ProductNameDTO(1L, "ryzen"));
+
+        // act
+        index.update(1L, Product.builder().id(1L).name("core").build());
+
+        // assert
+        assertEquals(Optional.of(List.of()), index.search("ryzen"));
+        assertEquals(Optional.of(List.of(1L)), index.search("core"));
+    }
+
+    @Test
+    @DisplayName("Unit - update - Must remove a product that no longer exists")
+    void updateTest02() {
+        // arrange
+        rebuild(new ProductNameDTO(7L, "geforce"));
+
+        // act
+        index.update(7L, null);
+
+        // assert
+        assertEquals(Optional.of(List.of()), index.search("geforce"));
+    }
+
+    @Test
+    @DisplayName("Unit - rebuild - Updates applied while the catalog is loading must be kept")
+    void rebuildTest01() {
+        // arrange
+        when(repository.findNamesAfter(anyLong(), any())).thenAnswer(invocation -> {
+            index.update(1L, Product.builder().id(1L).name("renamed").build());
+            return List.of(new ProductNameDTO(1L, "original"));
+        });
+
+        // act
+        index.rebuild();
+
+        // assert
+        assertEquals(Optional.of(List.of(1L)), index.search("renamed"));
+        assertEquals(Optional.of(List.of()), index.search("original"));
+    }
+
+    private void rebuild(ProductNameDTO... products) {
+        when(repository.findNamesAfter(anyLong(), any())).thenReturn(List.of(products));
+        index.rebuild();
+    }
+}
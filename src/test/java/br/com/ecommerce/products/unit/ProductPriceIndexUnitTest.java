@@ -0,0 +1,152 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.ecommerce.products.index.ProductPriceIndex;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.PriceFacetDTO;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductPriceEntryDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ProductPriceIndexUnitTest {
+
+    @Mock
+    private ProductRepository repository;
+    @InjectMocks
+    private ProductPriceIndex index;
+
+    @BeforeEach
+    void setup() {
+        ReflectionTestUtils.setField(index, "maxCandidates", 3);
+    }
+
+
+    @Test
+    @DisplayName("Unit - search - Must return the ids of the category priced within the range, bounds included")
+    void searchTest01() {
+        // arrange
+        rebuild(
+            entry(4L, Category.CPU, "9.99"),
+            entry(2L, Category.CPU, "10.00"),
+            entry(1L, Category.GPU, "15.00"),
+            entry(3L, Category.CPU, "20.00"),
+            entry(5L, Category.CPU, "20.01"));
+
+        // act and assert
+        assertEquals(Optional.of(List.of(2L, 3L)), index.search(Category.CPU, new BigDecimal("10"), new BigDecimal("20")));
+        assertEquals(Optional.of(List.of(1L, 2L, 3L)), index.search(null, new BigDecimal("9.995"), new BigDecimal("20.009")));
+        assertEquals(Optional.of(List.of(5L)), index.search(Category.CPU, new BigDecimal("20.001"), null));
+        assertEquals(Optional.of(List.of()), index.search(Category.RAM, BigDecimal.ONE, null));
+    }
+
+    @Test
+    @DisplayName("Unit - search - Must leave the query to the database when the index cannot answer it")
+    void searchTest02() {
+        // act and assert
+        assertTrue(index.search(Category.CPU, BigDecimal.ONE, null).isEmpty(), "not built yet");
+
+        rebuild(entry(1L, Category.CPU, "1"), entry(2L, Category.CPU, "2"), entry(3L, Category.CPU, "3"), entry(4L, Category.CPU, "4"));
+        assertTrue(index.search(Category.CPU, null, null).isEmpty(), "no price range");
+        assertTrue(index.search(Category.CPU, BigDecimal.ONE, null).isEmpty(), "too many candidates");
+    }
+
+    @Test
+    @DisplayName("Unit - histogram - Must count the products in equal price ranges")
+    void histogramTest01() {
+        // arrange
+        rebuild(
+            entry(1L, Category.CPU, "10"),
+            entry(2L, Category.CPU, "14.99"),
+            entry(3L, Category.CPU, "15"),
+            entry(4L, Category.GPU, "18"),
+            entry(5L, Category.CPU, "19.99"));
+
+        // act
+        List<PriceFacetDTO> cpus = index.histogram(Category.CPU, new BigDecimal("10"), new BigDecimal("19.99"), 2);
+        List<PriceFacetDTO> all = index.histogram(null, null, null, 2);
+
+        // assert
+        assertEquals(List.of(2L, 2L), cpus.stream().map(PriceFacetDTO::getCount).toList());
+        assertEquals(new BigDecimal("10.00"), cpus.get(0).getFrom());
+        assertEquals(new BigDecimal("15.00"), cpus.get(0).getTo());
+        assertEquals(List.of(2L, 3L), all.stream().map(PriceFacetDTO::getCount).toList());
+        assertThrows(IllegalArgumentException.class, () -> index.histogram(null, BigDecimal.TEN, BigDecimal.ONE, 2));
+        assertThrows(IllegalArgumentException.class, () -> index.histogram(null, null, null, 0));
+    }
+
+    @Test
+    @DisplayName("Unit - update - Must move a repriced product and remove one that no longer exists")
+    void updateTest01() {
+        // arrange
+        rebuild(entry(1L, Category.CPU, "10"), entry(2L, Category.CPU, "20"));
+        Product product = Product.builder().id(1L).category(Category.CPU).price(new BigDecimal("30")).build();
+
+        // act
+        index.update(1L, product);
+
+        // assert
+        assertEquals(Optional.of(List.of(1L, 2L)), index.search(Category.CPU, new BigDecimal("15"), null));
+        assertEquals(Optional.of(List.of()), index.search(Category.CPU, null, new BigDecimal("15")));
+
+        index.update(2L, null);
+        assertEquals(Optional.of(List.of(1L)), index.search(Category.CPU, new BigDecimal("15"), null));
+    }
+
+    @Test
+    @DisplayName("Unit - rebuild - Must page through the products by price and id")
+    void rebuildTest01() {
+        // arrange
+        when(repository.findPriceEntriesAfter(eq(BigDecimal.ZERO), eq(0L), any()))
+            .thenAnswer(invocation -> {
+                Limit limit = invocation.getArgument(2);
+                return LongStream.rangeClosed(1, limit.max())
+                    .mapToObj(id -> entry(id, Category.CPU, "5"))
+                    .toList();
+            });
+        when(repository.findPriceEntriesAfter(eq(new BigDecimal("5")), anyLong(), any()))
+            .thenReturn(List.of(entry(10_001L, Category.CPU, "6")));
+
+        // act
+        index.rebuild();
+
+        // assert
+        assertEquals(Optional.of(List.of(10_001L)), index.search(Category.CPU, new BigDecimal("6"), null));
+    }
+
+    private void rebuild(ProductPriceEntryDTO... rows) {
+        List<ProductPriceEntryDTO> sorted = Arrays.stream(rows)
+            .sorted(Comparator.comparing(ProductPriceEntryDTO::getPrice).thenComparing(ProductPriceEntryDTO::getProductId))
+            .toList();
+        when(repository.findPriceEntriesAfter(any(), anyLong(), any())).thenReturn(sorted);
+        index.rebuild();
+    }
+
+    private static ProductPriceEntryDTO entry(Long id, Category category, String price) {
+        return new ProductPriceEntryDTO(id, category, new BigDecimal(price));
+    }
+}
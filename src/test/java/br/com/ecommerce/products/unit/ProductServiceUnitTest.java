@@ -3,33 +3,52 @@ package br.com.ecommerce.products.unit;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import br.com.ecommerce.products.cache.ManufacturerCache;
+import br.com.ecommerce.products.cache.ProductCacheInvalidator;
+import br.com.ecommerce.products.index.ProductIndexListener;
+import br.com.ecommerce.products.index.ProductNameIndex;
+import br.com.ecommerce.products.index.ProductPriceIndex;
+import br.com.ecommerce.products.index.ProductSpecIndex;
+import br.com.ecommerce.products.index.ProductSpecIndex.SpecValue;
+import br.com.ecommerce.products.mapper.ProductMapper;
 import br.com.ecommerce.products.model.manufacturer.Manufacturer;
 import br.com.ecommerce.products.model.manufacturer.ManufacturerDTO;
+import br.com.ecommerce.products.model.manufacturer.ManufacturerResponseDTO;
 import br.com.ecommerce.products.model.product.Category;
 import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductPriceDTO;
 import br.com.ecommerce.products.model.product.ProductDTO;
 import br.com.ecommerce.products.model.product.ProductIdAndUnitsDTO;
 import br.com.ecommerce.products.model.product.ProductResponseDTO;
@@ -37,11 +56,14 @@ import br.com.ecommerce.products.model.product.ProductSpecDTO;
 import br.com.ecommerce.products.model.product.ProductUpdateDTO;
 import br.com.ecommerce.products.model.product.Stock;
 import br.com.ecommerce.products.model.product.StockDTO;
+import br.com.ecommerce.products.model.product.StockResponseDTO;
 import br.com.ecommerce.products.model.product.StockWriteOffDTO;
-import br.com.ecommerce.products.repository.ManufacturerRepository;
 import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.reservation.StockReservationLedger;
 import br.com.ecommerce.products.service.ProductService;
+import br.com.ecommerce.products.service.StockMetrics;
 import br.com.ecommerce.products.utils.RandomUtils;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
 
 @ExtendWith(MockitoExtension.class)
@@ -50,7 +72,23 @@ class ProductServiceUnitTest {
     @Mock
     private ProductRepository repository;
     @Mock
-    private ManufacturerRepository manufacturerRepository;
+    private ManufacturerCache manufacturers;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private ProductCacheInvalidator cacheInvalidator;
+    @Mock
+    private ProductNameIndex nameIndex;
+    @Mock
+    private ProductSpecIndex specIndex;
+    @Mock
+    private ProductPriceIndex priceIndex;
+    @Mock
+    private ProductIndexListener indexListener;
+    @Mock
+    private StockReservationLedger reservations;
+    @Mock
+    private StockMetrics stockMetrics;
     @InjectMocks
     private ProductService service;
 
@@ -58,7 +96,7 @@ class ProductServiceUnitTest {
 
     @BeforeEach
     void setup() {
-        ReflectionTestUtils.setField(service, "mapper", new ModelMapper());
+        ReflectionTestUtils.setField(service, "mapper", Mappers.getMapper(ProductMapper.class));
     }
 
     
@@ -112,18 +150,49 @@ class ProductServiceUnitTest {
         assertEquals(product.getManufacturer().getName(), result.getManufacturer().getName());
     }
 
+    @Test
+    @DisplayName("Unit - getAllProductWithParams - Must filter by the ids the name index resolved")
+    void getAllProductWithParamsTest02() {
+        // arrange
+        Product product = this.testProductDefault;
+        when(nameIndex.search("aaa")).thenReturn(Optional.of(List.of(product.getId())));
+        when(repository.findAllByIdsAndParams(any(), eq(List.of(product.getId())), any(), any(), any(), any()))
+            .thenReturn(new PageImpl<Product>(List.of(product)));
+
+        // act
+        var result = service.getAllProductWithParams(PageRequest.of(0, 10), "aaa", null, null, null, null);
+
+        // assert
+        assertEquals(product.getId(), result.getContent().get(0).getId());
+        verify(repository, never()).findAllByParams(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Unit - getAllProductWithParams - Must not query the database when the name index finds nothing")
+    void getAllProductWithParamsTest03() {
+        // arrange
+        when(nameIndex.search("zzz")).thenReturn(Optional.of(List.of()));
+
+        // act
+        var result = service.getAllProductWithParams(PageRequest.of(0, 10), "zzz", null, null, null, null);
+
+        // assert
+        assertEquals(0, result.getTotalElements());
+        verifyNoInteractions(repository);
+    }
+
     @Test
     @DisplayName("Unit - getAllBySpecs - Must return all products by specifications")
     void getAllBySpecsTest01() {
         // arrange
         Product product = RandomUtils.getRandomProduct(true);
 
-        when(repository.findProductsBySpecs(any(), any()))
+        when(repository.findAll(ArgumentMatchers.<Specification<Product>>any(), any(Pageable.class)))
             .thenReturn(new PageImpl<Product>(List.of(product)));
         
         // act
         ProductResponseDTO result = service
-            .getAllBySpecs(PageRequest.of(0, 10), List.of(Map.of("string", "string")))
+            .getAllBySpecs(PageRequest.of(0, 10), List.of(Map.of("attribute", "cores", "value", "8")), null)
             .getContent()
             .get(0);
 
@@ -138,27 +207,81 @@ class ProductServiceUnitTest {
     }
 
     @Test
-    @DisplayName("Unit - verifyProductsStocks - Must return products with insufficient stock")
+    @DisplayName("Unit - getAllBySpecs - Must load the page of ids resolved by the spec index")
+    void getAllBySpecsTest02() {
+        // arrange
+        Product product = RandomUtils.getRandomProduct(true);
+        Pageable pageable = PageRequest.of(0, 10);
+        when(specIndex.search(List.of(new SpecValue("cores", "8")), Category.CPU, pageable))
+            .thenReturn(Optional.of(new PageImpl<>(List.of(product.getId()), pageable, 11)));
+        when(repository.findAllByIdIn(List.of(product.getId()))).thenReturn(List.of(product));
+
+        // act
+        var result = service.getAllBySpecs(pageable, List.of(Map.of("attribute", "cores", "value", "8")), Category.CPU);
+
+        // assert
+        assertEquals(11, result.getTotalElements());
+        assertEquals(product.getId(), result.getContent().get(0).getId());
+    }
+
+    @Test
+    @DisplayName("Unit - getAllBySpecs - Must fail when a spec has no attribute or value")
+    void getAllBySpecsTest03() {
+        // act and assert
+        assertThrows(IllegalArgumentException.class, 
+            () -> service.getAllBySpecs(PageRequest.of(0, 10), List.of(Map.of("string", "string")), null));
+    }
+
+    @Test
+    @DisplayName("Unit - getAllBySpecs - Must leave out the ids of the index no longer found in the database")
+    void getAllBySpecsTest04() {
+        // arrange
+        Product product = RandomUtils.getRandomProduct(true);
+        Long deletedId = product.getId() + 1;
+        Pageable pageable = PageRequest.of(0, 10);
+        when(specIndex.search(List.of(new SpecValue("cores", "8")), null, pageable))
+            .thenReturn(Optional.of(new PageImpl<>(List.of(product.getId(), deletedId), pageable, 12)));
+        when(repository.findAllByIdIn(List.of(product.getId(), deletedId))).thenReturn(List.of(product));
+
+        // act
+        var result = service.getAllBySpecs(pageable, List.of(Map.of("attribute", "cores", "value", "8")), null);
+
+        // assert
+        assertEquals(1, result.getContent().size());
+        assertEquals(product.getId(), result.getContent().get(0).getId());
+        assertEquals(11, result.getTotalElements());
+    }
+
+    @Test
+    @DisplayName("Unit - verifyProductsStocks - Must return products with insufficient stock net of the reserved units")
     void verifyProductsStocksTest01() {
         // arrange
-        List<Product> products = List.of(
-            Product.builder().id(1L).stock(new Stock(100)).build(),
-            Product.builder().id(2L).stock(new Stock(1)).build()
+        List<StockResponseDTO> stocks = List.of(
+            new StockResponseDTO(1L, "a", 100),
+            new StockResponseDTO(2L, "b", 1),
+            new StockResponseDTO(3L, "c", 50)
         );
 
         List<ProductIdAndUnitsDTO> requestBody = List.of(
             new ProductIdAndUnitsDTO(1L, 99),
-            new ProductIdAndUnitsDTO(2L, 2)
+            new ProductIdAndUnitsDTO(2L, 2),
+            new ProductIdAndUnitsDTO(3L, 10)
         );
 
-        when(repository.findAllById(any())).thenReturn(products);
+        when(repository.findStocksByIdIn(any())).thenReturn(stocks);
+        when(reservations.reserved(anyLong())).thenReturn(0);
+        when(reservations.reserved(3L)).thenReturn(45);
         
         // act
         var result = service.verifyProductsStocks(requestBody);
 
         // assert
-        assertEquals(1, result.size());
-        assertEquals(result.get(0).getId(), products.get(1).getId());
+        assertEquals(2, result.size());
+        assertEquals(2L, result.get(0).getProductId());
+        assertEquals(1, result.get(0).getUnit());
+        assertEquals(3L, result.get(1).getProductId());
+        assertEquals(5, result.get(1).getUnit());
+        verify(stockMetrics).outOfStock(2);
     }
     
     @Test
@@ -179,6 +302,25 @@ class ProductServiceUnitTest {
         assertEquals(products.get(0).getStock().getUnit(), result.get(0).getStock().getUnit());
     }
 
+    @Test
+    @DisplayName("Unit - getPrices - Must return the prices in request order, with null for missing products")
+    void getPricesTest01() {
+        // arrange
+        when(repository.findPricesByIdIn(List.of(1L, 2L, 3L))).thenReturn(List.of(
+            new ProductPriceDTO(3L, BigDecimal.ONE),
+            new ProductPriceDTO(1L, BigDecimal.TEN)));
+
+        // act
+        var result = service.getPrices(List.of(3L, 2L, 1L, 3L));
+
+        // assert
+        assertEquals(List.of(3L, 2L, 1L, 3L), result.stream().map(ProductPriceDTO::getId).toList());
+        assertEquals(BigDecimal.ONE, result.get(0).getPrice());
+        assertNull(result.get(1).getPrice());
+        assertEquals(BigDecimal.TEN, result.get(2).getPrice());
+        assertEquals(BigDecimal.ONE, result.get(3).getPrice());
+    }
+
     @Test
     @DisplayName("Unit - updateProductData - Update product with full data")
     void updateProductDataTest01() {
@@ -190,7 +332,8 @@ class ProductServiceUnitTest {
             new ProductUpdateDTO("UPDATE-NAME", "UPDATE-DESCRIPTION", BigDecimal.ONE, Category.FAN, newManufacturer);
 
         when(repository.getReferenceById(any())).thenReturn(target);
-        when(manufacturerRepository.findByName(any())).thenReturn(Optional.of(new Manufacturer(requestBody.getManufacturer().getName())));
+        when(manufacturers.findByName("INTEL")).thenReturn(Optional.of(new ManufacturerResponseDTO(2L, "INTEL")));
+        when(entityManager.getReference(Manufacturer.class, 2L)).thenReturn(new Manufacturer("INTEL"));
         
         // act
         service.updateProductData(1L, requestBody);
@@ -236,59 +379,51 @@ class ProductServiceUnitTest {
     }
 
     @Test
-    @DisplayName("Unit - updateStockByProductId - Must update product stock by product ID")
+    @DisplayName("Unit - updateStockByProductId - Must return the units the update left in stock, clamped at zero")
     void updateStockByProductIdTest01() {
         // arrange
-        Product product = Product.builder()
-            .stock(new Stock(100))            
-            .build();
+        StockResponseDTO stock = new StockResponseDTO(1L, "name", -150);
+        when(repository.addToStocks(Map.of(1L, -200))).thenReturn(List.of(stock));
 
-        when(repository.getReferenceById(anyLong())).thenReturn(product);
+        // act
+        var result = service.updateStockByProductId(1L, new StockDTO(-200));
+
+        // assert
+        assertEquals(stock, result);
+        assertEquals(0, result.getUnit());
+        verify(cacheInvalidator).evictProducts(Set.of(1L));
+    }
+    @Test
+    @DisplayName("Unit - updateStockByProductId - Must fail when the product does not exist")
+    void updateStockByProductIdTest02() {
+        // arrange
+        when(repository.addToStocks(Map.of(1L, 10))).thenReturn(List.of());
 
         // act and assert
-        assertAll(
-            () -> {
-            service.updateStockByProductId(1L, new StockDTO(-100));
-            assertEquals(0, product.getStock().getUnit());
-            },
-            
-            () -> {
-            service.updateStockByProductId(1L, new StockDTO(+150));
-            assertEquals(+150, product.getStock().getUnit());
-            },
-            
-            () -> {
-            service.updateStockByProductId(1L, new StockDTO(-200));
-            assertEquals(0, product.getStock().getUnit());
-            }
-        );
+        assertThrows(EntityNotFoundException.class, () -> service.updateStockByProductId(1L, new StockDTO(10)));
     }
     @Test
-    @DisplayName("Unit - updateStocks - Must update stocks of multiple products")
+    @DisplayName("Unit - updateStocks - Must write off every product in one call, summing repeated ids")
     void updateStocksTes01() {
         // arrange
-        List<Product> products = List.of(
-            Product.builder().id(1L).stock(new Stock(100)).build(),
-            Product.builder().id(2L).stock(new Stock(200)).build(),
-            Product.builder().id(3L).stock(new Stock(300)).build()
-        );
         List<StockWriteOffDTO> stockWriteOff = List.of(
+            new StockWriteOffDTO(3L, 300),
             new StockWriteOffDTO(1L, 100),
-            new StockWriteOffDTO(2L, 200),
-            new StockWriteOffDTO(3L, 300)
+            new StockWriteOffDTO(3L, 5)
         );
-
-        when(repository.findAllById(anyList())).thenReturn(products);
+        List<StockResponseDTO> stocks = List.of(
+            new StockResponseDTO(1L, "a", 0),
+            new StockResponseDTO(3L, "c", 0)
+        );
+        when(repository.addToStocks(Map.of(1L, -100, 3L, -305))).thenReturn(stocks);
 
         // act
-        service.updateStocks(stockWriteOff);
+        var result = service.updateStocks(stockWriteOff);
 
         // assert
-        assertAll(
-            () -> assertEquals(0, products.get(0).getStock().getUnit()),
-            () -> assertEquals(0, products.get(1).getStock().getUnit()),
-            () -> assertEquals(0, products.get(2).getStock().getUnit())
-        );
+        assertEquals(stocks, result);
+        verify(cacheInvalidator).evictProducts(Set.of(1L, 3L));
+        verify(stockMetrics).applied(Map.of(1L, -100, 3L, -305), stocks);
     }
 
     @Test
@@ -305,8 +440,8 @@ class ProductServiceUnitTest {
             List.of(new ProductSpecDTO("socket", "AM4"))
         );
 
-        when(manufacturerRepository.findByName(any()))
-            .thenReturn(Optional.of(new Manufacturer(requestBody.getManufacturer().getName())));
+        when(manufacturers.findByName("AMD")).thenReturn(Optional.of(new ManufacturerResponseDTO(1L, "AMD")));
+        when(entityManager.getReference(Manufacturer.class, 1L)).thenReturn(new Manufacturer("AMD"));
 
         // act
         ProductResponseDTO result = service.createProduct(requestBody);
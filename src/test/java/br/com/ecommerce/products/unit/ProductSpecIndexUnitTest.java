@@ -0,0 +1,134 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import br.com.ecommerce.products.index.ProductSpecIndex;
+import br.com.ecommerce.products.index.ProductSpecIndex.SpecValue;
+import br.com.ecommerce.products.model.product.Category;
+import br.com.ecommerce.products.model.product.Product;
+import br.com.ecommerce.products.model.product.ProductSpec;
+import br.com.ecommerce.products.model.product.ProductSpecEntryDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+
+@ExtendWith(MockitoExtension.class)
+class ProductSpecIndexUnitTest {
+
+    private static final SpecValue AM5 = new SpecValue("socket", "AM5");
+    private static final SpecValue DDR5 = new SpecValue("ram_type", "DDR5");
+
+    @Mock
+    private ProductRepository repository;
+    @InjectMocks
+    private ProductSpecIndex index;
+
+
+    @Test
+    @DisplayName("Unit - search - Must return the products having every spec pair")
+    void searchTest01() {
+        // arrange
+        rebuild(
+            new ProductSpecEntryDTO(1L, Category.CPU, "socket", "AM5"),
+            new ProductSpecEntryDTO(1L, Category.CPU, "ram_type", "DDR5"),
+            new ProductSpecEntryDTO(2L, Category.CPU, "socket", "AM5"),
+            new ProductSpecEntryDTO(2L, Category.CPU, "ram_type", "DDR4"),
+            new ProductSpecEntryDTO(3L, Category.MOBO, "socket", "AM5"),
+            new ProductSpecEntryDTO(3L, Category.MOBO, "ram_type", "DDR5"));
+
+        // act and assert
+        assertEquals(List.of(1L, 3L), ids(List.of(AM5, DDR5), null));
+        assertEquals(List.of(1L), ids(List.of(AM5, DDR5), Category.CPU));
+        assertEquals(List.of(), ids(List.of(AM5, new SpecValue("socket", "LGA1700")), null));
+        assertEquals(List.of(), ids(List.of(new SpecValue("cores", "8")), null));
+        assertEquals(List.of(1L, 2L, 3L), ids(List.of(), null));
+    }
+
+    @Test
+    @DisplayName("Unit - search - Must cut the page from the ids in ascending order")
+    void searchTest02() {
+        // arrange
+        rebuild(
+            new ProductSpecEntryDTO(4L, Category.CPU, "socket", "AM5"),
+            new ProductSpecEntryDTO(9L, Category.CPU, "socket", "AM5"),
+            new ProductSpecEntryDTO(7L, Category.CPU, "socket", "AM5"));
+
+        // act
+        Page<Long> page = index.search(List.of(AM5), null, PageRequest.of(1, 2)).orElseThrow();
+
+        // assert
+        assertEquals(List.of(9L), page.getContent());
+        assertEquals(3, page.getTotalElements());
+        assertTrue(index.search(List.of(AM5), null, PageRequest.of(5, 2)).orElseThrow().getContent().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Unit - search - Must leave the query to the database when the index cannot answer it")
+    void searchTest03() {
+        // act and assert
+        assertTrue(index.search(List.of(AM5), null, Pageable.unpaged()).isEmpty(), "not built yet");
+
+        rebuild(new ProductSpecEntryDTO(1L, Category.CPU, "socket", "AM5"));
+        assertTrue(index.search(List.of(AM5), null, PageRequest.of(0, 10, Sort.by("price"))).isEmpty(), "not sorted by id");
+    }
+
+    @Test
+    @DisplayName("Unit - rebuild - Must load every range of ids")
+    void rebuildTest01() {
+        // arrange
+        when(repository.findMaxId()).thenReturn(120_000L);
+        when(repository.findSpecEntriesBetween(anyLong(), anyLong())).thenAnswer(invocation -> {
+            long from = invocation.getArgument(0);
+            return List.of(new ProductSpecEntryDTO(from + 1, Category.CPU, "socket", "AM5"));
+        });
+
+        // act
+        index.rebuild();
+
+        // assert
+        assertEquals(List.of(1L, 50_001L, 100_001L), ids(List.of(AM5), null));
+    }
+
+    @Test
+    @DisplayName("Unit - update - Must reindex a changed product and remove one that no longer exists")
+    void updateTest01() {
+        // arrange
+        rebuild(new ProductSpecEntryDTO(1L, Category.CPU, "socket", "AM5"));
+        ProductSpec spec = new ProductSpec("ram_type", "DDR5");
+        Product product = Product.builder().id(1L).category(Category.MOBO).specs(List.of(spec)).build();
+
+        // act
+        index.update(1L, product);
+
+        // assert
+        assertEquals(List.of(), ids(List.of(AM5), null));
+        assertEquals(List.of(1L), ids(List.of(DDR5), Category.MOBO));
+
+        index.update(1L, null);
+        assertEquals(List.of(), ids(List.of(DDR5), null));
+    }
+
+    private void rebuild(ProductSpecEntryDTO... rows) {
+        when(repository.findMaxId()).thenReturn(10L);
+        when(repository.findSpecEntriesBetween(0, 50_000)).thenReturn(List.of(rows));
+        index.rebuild();
+    }
+
+    private List<Long> ids(List<SpecValue> specs, Category category) {
+        return index.search(specs, category, Pageable.unpaged()).orElseThrow().getContent();
+    }
+}
@@ -0,0 +1,119 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.com.ecommerce.products.amqp.ProductsListener;
+import br.com.ecommerce.products.service.ConflictRetry;
+import br.com.ecommerce.products.service.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProductsListenerUnitTest {
+
+    private final ProductService service = mock(ProductService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ProductsListener listener;
+
+    @BeforeEach
+    void setup() {
+        listener = new ProductsListener(registry);
+        ReflectionTestUtils.setField(listener, "service", service);
+        ReflectionTestUtils.setField(listener, "retry", new ConflictRetry(transactionManager, registry, 3, Duration.ZERO, Duration.ZERO));
+        ReflectionTestUtils.setField(listener, "objectMapper", new ObjectMapper());
+    }
+
+
+    @Test
+    @DisplayName("Unit - receiveStockOrders - Must merge the deltas of every message per product and commit once")
+    void receiveStockOrdersTest01() {
+        // arrange
+        List<Message> batch = List.of(
+            message("[{\"productId\": 1, \"unit\": -2}, {\"productId\": 2, \"unit\": -1}]"),
+            message("[{\"productId\": 1, \"unit\": -3}]"));
+
+        // act
+        listener.receiveStockOrders(batch);
+
+        // assert
+        verify(service).writeOff(Map.of(1L, -5, 2L, -1), Set.of());
+        verify(transactionManager).commit(null);
+        assertEquals(2, registry.get("products.stock.orders.messages").counter().count());
+        assertEquals(2, registry.get("products.stock.orders.batch.size").summary().totalAmount());
+        assertEquals(1, registry.get("products.stock.orders.commit").timer().count());
+    }
+
+    @Test
+    @DisplayName("Unit - receiveStockOrders - Must drop unreadable messages and apply the rest")
+    void receiveStockOrdersTest02() {
+        // arrange
+        List<Message> batch = List.of(
+            message("not json"),
+            message("[{\"productId\": null, \"unit\": -2}]"),
+            message("[{\"productId\": 3, \"unit\": -4}]"));
+
+        // act
+        listener.receiveStockOrders(batch);
+
+        // assert
+        verify(service).writeOff(Map.of(3L, -4), Set.of());
+        assertEquals(2, registry.get("products.stock.orders.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Unit - receiveStockOrders - A failed write must not be counted as consumed")
+    void receiveStockOrdersTest03() {
+        // arrange
+        doThrow(new IllegalStateException()).when(service).writeOff(anyMap(), anyCollection());
+        List<Message> batch = List.of(message("[{\"productId\": 1, \"unit\": -1}]"));
+
+        // act and assert
+        assertThrows(IllegalStateException.class, () -> listener.receiveStockOrders(batch));
+        verify(transactionManager, never()).commit(null);
+        assertEquals(0, registry.get("products.stock.orders.messages").counter().count());
+    }
+
+    @Test
+    @DisplayName("Unit - receiveStockOrders - Must free the reservations the orders were held under with the write-off")
+    void receiveStockOrdersTest04() {
+        // arrange
+        UUID reservationId = UUID.randomUUID();
+        List<Message> batch = List.of(
+            message("[{\"productId\": 1, \"unit\": -2, \"reservationId\": \"" + reservationId + "\"},"
+                + " {\"productId\": 2, \"unit\": -1, \"reservationId\": \"" + reservationId + "\"}]"),
+            message("[{\"productId\": 1, \"unit\": -3}]"));
+
+        // act
+        listener.receiveStockOrders(batch);
+
+        // assert
+        verify(service).writeOff(Map.of(1L, -5, 2L, -1), Set.of(reservationId));
+    }
+
+    private static Message message(String body) {
+        return new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+}
@@ -0,0 +1,50 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.service.StockMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class StockMetricsUnitTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StockMetrics metrics = new StockMetrics(registry);
+
+
+    @Test
+    @DisplayName("Unit - applied - Must count the write-offs of the products found and only the ones clamped at zero")
+    void appliedTest01() {
+        // arrange
+        Map<Long, Integer> deltas = Map.of(1L, -5, 2L, -10, 3L, 20, 4L, -1, 5L, -3);
+        List<StockResponseDTO> stocks = List.of(
+            new StockResponseDTO(1L, "a", 15),
+            new StockResponseDTO(2L, "b", -4),
+            new StockResponseDTO(3L, "c", 20),
+            new StockResponseDTO(5L, "e", 0));
+
+        // act
+        metrics.applied(deltas, stocks);
+
+        // assert
+        assertEquals(3, registry.get("products.stock.write-offs").counter().count());
+        assertEquals(1, registry.get("products.stock.clamped").counter().count(), "an exact sell-out is not clamped");
+    }
+
+    @Test
+    @DisplayName("Unit - outOfStock - Must count every product reported short")
+    void outOfStockTest01() {
+        // act
+        metrics.outOfStock(3);
+        metrics.outOfStock(0);
+
+        // assert
+        assertEquals(3, registry.get("products.stock.out-of-stock").counter().count());
+    }
+}
@@ -0,0 +1,254 @@
+package br.com.ecommerce.products.unit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import br.com.ecommerce.products.model.product.StockResponseDTO;
+import br.com.ecommerce.products.repository.ProductRepository;
+import br.com.ecommerce.products.reservation.InsufficientStockException;
+import br.com.ecommerce.products.reservation.StockReservation;
+import br.com.ecommerce.products.reservation.StockReservationLedger;
+import jakarta.persistence.EntityNotFoundException;
+
+@ExtendWith(MockitoExtension.class)
+class StockReservationLedgerUnitTest {
+
+    @Mock
+    private ProductRepository repository;
+
+    private StockReservationLedger ledger;
+    private final Map<Long, Integer> stocks = new HashMap<>();
+
+    @BeforeEach
+    void setup() {
+        ledger = new StockReservationLedger(4);
+        ReflectionTestUtils.setField(ledger, "productRepository", repository);
+        ReflectionTestUtils.setField(ledger, "ttl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(ledger, "stockTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(ledger, "maxAttempts", 3);
+        ReflectionTestUtils.setField(ledger, "initialBackoff", Duration.ZERO);
+        ReflectionTestUtils.setField(ledger, "maxBackoff", Duration.ZERO);
+        lenient().when(repository.findStocksByIdIn(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream()
+                .filter(stocks::containsKey)
+                .map(id -> new StockResponseDTO(id, "product-" + id, stocks.get(id)))
+                .toList();
+        });
+    }
+
+
+    @Test
+    @DisplayName("Unit - reserve - Must hold the units and refuse what is no longer available")
+    void reserveTest01() {
+        // arrange
+        stocks.put(1L, 10);
+        stocks.put(2L, 10);
+        StockReservation first = ledger.reserve(Map.of(1L, 6, 2L, 1));
+
+        // act
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
+            () -> ledger.reserve(Map.of(1L, 5, 2L, 1)));
+
+        // assert
+        assertEquals(1, ex.getShortages().size());
+        assertEquals(1L, ex.getShortages().get(0).getProductId());
+        assertEquals(4, ex.getShortages().get(0).getUnit());
+        assertEquals(6, ledger.reserved(1L));
+        assertEquals(1, ledger.reserved(2L), "nothing is held when one of the products falls short");
+
+        ledger.release(first.id());
+        ledger.reserve(Map.of(1L, 10));
+        assertEquals(10, ledger.reserved(1L));
+        verify(repository, times(1)).findStocksByIdIn(any());
+    }
+
+    @Test
+    @DisplayName("Unit - reserve - Must fail for products that do not exist and units that are not positive")
+    void reserveTest02() {
+        // arrange
+        stocks.put(1L, 10);
+
+        // act and assert
+        assertThrows(EntityNotFoundException.class, () -> ledger.reserve(Map.of(1L, 1, 99L, 1)));
+        assertEquals(0, ledger.reserved(1L));
+        assertThrows(IllegalArgumentException.class, () -> ledger.reserve(Map.of(1L, 0)));
+    }
+
+    @Test
+    @DisplayName("Unit - reserve - Must read a stock again once its read is older than the stock TTL")
+    void reserveTest05() {
+        // arrange
+        stocks.put(1L, 10);
+        ReflectionTestUtils.setField(ledger, "stockTtl", Duration.ZERO);
+        ledger.reserve(Map.of(1L, 4));
+        stocks.put(1L, 5); // written off by another instance
+
+        // act
+        InsufficientStockException ex = assertThrows(InsufficientStockException.class,
+            () -> ledger.reserve(Map.of(1L, 2)));
+
+        // assert
+        assertEquals(1, ex.getShortages().get(0).getUnit());
+        verify(repository, times(2)).findStocksByIdIn(any());
+    }
+
+    @Test
+    @DisplayName("Unit - reserve - Must give up with a conflict when the stock changes on every read")
+    void reserveTest04() {
+        // arrange
+        stocks.put(1L, 10);
+        doAnswer(invocation -> {
+            ledger.stockChanged(List.of(1L));
+            return List.of(new StockResponseDTO(1L, "product-1", 10));
+        }).when(repository).findStocksByIdIn(any());
+
+        // act and assert
+        assertThrows(ConcurrencyFailureException.class, () -> ledger.reserve(Map.of(1L, 1)));
+        verify(repository, times(3)).findStocksByIdIn(any());
+        assertEquals(0, ledger.reserved(1L));
+    }
+
+    @Test
+    @DisplayName("Unit - confirm - Must write the units off, free them and read the stock again")
+    void confirmTest01() {
+        // arrange
+        stocks.put(1L, 10);
+        StockReservation reservation = ledger.reserve(Map.of(1L, 4));
+        List<Map<Long, Integer>> writtenOff = new ArrayList<>();
+
+        // act
+        ledger.confirm(reservation.id(), units -> {
+            writtenOff.add(units);
+            stocks.put(1L, 6);
+            ledger.stockChanged(units.keySet());
+            return null;
+        });
+
+        // assert
+        assertEquals(List.of(Map.of(1L, 4)), writtenOff);
+        assertEquals(0, ledger.reserved(1L));
+        assertThrows(InsufficientStockException.class, () -> ledger.reserve(Map.of(1L, 7)));
+        assertThrows(EntityNotFoundException.class, () -> ledger.release(reservation.id()));
+    }
+
+    @Test
+    @DisplayName("Unit - confirm - Must keep the reservation when the write-off fails")
+    void confirmTest02() {
+        // arrange
+        stocks.put(1L, 10);
+        StockReservation reservation = ledger.reserve(Map.of(1L, 4));
+
+        // act
+        assertThrows(IllegalStateException.class, () -> ledger.confirm(reservation.id(), units -> {
+            throw new IllegalStateException();
+        }));
+
+        // assert
+        assertEquals(4, ledger.reserved(1L));
+        ledger.release(reservation.id());
+        assertEquals(0, ledger.reserved(1L));
+    }
+
+    @Test
+    @DisplayName("Unit - writeOff - Must free the reservations written off and skip those that do not exist")
+    void writeOffTest01() {
+        // arrange
+        stocks.put(1L, 10);
+        StockReservation reservation = ledger.reserve(Map.of(1L, 4));
+
+        // act
+        ledger.writeOff(List.of(reservation.id(), UUID.randomUUID()), () -> null);
+
+        // assert
+        assertEquals(0, ledger.reserved(1L));
+        assertThrows(EntityNotFoundException.class, () -> ledger.release(reservation.id()));
+    }
+
+    @Test
+    @DisplayName("Unit - expire - Must free the units of expired reservations")
+    void expireTest01() {
+        // arrange
+        stocks.put(1L, 10);
+        ReflectionTestUtils.setField(ledger, "ttl", Duration.ZERO);
+        StockReservation expired = ledger.reserve(Map.of(1L, 3));
+        StockReservation alsoExpired = ledger.reserve(Map.of(1L, 3));
+
+        // act
+        ledger.expire();
+
+        // assert
+        assertEquals(0, ledger.reserved(1L));
+        assertThrows(EntityNotFoundException.class, () -> ledger.confirm(expired.id(), units -> null));
+        assertThrows(EntityNotFoundException.class, () -> ledger.release(alsoExpired.id()));
+    }
+
+    @Test
+    @DisplayName("Unit - reserve - Parallel reservations of one product must never hold more than its stock")
+    void reserveTest03() throws Exception {
+        // arrange
+        stocks.put(1L, 50);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<StockReservation>> buyers = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            buyers.add(() -> {
+                start.await();
+                return ledger.reserve(Map.of(1L, 1));
+            });
+        }
+
+        // act
+        int granted = 0;
+        int refused = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        try {
+            List<Future<StockReservation>> futures = buyers.stream().map(executor::submit).toList();
+            start.countDown();
+            for (Future<StockReservation> future : futures) {
+                try {
+                    future.get();
+                    granted++;
+                } catch (ExecutionException e) {
+                    assertEquals(InsufficientStockException.class, e.getCause().getClass());
+                    refused++;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        // assert
+        assertEquals(50, granted);
+        assertEquals(14, refused);
+        assertEquals(50, ledger.reserved(1L));
+    }
+}
@@ -0,0 +1,20 @@
+package br.com.ecommerce.products.utils;
+
+import java.util.concurrent.Callable;
+
+import br.com.ecommerce.products.sql.QueryCount;
+
+/**
+ * Runs an action inside a {@link QueryCount} of its own, so a test can assert
+ * the statements and rows it took on the test thread.
+ */
+public class QueryCounter {
+
+    public static <T> Counted<T> count(Callable<T> action) throws Exception {
+        try (QueryCount count = QueryCount.start()) {
+            return new Counted<>(action.call(), count);
+        }
+    }
+
+    public record Counted<T>(T result, QueryCount queries) {}
+}